@@ -0,0 +1,225 @@
+package com.sondertara.joya.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Generate the {@code TableResultLoader} of all the entities at compile time
+ * <p>
+ * The generated loader is registered in {@code META-INF/services} and picked up by {@code LocalEntityCache},
+ * so the tables are loaded without scanning the JPA metamodel at runtime.
+ * The table and columns are resolved in the same way as {@code EntityManagerTableResultLoaderAdapter}.
+ * <p>
+ * The class name of the loader can be changed by the option {@code -Ajoya.loader=com.example.EntityLoader},
+ * every module with entities should use a different one.
+ *
+ * @author huangxiaohu
+ */
+@SupportedAnnotationTypes(EntityIndexProcessor.ENTITY)
+@SupportedOptions(EntityIndexProcessor.LOADER_OPTION)
+public class EntityIndexProcessor extends AbstractProcessor {
+
+    static final String ENTITY = "javax.persistence.Entity";
+
+    static final String LOADER_OPTION = "joya.loader";
+
+    private static final String TABLE = "javax.persistence.Table";
+    private static final String COLUMN = "javax.persistence.Column";
+    private static final String ID = "javax.persistence.Id";
+    private static final String LOADER_INTERFACE = "com.sondertara.joya.core.data.TableResultLoader";
+    private static final String DEFAULT_LOADER = "com.sondertara.joya.generated.JoyaTableResultLoader";
+
+    /**
+     * binary class name -> entity
+     */
+    private final Map<String, TypeElement> entities = new TreeMap<>();
+
+    private boolean generated = false;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            return false;
+        }
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() != ElementKind.CLASS) {
+                    continue;
+                }
+                TypeElement type = (TypeElement) element;
+                if (generated) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "The entity generated by other processors is not indexed", type);
+                    continue;
+                }
+                entities.put(processingEnv.getElementUtils().getBinaryName(type).toString(), type);
+            }
+        }
+        // generate in the round of the entities instead of the last round,so the loader is compiled without warning
+        if (!generated && !entities.isEmpty()) {
+            generate();
+            generated = true;
+        }
+        return false;
+    }
+
+    private void generate() {
+        String loader = processingEnv.getOptions().getOrDefault(LOADER_OPTION, DEFAULT_LOADER);
+        int index = loader.lastIndexOf('.');
+        String packageName = index < 0 ? "" : loader.substring(0, index);
+        String simpleName = loader.substring(index + 1);
+        Filer filer = processingEnv.getFiler();
+        try {
+            JavaFileObject source = filer.createSourceFile(loader, entities.values().toArray(new Element[0]));
+            try (Writer writer = source.openWriter()) {
+                writer.write(loaderSource(packageName, simpleName));
+            }
+            FileObject service = filer.createResource(StandardLocation.CLASS_OUTPUT, "", "META-INF/services/" + LOADER_INTERFACE);
+            try (Writer writer = service.openWriter()) {
+                writer.write(loader);
+                writer.write("\n");
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Generate " + loader + " error:" + e.getMessage());
+        }
+    }
+
+    private String loaderSource(String packageName, String simpleName) {
+        StringBuilder sb = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            sb.append("package ").append(packageName).append(";\n\n");
+        }
+        sb.append("import com.sondertara.common.util.StringUtils;\n");
+        sb.append("import com.sondertara.joya.core.data.TableResultLoader;\n");
+        sb.append("import com.sondertara.joya.core.model.TableStructDef;\n\n");
+        sb.append("import java.util.ArrayList;\n");
+        sb.append("import java.util.LinkedHashMap;\n");
+        sb.append("import java.util.List;\n");
+        sb.append("import java.util.Map;\n\n");
+        sb.append("/**\n * Generated by ").append(EntityIndexProcessor.class.getName()).append(",do not edit\n */\n");
+        sb.append("public final class ").append(simpleName).append(" implements TableResultLoader {\n\n");
+        sb.append("    @Override\n");
+        sb.append("    public List<TableStructDef> load() {\n");
+        sb.append("        List<TableStructDef> result = new ArrayList<>(").append(entities.size()).append(");\n");
+        for (int i = 0; i < entities.size(); i++) {
+            sb.append("        result.add(table").append(i).append("());\n");
+        }
+        sb.append("        return result;\n");
+        sb.append("    }\n");
+        int i = 0;
+        for (Map.Entry<String, TypeElement> entry : entities.entrySet()) {
+            appendTable(sb, i++, entry.getKey(), entry.getValue());
+        }
+        sb.append("\n    private static TableStructDef table(String className, String tableName, Map<String, String> fields, String primaryKey) {\n");
+        sb.append("        TableStructDef tableStructDef = new TableStructDef();\n");
+        sb.append("        tableStructDef.setClassName(className);\n");
+        sb.append("        tableStructDef.setTableName(tableName);\n");
+        sb.append("        tableStructDef.setFields(fields);\n");
+        sb.append("        tableStructDef.setPrimaryKey(primaryKey);\n");
+        sb.append("        return tableStructDef;\n");
+        sb.append("    }\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    /**
+     * one method for every entity,so the generated methods never exceed the size limit
+     */
+    private void appendTable(StringBuilder sb, int index, String className, TypeElement type) {
+        String tableName = annotationValue(type, TABLE, "name");
+        if (isBlank(tableName)) {
+            tableName = annotationValue(type, ENTITY, "name");
+        }
+        if (isBlank(tableName)) {
+            tableName = type.getSimpleName().toString();
+        }
+        String primaryKey = null;
+        sb.append("\n    private static TableStructDef table").append(index).append("() {\n");
+        sb.append("        Map<String, String> fields = new LinkedHashMap<>();\n");
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            if (field.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+            String fieldName = field.getSimpleName().toString();
+            String column = annotationValue(field, COLUMN, "name");
+            sb.append("        fields.put(").append(literal(fieldName)).append(", ");
+            if (isBlank(column)) {
+                // the same naming strategy with the runtime adapter
+                sb.append("StringUtils.toUnderlineCase(").append(literal(fieldName)).append(")");
+            } else {
+                sb.append(literal(column.toLowerCase()));
+            }
+            sb.append(");\n");
+            if (null != annotation(field, ID)) {
+                primaryKey = fieldName;
+            }
+        }
+        sb.append("        return table(").append(literal(className)).append(", ").append(literal(tableName)).append(", fields, ");
+        sb.append(null == primaryKey ? "null" : "fields.get(" + literal(primaryKey) + ")").append(");\n");
+        sb.append("    }\n");
+    }
+
+    private static AnnotationMirror annotation(Element element, String annotationName) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+            if (annotationType.getQualifiedName().contentEquals(annotationName)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private static String annotationValue(Element element, String annotationName, String attribute) {
+        AnnotationMirror mirror = annotation(element, annotationName);
+        if (null == mirror) {
+            return null;
+        }
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(attribute)) {
+                return String.valueOf(entry.getValue().getValue());
+            }
+        }
+        return null;
+    }
+
+    private static boolean isBlank(String str) {
+        return null == str || str.trim().isEmpty();
+    }
+
+    private static String literal(String str) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : str.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                sb.append('\\');
+            }
+            sb.append(c);
+        }
+        return sb.append('"').toString();
+    }
+}
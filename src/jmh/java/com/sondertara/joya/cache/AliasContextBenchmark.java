@@ -0,0 +1,75 @@
+package com.sondertara.joya.cache;
+
+import com.sondertara.common.util.StringFormatter;
+import com.sondertara.joya.core.constant.JoyaConst;
+import com.sondertara.joya.core.model.TableAlias;
+import com.sondertara.joya.utils.ThreadLocalUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The alias state of one query: builder scoped {@link AliasContext} against the former ThreadLocal map.
+ * <p>
+ * every invocation resolves the alias of 3 tables 8 times each,which is the shape of a typical join query
+ *
+ * @author huangxiaohu
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class AliasContextBenchmark {
+
+    private static final String[] CLASSES = {"com.example.UserPo", "com.example.DeptPo", "com.example.RolePo"};
+    private static final String[] TABLES = {"t_user", "t_dept", "t_role"};
+    private static final int LOOKUPS = 8;
+
+    @Benchmark
+    public void aliasContext(Blackhole bh) {
+        AliasContext context = new AliasContext();
+        for (int i = 0; i < LOOKUPS; i++) {
+            for (int j = 0; j < CLASSES.length; j++) {
+                bh.consume(context.getOrCreate(CLASSES[j], TABLES[j]).getAliasName());
+            }
+        }
+        bh.consume(context.getTables());
+    }
+
+    @Benchmark
+    @SuppressWarnings({"unchecked", "deprecation"})
+    public void threadLocal(Blackhole bh) {
+        ThreadLocalUtil.put(JoyaConst.JOYA_SQL, new LinkedHashMap<String, TableAlias>());
+        for (int i = 0; i < LOOKUPS; i++) {
+            for (int j = 0; j < CLASSES.length; j++) {
+                LinkedHashMap<String, TableAlias> aliasMap = (LinkedHashMap<String, TableAlias>) ThreadLocalUtil.get(JoyaConst.JOYA_SQL);
+                String tableName = TABLES[j];
+                TableAlias tableAlias = aliasMap.computeIfAbsent(CLASSES[j], k -> {
+                    TableAlias aliasDTO = new TableAlias();
+                    aliasDTO.setTableName(tableName);
+                    aliasDTO.setClassName(k);
+                    aliasDTO.setAliasName(StringFormatter.format("t{}", aliasMap.size()));
+                    return aliasDTO;
+                });
+                bh.consume(tableAlias.getAliasName());
+            }
+        }
+        LinkedHashMap<String, TableAlias> aliasMap = (LinkedHashMap<String, TableAlias>) ThreadLocalUtil.get(JoyaConst.JOYA_SQL);
+        bh.consume(aliasMap.values());
+        ThreadLocalUtil.clear();
+    }
+}
@@ -0,0 +1,96 @@
+package com.sondertara.joya.core.query;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The count sql generated by {@link NativeSqlQueryBuilder} against the count sql keeping all joins,
+ * on an in-memory H2 database.
+ * <p>
+ * t_user left joins t_dept and t_role on their primary keys and only t_user is filtered,
+ * so both joins can be removed from the count sql.
+ *
+ * @author huangxiaohu
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CountQueryBenchmark {
+
+    private static final String FULL_COUNT = "SELECT count(*) FROM t_user t0 LEFT JOIN t_dept t1 ON t0.dept_id = t1.id LEFT JOIN t_role t2 ON t0.role_id = t2.id WHERE t0.status = ?";
+
+    private static final String OPTIMIZED_COUNT = "SELECT count(*) FROM t_user t0 WHERE t0.status = ?";
+
+    private static final String GROUP_COUNT = "select count(*) from (SELECT t0.dept_id, count(*) c FROM t_user t0 WHERE t0.status = ? GROUP BY t0.dept_id) t_count";
+
+    @Param({"100000"})
+    public int users;
+
+    private Connection connection;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:joya_count;DB_CLOSE_DELAY=-1");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("drop all objects");
+            statement.execute("create table t_dept (id bigint primary key, dept_name varchar(64))");
+            statement.execute("create table t_role (id bigint primary key, role_name varchar(64))");
+            statement.execute("create table t_user (id bigint primary key, user_name varchar(64), status int, dept_id bigint, role_id bigint)");
+            statement.execute("insert into t_dept select x, 'dept' || x from system_range(1, 100)");
+            statement.execute("insert into t_role select x, 'role' || x from system_range(1, 20)");
+            statement.execute("insert into t_user select x, 'user' || x, mod(x, 3), mod(x, 100) + 1, mod(x, 20) + 1 from system_range(1, " + users + ")");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public long countWithJoins() throws SQLException {
+        return count(FULL_COUNT);
+    }
+
+    @Benchmark
+    public long countWithoutJoins() throws SQLException {
+        return count(OPTIMIZED_COUNT);
+    }
+
+    @Benchmark
+    public long countGroupByWrapped() throws SQLException {
+        return count(GROUP_COUNT);
+    }
+
+    private long count(String sql) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setInt(1, 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+}
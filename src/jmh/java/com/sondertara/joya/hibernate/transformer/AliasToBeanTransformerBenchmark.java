@@ -0,0 +1,122 @@
+package com.sondertara.joya.hibernate.transformer;
+
+import com.sondertara.common.util.StringUtils;
+import com.sondertara.joya.hibernate.transformer.mappedfileds.Fields;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.beans.BeanUtils;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The compiled plan of {@link AliasToBeanTransformer} against setting every cell by {@link ValueSetter},
+ * transforming 1000 tuples of one query.
+ *
+ * @author huangxiaohu
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AliasToBeanTransformerBenchmark {
+
+    private static final int ROWS = 1000;
+
+    private final String[] aliases = {"ID", "USER_NAME", "DEPT_ID", "CREATE_TIME", "AMOUNT"};
+
+    private final Object[][] tuples = new Object[ROWS][];
+
+    private final Map<String, Fields> mappedFields = new MappedFieldsInitializer().init(UserVo.class);
+
+    {
+        for (int i = 0; i < ROWS; i++) {
+            // the numbers are BigDecimal like the oracle driver
+            tuples[i] = new Object[]{BigDecimal.valueOf(i), "user" + i, BigDecimal.valueOf(i % 100), new Timestamp(System.currentTimeMillis()), BigDecimal.valueOf(i, 2)};
+        }
+    }
+
+    @Benchmark
+    public void valueSetter(Blackhole bh) {
+        ValueSetter valueSetter = new ValueSetter();
+        for (Object[] tuple : tuples) {
+            UserVo vo = BeanUtils.instantiateClass(UserVo.class);
+            for (int i = 0; i < aliases.length; i++) {
+                String trim = aliases[i].trim();
+                String alias = trim.contains("_") ? StringUtils.toCamelCase(trim) : trim;
+                valueSetter.set(vo, alias, tuple[i], mappedFields);
+            }
+            valueSetter.clearGenericMap();
+            bh.consume(vo);
+        }
+    }
+
+    @Benchmark
+    public void compiledPlan(Blackhole bh) {
+        AliasToBeanTransformer<UserVo> transformer = new AliasToBeanTransformer<>(UserVo.class);
+        for (Object[] tuple : tuples) {
+            bh.consume(transformer.transformTuple(tuple, aliases));
+        }
+    }
+
+    public static class UserVo {
+        private Long id;
+        private String userName;
+        private Integer deptId;
+        private Date createTime;
+        private BigDecimal amount;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getUserName() {
+            return userName;
+        }
+
+        public void setUserName(String userName) {
+            this.userName = userName;
+        }
+
+        public Integer getDeptId() {
+            return deptId;
+        }
+
+        public void setDeptId(Integer deptId) {
+            this.deptId = deptId;
+        }
+
+        public Date getCreateTime() {
+            return createTime;
+        }
+
+        public void setCreateTime(Date createTime) {
+            this.createTime = createTime;
+        }
+
+        public BigDecimal getAmount() {
+            return amount;
+        }
+
+        public void setAmount(BigDecimal amount) {
+            this.amount = amount;
+        }
+    }
+}
@@ -14,12 +14,11 @@ import com.sondertara.joya.utils.ThreadLocalUtil;
 import javax.persistence.EntityNotFoundException;
 import java.lang.invoke.SerializedLambda;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import static com.sondertara.joya.core.constant.JoyaConst.JOYA_SQL;
@@ -27,7 +26,7 @@ import static com.sondertara.joya.core.constant.JoyaConst.JOYA_SQL;
 /**
  * (non-Javadoc)
  * <p>
- * Alias cache based on ThreadLocal
+ * Alias cache of lambda columns,the table alias is bound to the {@link AliasContext} of query
  * Save the relationship of query table name and table alias
  *
  * @author huangxiaohu
@@ -43,53 +42,128 @@ public final class AliasCacheHelper {
      */
     private static final Pattern IS_PATTERN = Pattern.compile("^is[A-Z].*");
 
+    /**
+     * the resolved column of lambda,key is the class of lambda
+     */
+    private static final Map<Class<?>, LambdaColumn> LAMBDA_COLUMNS = new ConcurrentHashMap<>();
+
     /**
      * (non-Javadoc)
      * set table alias
      * <p>
      * the table alias will be like t0,t1...
      *
-     * @param aClass the entity class
+     * @param context the alias context of query
+     * @param aClass  the entity class
      */
-    @SuppressWarnings("unchecked")
-    public static void generateTableAlias(Class<?> aClass) {
+    public static void generateTableAlias(AliasContext context, Class<?> aClass) {
 
         TableStructDef tableStructDef = LocalEntityCache.getInstance().get(aClass.getName()).orElseThrow(() -> new TaraException("No entity found with class:{}", aClass.getName()));
-        LinkedHashMap<String, TableAlias> aliasMap = (LinkedHashMap<String, TableAlias>) ThreadLocalUtil.get(JOYA_SQL);
+        context.getOrCreate(aClass.getName(), tableStructDef.getTableName());
+    }
 
-        TableAlias aliasDTO = new TableAlias();
-        aliasDTO.setClassName(aClass.getName());
-        aliasDTO.setTableName(tableStructDef.getTableName());
-        aliasDTO.setAliasName(StringFormatter.format("t{}", aliasMap.size()));
-        aliasMap.putIfAbsent(aClass.getName(), aliasDTO);
+    /**
+     * set table alias in the alias map bound to current thread
+     *
+     * @param aClass the entity class
+     * @deprecated the table alias is bound to the query,use {@link #generateTableAlias(AliasContext, Class)}
+     */
+    @Deprecated
+    public static void generateTableAlias(Class<?> aClass) {
+        generateTableAlias(threadContext(), aClass);
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * set table alias in the alias map bound to current thread
+     *
+     * @param tableAndAlias the table name
+     * @deprecated the table alias is bound to the query,use {@link #generateTableAlias(AliasContext, String)}
+     */
+    @Deprecated
     public static void generateTableAlias(String tableAndAlias) {
+        generateTableAlias(threadContext(), tableAndAlias);
+    }
+
+    public static void generateTableAlias(AliasContext context, String tableAndAlias) {
         Assert.notBlank(tableAndAlias);
         String[] strings = tableAndAlias.split(" ");
 
-        LocalEntityCache.getInstance().get(strings[0].toLowerCase()).ifPresent(t -> {
-            LinkedHashMap<String, TableAlias> aliasMap = (LinkedHashMap<String, TableAlias>) ThreadLocalUtil.get(JOYA_SQL);
-
-            TableAlias aliasDTO = new TableAlias();
-            aliasDTO.setClassName(t.getClassName());
-            aliasDTO.setTableName(t.getTableName());
-            aliasDTO.setAliasName(StringFormatter.format("t{}", aliasMap.size()));
-            aliasMap.putIfAbsent(t.getClassName(), aliasDTO);
-        });
+        LocalEntityCache.getInstance().get(strings[0].toLowerCase()).ifPresent(t -> context.getOrCreate(t.getClassName(), t.getTableName()));
     }
 
     /**
      * (non-Javadoc)
      * Get the column information
+     * <p>
+     * the class,field and column of the lambda are resolved only once for every lambda class,
+     * only the table alias is bound to the current query
      *
+     * @param context   the alias context of query
      * @param taraSqlFn the apply function
      * @param <T>       generic
      * @return Object contain
      */
-    @SuppressWarnings("unchecked")
+    public static <T> ColumnAlias getColumn(AliasContext context, TaraFunction<T, ?> taraSqlFn) {
+        LambdaColumn lambdaColumn = LAMBDA_COLUMNS.get(taraSqlFn.getClass());
+        if (null == lambdaColumn) {
+            lambdaColumn = LAMBDA_COLUMNS.computeIfAbsent(taraSqlFn.getClass(), k -> resolveLambda(taraSqlFn));
+        }
+        TableAlias tableAlias = context.getOrCreate(lambdaColumn.className, lambdaColumn.tableName);
+        ColumnAlias columnAlias = new ColumnAlias();
+        columnAlias.setTableName(lambdaColumn.tableName);
+        columnAlias.setColumnName(lambdaColumn.columnName);
+        columnAlias.setTableAlias(tableAlias.getAliasName());
+        columnAlias.setColumnAlias(tableAlias.getAliasName() + "." + lambdaColumn.columnName);
+        return columnAlias;
+    }
+
+    /**
+     * Get the column information with the alias map bound to current thread
+     *
+     * @param taraSqlFn the apply function
+     * @param <T>       generic
+     * @return Object contain
+     * @deprecated the table alias is bound to the query,use {@link #getColumn(AliasContext, TaraFunction)}
+     */
+    @Deprecated
     public static <T> ColumnAlias getColumn(TaraFunction<T, ?> taraSqlFn) {
+        return getColumn(threadContext(), taraSqlFn);
+    }
+
+    /**
+     * get all relation tables in the alias map bound to current thread
+     *
+     * @return Object of table
+     * @deprecated the table alias is bound to the query,use {@link AliasContext#getTables()}
+     */
+    @Deprecated
+    public static List<TableAlias> getTables() {
+        return threadContext().getTables();
+    }
+
+    /**
+     * the alias map bound to current thread by the legacy api,it is created if absent
+     *
+     * @return the alias context share the map
+     */
+    @Deprecated
+    @SuppressWarnings("unchecked")
+    private static AliasContext threadContext() {
+        LinkedHashMap<String, TableAlias> aliasMap = (LinkedHashMap<String, TableAlias>) ThreadLocalUtil.get(JOYA_SQL);
+        if (null == aliasMap) {
+            aliasMap = new LinkedHashMap<>();
+            ThreadLocalUtil.put(JOYA_SQL, aliasMap);
+        }
+        return new AliasContext(aliasMap);
+    }
+
+    /**
+     * resolve the entity class,field and column of the lambda
+     *
+     * @param taraSqlFn the apply function
+     * @return the resolved column
+     */
+    private static LambdaColumn resolveLambda(TaraFunction<?, ?> taraSqlFn) {
         try {
             Method method = taraSqlFn.getClass().getDeclaredMethod("writeReplace");
             method.setAccessible(Boolean.TRUE);
@@ -106,49 +180,16 @@ public final class AliasCacheHelper {
             } else if (IS_PATTERN.matcher(getter).matches()) {
                 getter = getter.substring(2);
             }
-            String finalGetter = getter;
-            AtomicReference<String> tableName = new AtomicReference<>();
-            String columnName = optional.map(tableDTO -> {
-                Map<String, String> map = tableDTO.getFields();
-                tableName.set(tableDTO.getTableName());
-
-                String fieldName = StringUtils.lowerFirst(finalGetter);
-                if (map.containsKey(fieldName)) {
-                    return map.get(fieldName);
-                }
-                throw new EntityNotFoundException("No column found by " + finalGetter);
-            }).orElseThrow(() -> new EntityNotFoundException("no entity found for " + implClass));
-            LinkedHashMap<String, TableAlias> aliasMap = (LinkedHashMap<String, TableAlias>) ThreadLocalUtil.get(JOYA_SQL);
-            TableAlias tableAlias = aliasMap.computeIfAbsent(className, k -> {
-                TableAlias aliasDTO = new TableAlias();
-                aliasDTO.setTableName(tableName.get());
-                aliasDTO.setClassName(className);
-                aliasDTO.setAliasName(StringFormatter.format("t{}", aliasMap.size()));
-                return aliasDTO;
-            });
-            ColumnAlias columnAlias = new ColumnAlias();
-            columnAlias.setTableName(tableName.get());
-            columnAlias.setColumnName(columnName);
-            columnAlias.setTableAlias(tableAlias.getAliasName());
-            columnAlias.setColumnAlias(StringFormatter.format("{}.{}", tableAlias.getAliasName(), columnName));
-            return columnAlias;
+            String fieldName = StringUtils.lowerFirst(getter);
+            TableStructDef tableDTO = optional.orElseThrow(() -> new EntityNotFoundException("no entity found for " + implClass));
+            Map<String, String> map = tableDTO.getFields();
+            if (!map.containsKey(fieldName)) {
+                throw new EntityNotFoundException("No column found by " + getter);
+            }
+            return new LambdaColumn(className, fieldName, map.get(fieldName), tableDTO.getTableName());
         } catch (ReflectiveOperationException e) {
             throw new TaraException(e);
         }
-
-    }
-
-    /**
-     * (non-Javadoc)
-     * get all relation tables for the query
-     *
-     * @return Object of table
-     */
-    @SuppressWarnings("unchecked")
-    public static List<TableAlias> getTables() {
-        LinkedHashMap<String, TableAlias> aliasMap = (LinkedHashMap<String, TableAlias>) ThreadLocalUtil.get(JOYA_SQL);
-        return new ArrayList<>(aliasMap.values());
-
     }
 
     public static TableStructDef getTable(String className) {
@@ -158,12 +199,25 @@ public final class AliasCacheHelper {
 
 
     /**
-     * 获取数据库中的列明名
+     * 获取数据库中的列明名,使用绑定在当前线程的表别名
      *
      * @param column 表别名
      * @return 列名
+     * @deprecated the table alias is bound to the query,use {@link #getColumnName(AliasContext, String)}
      */
+    @Deprecated
     public static String getColumnName(String column) {
+        return getColumnName(threadContext(), column);
+    }
+
+    /**
+     * 获取数据库中的列明名
+     *
+     * @param context 查询的别名
+     * @param column  表别名
+     * @return 列名
+     */
+    public static String getColumnName(AliasContext context, String column) {
 
         if (null == column) {
             return null;
@@ -175,7 +229,7 @@ public final class AliasCacheHelper {
         String tableAlias = column.substring(0, index);
         String fieldName = column.substring(index + 1);
         String s = null;
-        List<TableAlias> tables = getTables();
+        List<TableAlias> tables = context.getTables();
         for (TableAlias table : tables) {
             if (tableAlias.equals(table.getAliasName())) {
                 String className = table.getClassName();
@@ -185,19 +239,36 @@ public final class AliasCacheHelper {
                     // if the column  is entity field
                     if (fields.containsKey(StringUtils.toCamelCase(fieldName))) {
                         return fields.get(StringUtils.toCamelCase(fieldName));
-                    } else {
-                        // if the column is table column
-                        for (String value : fields.values()) {
-                            if (value.equalsIgnoreCase(StringUtils.toUnderlineCase(fieldName))) {
-                                return value;
-                            }
-                        }
+                    }
+                    // if the column is table column
+                    Optional<String> tableColumn = LocalEntityCache.getInstance().getColumn(className, StringUtils.toUnderlineCase(fieldName));
+                    if (tableColumn.isPresent()) {
+                        return tableColumn.get();
                     }
                     throw new TaraException("No column found for table [{}] by name [{}]", table.getTableName(), fieldName);
                 }).orElseThrow(() -> new TaraException("No table found by className [{}]", className));
             }
         }
+        if (null == s) {
+            throw new TaraException("No table found by alias [{}] in the query,add the table by from or join first", tableAlias);
+        }
         return StringFormatter.format("{}.{}", tableAlias, s);
     }
 
+    /**
+     * the column resolved from lambda,it does not depend on the query
+     */
+    private static final class LambdaColumn {
+        private final String className;
+        private final String fieldName;
+        private final String columnName;
+        private final String tableName;
+
+        private LambdaColumn(String className, String fieldName, String columnName, String tableName) {
+            this.className = className;
+            this.fieldName = fieldName;
+            this.columnName = columnName;
+            this.tableName = tableName;
+        }
+    }
 }
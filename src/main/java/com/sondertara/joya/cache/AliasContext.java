@@ -0,0 +1,72 @@
+package com.sondertara.joya.cache;
+
+import com.sondertara.common.util.StringFormatter;
+import com.sondertara.joya.core.model.TableAlias;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * (non-Javadoc)
+ * <p>
+ * The table alias of one query
+ * <p>
+ * every query builder owns its context,so the builders can be interleaved on one thread
+ * or assembled on one thread and built on another.
+ * it is not thread safe,a builder should not be modified by multiple threads concurrently
+ *
+ * @author huangxiaohu
+ */
+public final class AliasContext {
+
+    /**
+     * key is the class name of entity
+     */
+    private final LinkedHashMap<String, TableAlias> aliasMap;
+
+    public AliasContext() {
+        this(new LinkedHashMap<>());
+    }
+
+    /**
+     * share the alias map,used by the deprecated thread bound api of {@link AliasCacheHelper}
+     *
+     * @param aliasMap the alias map,key is the class name of entity
+     */
+    AliasContext(LinkedHashMap<String, TableAlias> aliasMap) {
+        this.aliasMap = aliasMap;
+    }
+
+    /**
+     * get or generate the table alias like t0,t1...
+     *
+     * @param className the entity class name
+     * @param tableName the table name
+     * @return the table alias
+     */
+    TableAlias getOrCreate(String className, String tableName) {
+        TableAlias tableAlias = aliasMap.get(className);
+        if (null == tableAlias) {
+            tableAlias = new TableAlias();
+            tableAlias.setClassName(className);
+            tableAlias.setTableName(tableName);
+            tableAlias.setAliasName(StringFormatter.format("t{}", aliasMap.size()));
+            aliasMap.put(className, tableAlias);
+        }
+        return tableAlias;
+    }
+
+    /**
+     * get all relation tables for the query
+     *
+     * @return the tables in order of alias
+     */
+    public List<TableAlias> getTables() {
+        return new ArrayList<>(aliasMap.values());
+    }
+
+    public int size() {
+        return aliasMap.size();
+    }
+}
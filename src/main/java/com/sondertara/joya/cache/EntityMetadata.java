@@ -0,0 +1,287 @@
+package com.sondertara.joya.cache;
+
+import com.sondertara.common.exception.TaraException;
+import com.sondertara.common.util.StringUtils;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * 实体类的表结构
+ * <p>
+ * 按类解析一次注解,之后不可变,可以在多线程中共享.
+ * 列的顺序与{@link TableClassCache#getAllFields(Class)}一致,重复的列只保留第一个
+ *
+ * @author huangxiaohu
+ */
+public final class EntityMetadata {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private final Class<?> entityClass;
+    private final String tableName;
+    private final String primaryKey;
+    private final Class<?> primaryKeyType;
+    /**
+     * 主键在列中的下标,没有主键为-1
+     */
+    private final int primaryKeyIndex;
+    private final String[] columns;
+    private final MethodHandle[] getters;
+    private final List<String> columnList;
+    private final List<String> columnListWithoutPrimaryKey;
+    private final List<Class<?>> columnTypeList;
+    private final List<Class<?>> columnTypeListWithoutPrimaryKey;
+    /**
+     * key is column name ,value is the field name
+     */
+    private final Map<String, String> relation;
+    private final Map<String, Class<?>> columnTypeMap;
+
+    private EntityMetadata(Class<?> entityClass, String tableName, String primaryKey, Class<?> primaryKeyType,
+                           String[] columns, Class<?>[] columnTypes, MethodHandle[] getters, Map<String, String> relation) {
+        this.entityClass = entityClass;
+        this.tableName = tableName;
+        this.primaryKey = primaryKey;
+        this.primaryKeyType = primaryKeyType;
+        this.columns = columns;
+        this.getters = getters;
+        this.primaryKeyIndex = null == primaryKey ? -1 : Arrays.asList(columns).indexOf(primaryKey);
+        this.columnList = Collections.unmodifiableList(Arrays.asList(columns));
+        this.columnListWithoutPrimaryKey = Collections.unmodifiableList(Arrays.asList(withoutPrimaryKey(columns)));
+        this.columnTypeList = Collections.unmodifiableList(Arrays.asList(columnTypes));
+        this.columnTypeListWithoutPrimaryKey = Collections.unmodifiableList(Arrays.asList(withoutPrimaryKey(columnTypes)));
+        this.relation = Collections.unmodifiableMap(relation);
+        Map<String, Class<?>> typeMap = new LinkedHashMap<>(columns.length * 2);
+        for (int i = 0; i < columns.length; i++) {
+            typeMap.put(columns[i], columnTypes[i]);
+        }
+        this.columnTypeMap = Collections.unmodifiableMap(typeMap);
+    }
+
+    /**
+     * 解析实体类
+     *
+     * @param clazz 实体类
+     * @return 表结构
+     */
+    static EntityMetadata of(Class<?> clazz) {
+        Table table = clazz.getAnnotation(Table.class);
+        String tableName = null;
+        if (null != table) {
+            tableName = table.name();
+        } else {
+            Entity entity = clazz.getAnnotation(Entity.class);
+            if (null != entity) {
+                tableName = entity.name();
+            }
+        }
+        if (null == tableName) {
+            throw new TaraException("No [@Table] or [@Entity] annotation found for class->" + clazz);
+        }
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        Map<String, Field> columnFields = new LinkedHashMap<>();
+        String primaryKey = null;
+        Class<?> primaryKeyType = null;
+        for (Field field : TableClassCache.getAllFields(clazz).values()) {
+            if (Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+            if (field.isAnnotationPresent(Transient.class) || field.isAnnotationPresent(org.springframework.data.annotation.Transient.class)) {
+                continue;
+            }
+            String name = StringUtils.toUnderlineCase(field.getName());
+            Column column = field.getAnnotation(Column.class);
+            if (null != column) {
+                name = column.name();
+            }
+            if (field.isAnnotationPresent(Id.class)) {
+                primaryKey = name;
+                primaryKeyType = field.getType();
+            }
+            columnFields.putIfAbsent(name, field);
+        }
+        int size = columnFields.size();
+        String[] columns = new String[size];
+        Class<?>[] columnTypes = new Class<?>[size];
+        MethodHandle[] getters = new MethodHandle[size];
+        Map<String, String> relation = new LinkedHashMap<>(size * 2);
+        int i = 0;
+        for (Map.Entry<String, Field> entry : columnFields.entrySet()) {
+            Field field = entry.getValue();
+            columns[i] = entry.getKey();
+            columnTypes[i] = field.getType();
+            try {
+                field.setAccessible(true);
+                getters[i] = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+            } catch (IllegalAccessException e) {
+                throw new TaraException(e);
+            }
+            relation.put(entry.getKey(), field.getName());
+            i++;
+        }
+        return new EntityMetadata(clazz, tableName, primaryKey, primaryKeyType, columns, columnTypes, getters, relation);
+    }
+
+    /**
+     * 读取实体的列值
+     *
+     * @param bean   实体
+     * @param buffer 可复用的数组,长度不等于列数时创建新数组
+     * @return 列值,顺序与{@link #getColumns()}一致
+     */
+    public Object[] extract(Object bean, Object[] buffer) {
+        Object[] values = null != buffer && buffer.length == getters.length ? buffer : new Object[getters.length];
+        try {
+            for (int i = 0; i < getters.length; i++) {
+                values[i] = getters[i].invokeExact(bean);
+            }
+        } catch (Throwable e) {
+            throw new TaraException("Read the entity [{}] error", entityClass.getName(), e);
+        }
+        return values;
+    }
+
+    /**
+     * 转换为以列名为key的有序map
+     *
+     * @param values 列值
+     * @return map
+     */
+    public Map<String, Object> toMap(Object[] values) {
+        Map<String, Object> data = new LinkedHashMap<>(columns.length * 2);
+        for (int i = 0; i < columns.length; i++) {
+            data.put(columns[i], values[i]);
+        }
+        return data;
+    }
+
+    /**
+     * @param values 列值
+     * @return 主键值,没有主键返回null
+     */
+    public Object getPrimaryKeyValue(Object[] values) {
+        return primaryKeyIndex < 0 ? null : values[primaryKeyIndex];
+    }
+
+    /**
+     * 复制不含主键的列值
+     *
+     * @param values 列值
+     * @return 新数组,顺序与{@link #getColumnsWithoutPrimaryKey()}一致
+     */
+    public Object[] withoutPrimaryKey(Object[] values) {
+        if (primaryKeyIndex < 0) {
+            return values.clone();
+        }
+        Object[] row = new Object[values.length - 1];
+        System.arraycopy(values, 0, row, 0, primaryKeyIndex);
+        System.arraycopy(values, primaryKeyIndex + 1, row, primaryKeyIndex, values.length - primaryKeyIndex - 1);
+        return row;
+    }
+
+    /**
+     * 复制列值并把主键放到最后,用于update ... where pk = ?
+     *
+     * @param values 列值
+     * @return 新数组
+     */
+    public Object[] primaryKeyLast(Object[] values) {
+        if (primaryKeyIndex < 0) {
+            return values.clone();
+        }
+        Object[] row = Arrays.copyOf(withoutPrimaryKey(values), values.length);
+        row[values.length - 1] = values[primaryKeyIndex];
+        return row;
+    }
+
+    /**
+     * 单行插入语句
+     *
+     * @param tableName 表名
+     * @param columns   列名
+     * @return insert into table(c1,c2) values(?,?)
+     */
+    public static String insertSql(String tableName, List<String> columns) {
+        StringJoiner values = new StringJoiner(",", "values(", ")");
+        for (int i = 0; i < columns.size(); i++) {
+            values.add("?");
+        }
+        return "insert into " + tableName + "(" + String.join(",", columns) + ") " + values;
+    }
+
+    private String[] withoutPrimaryKey(String[] values) {
+        if (null == primaryKey) {
+            return values.clone();
+        }
+        return Arrays.stream(values).filter(c -> !c.equals(primaryKey)).toArray(String[]::new);
+    }
+
+    private Class<?>[] withoutPrimaryKey(Class<?>[] values) {
+        Class<?>[] row = new Class<?>[primaryKeyIndex < 0 ? values.length : values.length - 1];
+        for (int i = 0, j = 0; i < values.length; i++) {
+            if (i != primaryKeyIndex) {
+                row[j++] = values[i];
+            }
+        }
+        return row;
+    }
+
+    public Class<?> getEntityClass() {
+        return entityClass;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public String getPrimaryKey() {
+        return primaryKey;
+    }
+
+    public Class<?> getPrimaryKeyType() {
+        return primaryKeyType;
+    }
+
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    public List<String> getColumns() {
+        return columnList;
+    }
+
+    public List<String> getColumnsWithoutPrimaryKey() {
+        return columnListWithoutPrimaryKey;
+    }
+
+    public List<Class<?>> getColumnTypes() {
+        return columnTypeList;
+    }
+
+    public List<Class<?>> getColumnTypesWithoutPrimaryKey() {
+        return columnTypeListWithoutPrimaryKey;
+    }
+
+    public Map<String, String> getRelation() {
+        return relation;
+    }
+
+    public Map<String, Class<?>> getColumnTypeMap() {
+        return columnTypeMap;
+    }
+}
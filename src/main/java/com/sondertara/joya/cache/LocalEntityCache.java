@@ -1,82 +1,271 @@
 package com.sondertara.joya.cache;
 
-import com.sondertara.common.cache.GuavaAbstractLoadingCache;
 import com.sondertara.joya.core.data.TableResultLoader;
 import com.sondertara.joya.core.data.EntityManagerTableResultLoaderAdapter;
 import com.sondertara.joya.core.model.TableStructDef;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 
 /**
- * local cache for five min
+ * the index of entity tables
+ * <p>
+ * 首次查询时调用一次{@link TableResultLoader#load()}建立快照,按类名、表名(忽略大小写)和列名索引,
+ * 查询不到的key也会记录下来,不会再触发扫描.调用{@link #refresh()}重新加载并原子替换快照.
+ * 如果classpath中有joya-processor生成的{@link TableResultLoader},优先使用,启动时不再扫描JPA metamodel;
+ * 没有使用joya-processor编译的实体(例如其他jar中的实体)查询不到时,才扫描一次JPA metamodel补充到快照中
  *
  * @author huangxiaohu
  */
-public class LocalEntityCache extends GuavaAbstractLoadingCache<String, TableStructDef> {
+public class LocalEntityCache {
 
     private static final Logger log = LoggerFactory.getLogger(LocalEntityCache.class);
 
+    /**
+     * the max size of missed keys in one snapshot
+     */
+    private static final int MAX_MISSED_KEYS = 1024;
+
     private static volatile LocalEntityCache cache = null;
 
-    private LocalEntityCache() {
-        setMaximumSize(1000);
-        setExpireAfterWriteDuration(60 * 5);
-    }
+    private volatile TableResultLoader tableResult;
 
-    private TableResultLoader tableResult;
+    /**
+     * load the tables missed by the generated loaders,null if no fallback
+     */
+    private volatile TableResultLoader fallback;
 
+    private volatile Snapshot snapshot;
+
+    private LocalEntityCache() {
+    }
 
     public static void setTableResultAdapter(TableResultLoader tableResult) {
-        getInstance().setTableResult(tableResult);
+        getInstance().setTableResult(tableResult, null);
     }
 
-    public synchronized static LocalEntityCache getInstance() {
+    public static LocalEntityCache getInstance() {
         if (null == cache) {
             synchronized (LocalEntityCache.class) {
                 if (null == cache) {
-                    cache = new LocalEntityCache();
-                    cache.setTableResult(new EntityManagerTableResultLoaderAdapter());
+                    LocalEntityCache entityCache = new LocalEntityCache();
+                    TableResultLoader generated = generatedTableResult();
+                    if (null == generated) {
+                        entityCache.setTableResult(new EntityManagerTableResultLoaderAdapter(), null);
+                    } else {
+                        entityCache.setTableResult(generated, new EntityManagerTableResultLoaderAdapter());
+                    }
+                    cache = entityCache;
                 }
             }
         }
         return cache;
     }
 
-    private void setTableResult(TableResultLoader tableResult) {
+    /**
+     * the loaders generated by joya-processor
+     *
+     * @return the loader,null if no loader is generated
+     */
+    private static TableResultLoader generatedTableResult() {
+        List<TableResultLoader> loaders = new ArrayList<>();
+        for (TableResultLoader loader : ServiceLoader.load(TableResultLoader.class, LocalEntityCache.class.getClassLoader())) {
+            loaders.add(loader);
+        }
+        if (loaders.isEmpty()) {
+            return null;
+        }
+        log.info("Use the generated table loaders:{}", loaders.stream().map(l -> l.getClass().getName()).collect(Collectors.joining(",")));
+        if (loaders.size() == 1) {
+            return loaders.get(0);
+        }
+        return () -> {
+            List<TableStructDef> tables = new ArrayList<>();
+            for (TableResultLoader loader : loaders) {
+                tables.addAll(loader.load());
+            }
+            return tables;
+        };
+    }
+
+    private synchronized void setTableResult(TableResultLoader tableResult, TableResultLoader fallback) {
         this.tableResult = tableResult;
+        this.fallback = fallback;
+        this.snapshot = null;
     }
 
+    /**
+     * get the table by entity class name or table name
+     *
+     * @param key class name or table name
+     * @return the table
+     */
+    public Optional<TableStructDef> get(String key) {
+        if (null == key) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(find(snapshot(), key));
+    }
 
-    @Override
-    protected Optional<TableStructDef> fetchData(String key) {
+    private TableStructDef find(Snapshot current, String key) {
+        String lowerKey = key.toLowerCase(Locale.ROOT);
+        TableStructDef table = current.lookup(lowerKey);
+        if (null == table && !current.complete) {
+            current = complete(current);
+            table = current.lookup(lowerKey);
+        }
+        if (null == table && current.missed.size() < MAX_MISSED_KEYS && current.missed.add(lowerKey)) {
+            log.warn("no data to load by key=[{}]", key);
+        }
+        return table;
+    }
 
-        List<TableStructDef> list = tableResult.load();
-        for (TableStructDef tableStructDef : list) {
-            if (tableStructDef.getTableName().equalsIgnoreCase(key)) {
-                put(tableStructDef.getClassName(), tableStructDef);
-                return Optional.of(tableStructDef);
-            } else if (tableStructDef.getClassName().equalsIgnoreCase(key)) {
-                put(tableStructDef.getTableName(), tableStructDef);
-                return Optional.of(tableStructDef);
-            }
+    /**
+     * get the column name of the table,ignore case
+     *
+     * @param key    class name or table name
+     * @param column column name
+     * @return the column name defined in the entity
+     */
+    public Optional<String> getColumn(String key, String column) {
+        if (null == key || null == column) {
+            return Optional.empty();
+        }
+        TableStructDef table = find(snapshot(), key);
+        if (null == table) {
+            return Optional.empty();
         }
-        log.warn("no data to load by key=[{}]", key);
-        return Optional.empty();
+        Map<String, String> tableColumns = snapshot().columns.get(table.getClassName());
+        return null == tableColumns ? Optional.empty() : Optional.ofNullable(tableColumns.get(column.toLowerCase(Locale.ROOT)));
+    }
 
+    /**
+     * get the tables which contain the column
+     *
+     * @param column column name,ignore case
+     * @return the tables
+     */
+    public List<TableStructDef> getByColumn(String column) {
+        if (null == column) {
+            return Collections.emptyList();
+        }
+        String lowerColumn = column.toLowerCase(Locale.ROOT);
+        Snapshot current = snapshot();
+        if (!current.complete && !current.byColumn.containsKey(lowerColumn)) {
+            current = complete(current);
+        }
+        return current.byColumn.getOrDefault(lowerColumn, Collections.emptyList());
+    }
 
+    /**
+     * reload the tables and replace the snapshot
+     */
+    public synchronized void refresh() {
+        this.snapshot = load(tableResult, null == fallback);
     }
 
-    @Override
-    public Optional<TableStructDef> get(String key) {
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (null == current) {
+            synchronized (this) {
+                current = snapshot;
+                if (null == current) {
+                    current = load(tableResult, null == fallback);
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * load the tables missed by the generated loaders and replace the snapshot,only once for every snapshot
+     *
+     * @param current the snapshot of generated loaders
+     * @return the merged snapshot
+     */
+    private synchronized Snapshot complete(Snapshot current) {
+        if (snapshot != current || current.complete) {
+            return snapshot();
+        }
+        long start = System.nanoTime();
+        List<TableStructDef> tables = new ArrayList<>(current.tables);
+        int count = 0;
         try {
-            return getValue(key);
-        } catch (Exception e) {
-            log.error("key={}获取数据异常", key, e);
-            throw new IllegalStateException(e);
+            for (TableStructDef table : fallback.load()) {
+                if (!current.byClassName.containsKey(table.getClassName().toLowerCase(Locale.ROOT))) {
+                    tables.add(table);
+                    count++;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Unable to load the missed entity tables by {}", fallback.getClass().getSimpleName(), e);
+        }
+        snapshot = new Snapshot(tables, true);
+        log.info("Load {} missed entity tables by {} in {} ms", count, fallback.getClass().getSimpleName(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return snapshot;
+    }
+
+    private static Snapshot load(TableResultLoader loader, boolean complete) {
+        long start = System.nanoTime();
+        List<TableStructDef> list = loader.load();
+        Snapshot snapshot = new Snapshot(list, complete);
+        log.info("Load {} entity tables by {} in {} ms", list.size(), loader.getClass().getSimpleName(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return snapshot;
+    }
+
+    /**
+     * the immutable index of tables,only the missed keys is appended
+     */
+    private static final class Snapshot {
+        private final List<TableStructDef> tables;
+        /**
+         * false if the tables missed by the generated loaders are not loaded yet
+         */
+        private final boolean complete;
+        private final Map<String, TableStructDef> byClassName = new HashMap<>();
+        private final Map<String, TableStructDef> byTableName = new HashMap<>();
+        private final Map<String, List<TableStructDef>> byColumn = new HashMap<>();
+        /**
+         * key is the class name,value is the map of lower case column name -> column name
+         */
+        private final Map<String, Map<String, String>> columns = new HashMap<>();
+        private final Set<String> missed = ConcurrentHashMap.newKeySet();
+
+        private Snapshot(List<TableStructDef> tables, boolean complete) {
+            this.tables = tables;
+            this.complete = complete;
+            for (TableStructDef table : tables) {
+                byClassName.putIfAbsent(table.getClassName().toLowerCase(Locale.ROOT), table);
+                byTableName.putIfAbsent(table.getTableName().toLowerCase(Locale.ROOT), table);
+                Map<String, String> tableColumns = new HashMap<>();
+                if (null != table.getFields()) {
+                    for (String column : table.getFields().values()) {
+                        String lowerColumn = column.toLowerCase(Locale.ROOT);
+                        tableColumns.putIfAbsent(lowerColumn, column);
+                        byColumn.computeIfAbsent(lowerColumn, k -> new ArrayList<>()).add(table);
+                    }
+                }
+                columns.putIfAbsent(table.getClassName(), tableColumns);
+            }
+        }
+
+        private TableStructDef lookup(String lowerKey) {
+            TableStructDef table = byClassName.get(lowerKey);
+            return null == table ? byTableName.get(lowerKey) : table;
         }
     }
-}
\ No newline at end of file
+}
@@ -3,27 +3,18 @@ package com.sondertara.joya.cache;
 import com.google.common.collect.Maps;
 import com.sondertara.common.cache.GuavaAbstractLoadingCache;
 import com.sondertara.common.exception.TaraException;
-import com.sondertara.common.util.StringUtils;
 import com.sondertara.joya.core.model.TableEntity;
 import com.sondertara.joya.ext.JoyaSpringContext;
 
-import javax.persistence.Column;
-import javax.persistence.Entity;
-import javax.persistence.Id;
-import javax.persistence.Table;
-import javax.persistence.Transient;
 import javax.sql.DataSource;
 import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ExecutionException;
 
 /**
  * @author skydu
@@ -31,6 +22,16 @@ import java.util.concurrent.ExecutionException;
 public class TableClassCache extends GuavaAbstractLoadingCache<Class<?>, Map<String, Field>> {
 
     private static volatile TableClassCache cache = null;
+    /**
+     * the metadata is stored with the entity class,it does not pin the classes of discarded class loaders
+     * as the metadata refers to its class,a weak-keyed map would never release the entry
+     */
+    private static final ClassValue<EntityMetadata> METADATA = new ClassValue<EntityMetadata>() {
+        @Override
+        protected EntityMetadata computeValue(Class<?> type) {
+            return EntityMetadata.of(type);
+        }
+    };
     private final DataSource dataSource;
 
     private TableClassCache(DataSource dataSource) {
@@ -40,7 +41,7 @@ public class TableClassCache extends GuavaAbstractLoadingCache<Class<?>, Map<Str
     }
 
 
-    public synchronized static TableClassCache getInstance() {
+    public static TableClassCache getInstance() {
         if (null == cache) {
             synchronized (TableClassCache.class) {
                 if (null == cache) {
@@ -80,81 +81,35 @@ public class TableClassCache extends GuavaAbstractLoadingCache<Class<?>, Map<Str
     }
 
 
+    /**
+     * 获取实体类的表结构,首次解析后缓存,无锁读取
+     *
+     * @param clazz 实体类
+     * @return 表结构
+     */
+    public static EntityMetadata getMetadata(Class<?> clazz) {
+        return METADATA.get(clazz);
+    }
+
     /**
      * 获取一个实体类对应数据库字段
+     * <p>
+     * relation和columnType是共享的只读map,data每次新建
      *
      * @param bean java pojo
      * @param <T>  the class type of bean
      * @return the table data
      */
-    public synchronized <T> TableEntity getTable(T bean, boolean readData) {
-        Map<String, Object> filedNames = new LinkedHashMap<>();
-        Map<String, String> relation = Maps.newHashMap();
-        Class<?> clazz = bean.getClass();
-        Table table = clazz.getAnnotation(Table.class);
-        String tableName = null;
-        if (null != table) {
-            tableName = table.name();
-        } else {
-            Entity entity = clazz.getAnnotation(Entity.class);
-            if (null != entity) {
-                tableName = entity.name();
-            }
-        }
-        if (null == tableName) {
-            throw new TaraException("No [@Table] or [@Entity] annotation found for class->" + clazz);
-        }
-
-        Map<String, Class<?>> columnType = new HashMap<>();
+    public <T> TableEntity getTable(T bean, boolean readData) {
+        EntityMetadata metadata = getMetadata(bean.getClass());
         TableEntity tableDTO = new TableEntity();
-        tableDTO.setTableName(tableName);
-        Optional<Map<String, Field>> optional = get(clazz);
-        return optional.map(fields -> {
-            for (Field field : fields.values()) {
-                if (Modifier.isStatic(field.getModifiers())) {
-                    continue;
-                }
-                if (field.isAnnotationPresent(Transient.class) || field.isAnnotationPresent(org.springframework.data.annotation.Transient.class)) {
-                    continue;
-                }
-                String name = field.getName();
-                name = StringUtils.toUnderlineCase(name);
-                Column column = field.getAnnotation(Column.class);
-                if (null != column) {
-                    name = column.name();
-                }
-                Id id = field.getAnnotation(Id.class);
-                if (null != id) {
-                    tableDTO.setPrimaryKey(name);
-                    tableDTO.setPrimaryKeyType(field.getType());
-                }
-                if (filedNames.containsKey(name)) {
-                    continue;
-                }
-                columnType.put(name, field.getType());
-                if (readData) {
-                    try {
-                        Object o;
-                        if (field.isAccessible()) {
-                            o = field.get(bean);
-                        } else {
-                            field.setAccessible(true);
-                            o = field.get(bean);
-                            field.setAccessible(false);
-                        }
-                        filedNames.put(name, o);
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
-                }
-                relation.put(name, field.getName());
-            }
-            tableDTO.setColumnType(columnType);
-            tableDTO.setData(filedNames);
-            tableDTO.setRelation(relation);
-            return tableDTO;
-        }).orElseThrow(() -> new TaraException("Get Class definition error"));
-
+        tableDTO.setTableName(metadata.getTableName());
+        tableDTO.setPrimaryKey(metadata.getPrimaryKey());
+        tableDTO.setPrimaryKeyType(metadata.getPrimaryKeyType());
+        tableDTO.setColumnType(metadata.getColumnTypeMap());
+        tableDTO.setRelation(metadata.getRelation());
+        tableDTO.setData(readData ? metadata.toMap(metadata.extract(bean, null)) : new LinkedHashMap<>());
+        return tableDTO;
     }
 
     /**
@@ -10,7 +10,10 @@ package com.sondertara.joya.core.constant;
 public class JoyaConst {
     /**
      * the local cache key
+     *
+     * @deprecated the table alias is bound to {@link com.sondertara.joya.cache.AliasContext} of the query builder
      */
+    @Deprecated
     public static final String JOYA_SQL = "JOYA_SQL";
     /**
      * column alias split
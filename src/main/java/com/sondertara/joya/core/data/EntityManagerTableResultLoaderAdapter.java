@@ -9,6 +9,7 @@ import com.sondertara.joya.ext.JoyaSpringContext;
 import javax.persistence.Column;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityNotFoundException;
+import javax.persistence.Id;
 import javax.persistence.Table;
 import javax.persistence.metamodel.EntityType;
 import javax.persistence.metamodel.Metamodel;
@@ -22,7 +23,7 @@ import java.util.Optional;
 
 /**
  * Get the tables with EntityManager
- * you can implement your own adapter,and customize it by use {@link LocalEntityCache#setTableResultAdapter(TableResultLoader)} (TableResultLoader)}
+ * you can implement your own adapter,and customize it by use {@link LocalEntityCache#setTableResultAdapter(TableResultLoader)}
  *
  * @author huangxiaohu
  */
@@ -38,6 +39,7 @@ public class EntityManagerTableResultLoaderAdapter implements TableResultLoader
             Table annotation = aClass.getAnnotation(Table.class);
             String tableName = Optional.of(annotation).map(Table::name).orElseThrow(() -> new EntityNotFoundException(StringFormatter.format("no entity found for class [{}]", aClass.getName())));
             Map<String, String> fieldNames = new LinkedHashMap<>();
+            String primaryKey = null;
             Field[] fields = aClass.getDeclaredFields();
             for (Field field : fields) {
                 if (Modifier.isStatic(field.getModifiers())) {
@@ -47,12 +49,16 @@ public class EntityManagerTableResultLoaderAdapter implements TableResultLoader
                 Column fieldAnnotation = field.getAnnotation(Column.class);
                 String columnName = Optional.ofNullable(fieldAnnotation).filter(f -> !StringUtils.isBlank(f.name())).map(f -> StringUtils.toLowerCase(f.name())).orElse(StringUtils.toUnderlineCase(field.getName()));
                 fieldNames.put(field.getName(), columnName);
+                if (field.isAnnotationPresent(Id.class)) {
+                    primaryKey = columnName;
+                }
                 field.setAccessible(false);
             }
             TableStructDef tableStructDef = new TableStructDef();
             tableStructDef.setClassName(aClass.getName());
             tableStructDef.setTableName(tableName);
             tableStructDef.setFields(fieldNames);
+            tableStructDef.setPrimaryKey(primaryKey);
             result.add(tableStructDef);
         }
         return result;
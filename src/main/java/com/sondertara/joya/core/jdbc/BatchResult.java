@@ -0,0 +1,85 @@
+package com.sondertara.joya.core.jdbc;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * the result of batch execution
+ *
+ * @author huangxiaohu
+ */
+@Data
+public class BatchResult implements Serializable {
+
+    /**
+     * the total rows affected,the rows of {@link java.sql.Statement#SUCCESS_NO_INFO} are not included
+     */
+    private long rowsAffected;
+    /**
+     * the total elapsed millis
+     */
+    private long elapsedMillis;
+    /**
+     * the statistic of every executeBatch call
+     */
+    private List<Chunk> chunks = new ArrayList<>();
+    /**
+     * the generated keys if required
+     */
+    private List<Object> generatedKeys = new ArrayList<>();
+
+    /**
+     * add the statistic of one chunk
+     *
+     * @param size          the rows in chunk
+     * @param rowsAffected  the rows affected
+     * @param elapsedMillis the elapsed millis
+     */
+    public void addChunk(int size, long rowsAffected, long elapsedMillis) {
+        Chunk chunk = new Chunk();
+        chunk.setIndex(this.chunks.size());
+        chunk.setSize(size);
+        chunk.setRowsAffected(rowsAffected);
+        chunk.setElapsedMillis(elapsedMillis);
+        this.chunks.add(chunk);
+        this.rowsAffected += rowsAffected;
+    }
+
+    /**
+     * merge other result into this one
+     *
+     * @param other other result
+     */
+    public void merge(BatchResult other) {
+        for (Chunk chunk : other.getChunks()) {
+            addChunk(chunk.getSize(), chunk.getRowsAffected(), chunk.getElapsedMillis());
+        }
+        this.generatedKeys.addAll(other.getGeneratedKeys());
+    }
+
+    /**
+     * the statistic of one executeBatch call
+     */
+    @Data
+    public static class Chunk implements Serializable {
+        /**
+         * the index of chunk start with zero
+         */
+        private int index;
+        /**
+         * the rows in chunk
+         */
+        private int size;
+        /**
+         * the rows affected
+         */
+        private long rowsAffected;
+        /**
+         * the elapsed millis
+         */
+        private long elapsedMillis;
+    }
+}
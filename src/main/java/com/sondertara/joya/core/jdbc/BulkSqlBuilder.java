@@ -0,0 +1,158 @@
+package com.sondertara.joya.core.jdbc;
+
+import com.sondertara.joya.enums.DbType;
+
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * 按数据库方言生成多行插入和upsert语句
+ * <ul>
+ *     <li>MYSQL: insert into ... values (...),(...) on duplicate key update</li>
+ *     <li>POSTGRESQL: insert into ... values (...),(...) on conflict (pk) do update</li>
+ *     <li>ORACLE: merge into ... using (select ... from dual union all ...)</li>
+ * </ul>
+ *
+ * @author huangxiaohu
+ */
+final class BulkSqlBuilder {
+
+    /**
+     * 单条语句的绑定参数上限,低于MySQL和PostgreSQL协议的65535限制
+     */
+    static final int MAX_BIND_PARAMETERS = 30000;
+
+    private final DbType dbType;
+
+    BulkSqlBuilder(DbType dbType) {
+        this.dbType = dbType;
+    }
+
+    /**
+     * 是否支持原生的upsert语句
+     *
+     * @return true if support
+     */
+    boolean supportsUpsert() {
+        return DbType.MYSQL.equals(dbType) || DbType.POSTGRESQL.equals(dbType) || DbType.ORACLE.equals(dbType);
+    }
+
+    /**
+     * 是否支持insert into ... values (...),(...)
+     *
+     * @return true if support
+     */
+    boolean supportsMultiRowInsert() {
+        return DbType.MYSQL.equals(dbType) || DbType.POSTGRESQL.equals(dbType) || DbType.CLICKHOUSE.equals(dbType);
+    }
+
+    /**
+     * 单条语句包含的行数,受绑定参数上限约束
+     *
+     * @param columnCount 列数
+     * @param batchSize   期望的行数
+     * @return 行数
+     */
+    int rowsPerStatement(int columnCount, int batchSize) {
+        return Math.max(1, Math.min(batchSize, MAX_BIND_PARAMETERS / Math.max(1, columnCount)));
+    }
+
+    /**
+     * 多行插入语句
+     *
+     * @param tableName 表名
+     * @param columns   列名
+     * @param rows      行数
+     * @return sql
+     */
+    String insert(String tableName, List<String> columns, int rows) {
+        StringBuilder sb = new StringBuilder("insert into ").append(tableName).append("(").append(String.join(",", columns)).append(") values ");
+        appendValues(sb, columns.size(), rows);
+        return sb.toString();
+    }
+
+    /**
+     * 多行upsert语句,主键已存在时更新其余列
+     *
+     * @param tableName  表名
+     * @param primaryKey 主键列名
+     * @param columns    列名,包括主键
+     * @param rows       行数
+     * @return sql
+     */
+    String upsert(String tableName, String primaryKey, List<String> columns, int rows) {
+        if (DbType.ORACLE.equals(dbType)) {
+            return merge(tableName, primaryKey, columns, rows);
+        }
+        StringBuilder sb = new StringBuilder(insert(tableName, columns, rows));
+        StringJoiner updates = new StringJoiner(", ");
+        if (DbType.MYSQL.equals(dbType)) {
+            for (String column : columns) {
+                if (!column.equals(primaryKey)) {
+                    updates.add(column + " = values(" + column + ")");
+                }
+            }
+            // nothing to update,keep the row as it is
+            if (updates.length() == 0) {
+                updates.add(primaryKey + " = " + primaryKey);
+            }
+            return sb.append(" on duplicate key update ").append(updates).toString();
+        }
+        if (DbType.POSTGRESQL.equals(dbType)) {
+            for (String column : columns) {
+                if (!column.equals(primaryKey)) {
+                    updates.add(column + " = excluded." + column);
+                }
+            }
+            sb.append(" on conflict (").append(primaryKey).append(")");
+            if (updates.length() == 0) {
+                return sb.append(" do nothing").toString();
+            }
+            return sb.append(" do update set ").append(updates).toString();
+        }
+        throw new DbException("The upsert statement is not supported for database type " + dbType);
+    }
+
+    private String merge(String tableName, String primaryKey, List<String> columns, int rows) {
+        StringBuilder sb = new StringBuilder("merge into ").append(tableName).append(" t using (");
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sb.append(" union all ");
+            }
+            StringJoiner select = new StringJoiner(", ", "select ", " from dual");
+            for (String column : columns) {
+                // the alias is only required by the first select
+                select.add(i == 0 ? "? " + column : "?");
+            }
+            sb.append(select);
+        }
+        sb.append(") s on (t.").append(primaryKey).append(" = s.").append(primaryKey).append(")");
+        StringJoiner updates = new StringJoiner(", ");
+        StringJoiner values = new StringJoiner(", ");
+        for (String column : columns) {
+            if (!column.equals(primaryKey)) {
+                updates.add("t." + column + " = s." + column);
+            }
+            values.add("s." + column);
+        }
+        if (updates.length() > 0) {
+            sb.append(" when matched then update set ").append(updates);
+        }
+        sb.append(" when not matched then insert (").append(String.join(", ", columns)).append(") values (").append(values).append(")");
+        return sb.toString();
+    }
+
+    private void appendValues(StringBuilder sb, int columnCount, int rows) {
+        StringJoiner row = new StringJoiner(",", "(", ")");
+        for (int i = 0; i < columnCount; i++) {
+            row.add("?");
+        }
+        String placeholders = row.toString();
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sb.append(",");
+            }
+            sb.append(placeholders);
+        }
+    }
+}
@@ -0,0 +1,791 @@
+package com.sondertara.joya.core.jdbc;
+
+import oracle.sql.TIMESTAMP;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Clob;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * 按列存储的查询结果
+ * <p>
+ * 适用于大数据量的报表查询,每列使用一个数组保存,不再为每行创建Map.
+ * 列的存储方式优先按驱动返回的Java类型(ResultSetMetaData#getColumnClassName)选择,没有时按SQL类型:
+ * <ul>
+ *     <li>Long/BIGINT: long[]</li>
+ *     <li>Integer/Short/Byte/INTEGER/SMALLINT/TINYINT: int[]</li>
+ *     <li>Double/Float/DOUBLE/FLOAT/REAL: double[]</li>
+ *     <li>Boolean/BOOLEAN/BIT: 位图</li>
+ *     <li>String/CHAR/VARCHAR: 字典编码,不同值超过{@link #MAX_DICTIONARY_SIZE}后改为String[]</li>
+ *     <li>其他类型(包括NUMERIC/DECIMAL、BigInteger、byte[]): Object[]</li>
+ * </ul>
+ * 值不能无损保存到基本类型数组时(如MySQL的INT UNSIGNED超出int范围),该列改为Object[].
+ * null值保存在每列的位图中.行和列的下标都从0开始
+ *
+ * @author huangxiaohu
+ */
+public final class ColumnarResult implements Iterable<ColumnarResult.RowView> {
+
+    /**
+     * the max distinct values of one dictionary encoded column
+     */
+    static final int MAX_DICTIONARY_SIZE = 1 << 16;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final String[] labels;
+    private final Column[] columns;
+    private final int size;
+    private final Map<String, Integer> labelIndexes;
+
+    private ColumnarResult(String[] labels, Column[] columns, int size) {
+        this.labels = labels;
+        this.columns = columns;
+        this.size = size;
+        this.labelIndexes = new HashMap<>(labels.length * 2);
+        for (int i = labels.length - 1; i >= 0; i--) {
+            labelIndexes.put(labels[i].toLowerCase(), i);
+        }
+    }
+
+    /**
+     * 创建构建器
+     *
+     * @param labels   列标签
+     * @param sqlTypes 列的SQL类型 {@link java.sql.Types}
+     * @return builder
+     */
+    public static Builder builder(String[] labels, int[] sqlTypes) {
+        return new Builder(labels, sqlTypes, null);
+    }
+
+    /**
+     * 创建构建器
+     *
+     * @param labels     列标签
+     * @param sqlTypes   列的SQL类型 {@link java.sql.Types}
+     * @param classNames 列值的Java类型,可以为null
+     * @return builder
+     */
+    public static Builder builder(String[] labels, int[] sqlTypes, String[] classNames) {
+        return new Builder(labels, sqlTypes, classNames);
+    }
+
+    /**
+     * @return 行数
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getColumnCount() {
+        return labels.length;
+    }
+
+    public String getColumnLabel(int column) {
+        return labels[column];
+    }
+
+    /**
+     * 获取列的下标,忽略大小写
+     *
+     * @param label 列标签
+     * @return 列下标,不存在返回-1
+     */
+    public int indexOf(String label) {
+        Integer index = labelIndexes.get(label.toLowerCase());
+        return null == index ? -1 : index;
+    }
+
+    public boolean isNull(int row, int column) {
+        checkRow(row);
+        return columns[column].isNull(row);
+    }
+
+    public Object getObject(int row, int column) {
+        checkRow(row);
+        return columns[column].isNull(row) ? null : columns[column].getObject(row);
+    }
+
+    /**
+     * @return 值为null时返回0
+     */
+    public long getLong(int row, int column) {
+        checkRow(row);
+        return columns[column].isNull(row) ? 0L : columns[column].getLong(row);
+    }
+
+    /**
+     * @return 值为null时返回0
+     */
+    public int getInt(int row, int column) {
+        return (int) getLong(row, column);
+    }
+
+    /**
+     * @return 值为null时返回0
+     */
+    public double getDouble(int row, int column) {
+        checkRow(row);
+        return columns[column].isNull(row) ? 0D : columns[column].getDouble(row);
+    }
+
+    /**
+     * @return 值为null时返回false
+     */
+    public boolean getBoolean(int row, int column) {
+        checkRow(row);
+        return !columns[column].isNull(row) && columns[column].getBoolean(row);
+    }
+
+    public String getString(int row, int column) {
+        checkRow(row);
+        return columns[column].isNull(row) ? null : columns[column].getString(row);
+    }
+
+    /**
+     * 遍历所有行
+     * <p>
+     * 迭代器每次返回同一个{@link RowView}实例,只移动行下标,不能在迭代之外保存
+     *
+     * @return iterator
+     */
+    @Override
+    public Iterator<RowView> iterator() {
+        RowView view = new RowView();
+        return new Iterator<RowView>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public RowView next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                view.row = next++;
+                return view;
+            }
+        };
+    }
+
+    /**
+     * 获取某一行的视图
+     *
+     * @param row 行下标
+     * @return view
+     */
+    public RowView row(int row) {
+        checkRow(row);
+        RowView view = new RowView();
+        view.row = row;
+        return view;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row: " + row + ", Size: " + size);
+        }
+    }
+
+    /**
+     * 一行数据的视图,不复制数据
+     */
+    public final class RowView {
+        private int row;
+
+        private RowView() {
+        }
+
+        public int getRowIndex() {
+            return row;
+        }
+
+        public boolean isNull(int column) {
+            return ColumnarResult.this.isNull(row, column);
+        }
+
+        public Object getObject(int column) {
+            return ColumnarResult.this.getObject(row, column);
+        }
+
+        public Object getObject(String label) {
+            return getObject(column(label));
+        }
+
+        public long getLong(int column) {
+            return ColumnarResult.this.getLong(row, column);
+        }
+
+        public long getLong(String label) {
+            return getLong(column(label));
+        }
+
+        public int getInt(int column) {
+            return ColumnarResult.this.getInt(row, column);
+        }
+
+        public int getInt(String label) {
+            return getInt(column(label));
+        }
+
+        public double getDouble(int column) {
+            return ColumnarResult.this.getDouble(row, column);
+        }
+
+        public double getDouble(String label) {
+            return getDouble(column(label));
+        }
+
+        public boolean getBoolean(int column) {
+            return ColumnarResult.this.getBoolean(row, column);
+        }
+
+        public boolean getBoolean(String label) {
+            return getBoolean(column(label));
+        }
+
+        public String getString(int column) {
+            return ColumnarResult.this.getString(row, column);
+        }
+
+        public String getString(String label) {
+            return getString(column(label));
+        }
+
+        private int column(String label) {
+            int column = indexOf(label);
+            if (column < 0) {
+                throw new DbException("No column found by label " + label);
+            }
+            return column;
+        }
+    }
+
+    /**
+     * 按行追加数据,最后调用{@link #build()}
+     */
+    public static final class Builder {
+        private final String[] labels;
+        private final Column[] columns;
+        private int size;
+        private boolean built;
+
+        private Builder(String[] labels, int[] sqlTypes, String[] classNames) {
+            this.labels = labels.clone();
+            this.columns = new Column[labels.length];
+            for (int i = 0; i < labels.length; i++) {
+                columns[i] = Column.of(sqlTypes[i], null == classNames ? null : classNames[i]);
+            }
+        }
+
+        /**
+         * 追加一行
+         *
+         * @param values 一行的值,顺序与列标签一致
+         * @return this
+         */
+        public Builder add(Object[] values) {
+            checkState();
+            for (int i = 0; i < columns.length; i++) {
+                add(i, values[i]);
+            }
+            size++;
+            return this;
+        }
+
+        /**
+         * 追加结果集的当前行
+         *
+         * @param row 当前行
+         * @return this
+         */
+        public Builder add(Row row) {
+            checkState();
+            for (int i = 0; i < columns.length; i++) {
+                add(i, row.getObject(i + 1));
+            }
+            size++;
+            return this;
+        }
+
+        private void add(int column, Object value) {
+            if (!columns[column].add(size, value)) {
+                // the value does not fit the primitive array,store the column as objects
+                columns[column] = columns[column].toObjectColumn(size);
+                columns[column].add(size, value);
+            }
+        }
+
+        public ColumnarResult build() {
+            checkState();
+            built = true;
+            for (Column column : columns) {
+                column.trim(size);
+            }
+            return new ColumnarResult(labels, columns, size);
+        }
+
+        private void checkState() {
+            if (built) {
+                throw new IllegalStateException("The columnar result has been built");
+            }
+        }
+    }
+
+    /**
+     * 一列数据
+     */
+    private abstract static class Column {
+        private BitSet nulls;
+
+        static Column of(int sqlType, String className) {
+            if (null != className) {
+                switch (className) {
+                    case "java.lang.Long":
+                        return new LongColumn();
+                    case "java.lang.Integer":
+                    case "java.lang.Short":
+                    case "java.lang.Byte":
+                        return new IntColumn();
+                    case "java.lang.Double":
+                    case "java.lang.Float":
+                        return new DoubleColumn();
+                    case "java.lang.Boolean":
+                        return new BooleanColumn();
+                    case "java.lang.String":
+                        return new StringColumn();
+                    default:
+                        // e.g. BigInteger of BIGINT UNSIGNED,byte[] of BIT(n)
+                        return new ObjectColumn();
+                }
+            }
+            switch (sqlType) {
+                case Types.BIGINT:
+                    return new LongColumn();
+                case Types.INTEGER:
+                case Types.SMALLINT:
+                case Types.TINYINT:
+                    return new IntColumn();
+                case Types.DOUBLE:
+                case Types.FLOAT:
+                case Types.REAL:
+                    return new DoubleColumn();
+                case Types.BOOLEAN:
+                case Types.BIT:
+                    return new BooleanColumn();
+                case Types.CHAR:
+                case Types.VARCHAR:
+                case Types.NCHAR:
+                case Types.NVARCHAR:
+                    return new StringColumn();
+                default:
+                    return new ObjectColumn();
+            }
+        }
+
+        /**
+         * @return false if the value does not fit this column
+         */
+        final boolean add(int row, Object value) {
+            if (null == value) {
+                if (null == nulls) {
+                    nulls = new BitSet();
+                }
+                nulls.set(row);
+                ensureCapacity(row + 1);
+                return true;
+            }
+            return set(row, value);
+        }
+
+        /**
+         * copy the values to an object column
+         *
+         * @param rows the count of rows added
+         * @return the object column
+         */
+        final Column toObjectColumn(int rows) {
+            ObjectColumn column = new ObjectColumn();
+            ((Column) column).nulls = nulls;
+            column.ensureCapacity(rows);
+            for (int i = 0; i < rows; i++) {
+                if (!isNull(i)) {
+                    column.values[i] = getObject(i);
+                }
+            }
+            return column;
+        }
+
+        final boolean isNull(int row) {
+            return null != nulls && nulls.get(row);
+        }
+
+        static int grow(int length, int minCapacity) {
+            return Math.max(minCapacity, Math.max(INITIAL_CAPACITY, length + (length >> 1)));
+        }
+
+        /**
+         * ensure the capacity of the values
+         *
+         * @param capacity the min capacity
+         */
+        abstract void ensureCapacity(int capacity);
+
+        /**
+         * set the value which is not null
+         *
+         * @param row   the row index
+         * @param value the value
+         * @return false if the value can not be stored without loss
+         */
+        abstract boolean set(int row, Object value);
+
+        /**
+         * trim the values to the size
+         *
+         * @param size rows
+         */
+        abstract void trim(int size);
+
+        abstract Object getObject(int row);
+
+        long getLong(int row) {
+            Object value = getObject(row);
+            return value instanceof Number ? ((Number) value).longValue() : new BigDecimal(value.toString()).longValue();
+        }
+
+        double getDouble(int row) {
+            Object value = getObject(row);
+            return value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(value.toString());
+        }
+
+        boolean getBoolean(int row) {
+            Object value = getObject(row);
+            if (value instanceof Boolean) {
+                return (Boolean) value;
+            }
+            if (value instanceof Number) {
+                return ((Number) value).intValue() != 0;
+            }
+            return Boolean.parseBoolean(value.toString());
+        }
+
+        String getString(int row) {
+            return String.valueOf(getObject(row));
+        }
+
+        /**
+         * @return the exact long value,null if the value is not an integer in the range of long
+         */
+        static Long exactLong(Object value) {
+            if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                return ((Number) value).longValue();
+            }
+            if (value instanceof BigInteger) {
+                return ((BigInteger) value).bitLength() < Long.SIZE ? ((BigInteger) value).longValue() : null;
+            }
+            if (value instanceof BigDecimal) {
+                try {
+                    return ((BigDecimal) value).longValueExact();
+                } catch (ArithmeticException e) {
+                    return null;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class LongColumn extends Column {
+        private long[] values = new long[0];
+
+        @Override
+        void ensureCapacity(int capacity) {
+            if (values.length < capacity) {
+                values = Arrays.copyOf(values, grow(values.length, capacity));
+            }
+        }
+
+        @Override
+        boolean set(int row, Object value) {
+            Long l = exactLong(value);
+            if (null == l) {
+                return false;
+            }
+            ensureCapacity(row + 1);
+            values[row] = l;
+            return true;
+        }
+
+        @Override
+        void trim(int size) {
+            values = Arrays.copyOf(values, size);
+        }
+
+        @Override
+        Object getObject(int row) {
+            return values[row];
+        }
+
+        @Override
+        long getLong(int row) {
+            return values[row];
+        }
+
+        @Override
+        double getDouble(int row) {
+            return values[row];
+        }
+    }
+
+    private static final class IntColumn extends Column {
+        private int[] values = new int[0];
+
+        @Override
+        void ensureCapacity(int capacity) {
+            if (values.length < capacity) {
+                values = Arrays.copyOf(values, grow(values.length, capacity));
+            }
+        }
+
+        @Override
+        boolean set(int row, Object value) {
+            Long l = exactLong(value);
+            if (null == l || l != l.intValue()) {
+                return false;
+            }
+            ensureCapacity(row + 1);
+            values[row] = l.intValue();
+            return true;
+        }
+
+        @Override
+        void trim(int size) {
+            values = Arrays.copyOf(values, size);
+        }
+
+        @Override
+        Object getObject(int row) {
+            return values[row];
+        }
+
+        @Override
+        long getLong(int row) {
+            return values[row];
+        }
+
+        @Override
+        double getDouble(int row) {
+            return values[row];
+        }
+    }
+
+    private static final class DoubleColumn extends Column {
+        private double[] values = new double[0];
+
+        @Override
+        void ensureCapacity(int capacity) {
+            if (values.length < capacity) {
+                values = Arrays.copyOf(values, grow(values.length, capacity));
+            }
+        }
+
+        @Override
+        boolean set(int row, Object value) {
+            if (!(value instanceof Double || value instanceof Float)) {
+                return false;
+            }
+            ensureCapacity(row + 1);
+            values[row] = ((Number) value).doubleValue();
+            return true;
+        }
+
+        @Override
+        void trim(int size) {
+            values = Arrays.copyOf(values, size);
+        }
+
+        @Override
+        Object getObject(int row) {
+            return values[row];
+        }
+
+        @Override
+        long getLong(int row) {
+            return (long) values[row];
+        }
+
+        @Override
+        double getDouble(int row) {
+            return values[row];
+        }
+    }
+
+    private static final class BooleanColumn extends Column {
+        private final BitSet values = new BitSet();
+
+        @Override
+        void ensureCapacity(int capacity) {
+        }
+
+        @Override
+        boolean set(int row, Object value) {
+            if (!(value instanceof Boolean)) {
+                return false;
+            }
+            values.set(row, (Boolean) value);
+            return true;
+        }
+
+        @Override
+        void trim(int size) {
+        }
+
+        @Override
+        Object getObject(int row) {
+            return values.get(row);
+        }
+
+        @Override
+        long getLong(int row) {
+            return values.get(row) ? 1L : 0L;
+        }
+
+        @Override
+        boolean getBoolean(int row) {
+            return values.get(row);
+        }
+    }
+
+    /**
+     * 字典编码的字符串列,不同值太多时改为直接保存
+     */
+    private static final class StringColumn extends Column {
+        private int[] codes = new int[0];
+        private List<String> dictionary = new ArrayList<>();
+        private Map<String, Integer> dictionaryIndexes = new HashMap<>();
+        private String[] values;
+
+        @Override
+        void ensureCapacity(int capacity) {
+            if (null != values) {
+                if (values.length < capacity) {
+                    values = Arrays.copyOf(values, grow(values.length, capacity));
+                }
+            } else if (codes.length < capacity) {
+                codes = Arrays.copyOf(codes, grow(codes.length, capacity));
+            }
+        }
+
+        @Override
+        boolean set(int row, Object value) {
+            if (!(value instanceof String)) {
+                return false;
+            }
+            String str = (String) value;
+            ensureCapacity(row + 1);
+            if (null != values) {
+                values[row] = str;
+                return true;
+            }
+            Integer code = dictionaryIndexes.get(str);
+            if (null == code) {
+                if (dictionary.size() >= MAX_DICTIONARY_SIZE) {
+                    decode(row);
+                    values[row] = str;
+                    return true;
+                }
+                code = dictionary.size();
+                dictionary.add(str);
+                dictionaryIndexes.put(str, code);
+            }
+            codes[row] = code;
+            return true;
+        }
+
+        /**
+         * too many distinct values,store the strings directly
+         */
+        private void decode(int rows) {
+            String[] strings = new String[codes.length];
+            for (int i = 0; i < rows; i++) {
+                if (!isNull(i)) {
+                    strings[i] = dictionary.get(codes[i]);
+                }
+            }
+            values = strings;
+            codes = null;
+            dictionary = null;
+            dictionaryIndexes = null;
+        }
+
+        @Override
+        void trim(int size) {
+            if (null != values) {
+                values = Arrays.copyOf(values, size);
+            } else {
+                codes = Arrays.copyOf(codes, size);
+                dictionaryIndexes = null;
+            }
+        }
+
+        @Override
+        Object getObject(int row) {
+            return getString(row);
+        }
+
+        @Override
+        String getString(int row) {
+            return null != values ? values[row] : dictionary.get(codes[row]);
+        }
+    }
+
+    private static final class ObjectColumn extends Column {
+        private Object[] values = new Object[0];
+
+        @Override
+        void ensureCapacity(int capacity) {
+            if (values.length < capacity) {
+                values = Arrays.copyOf(values, grow(values.length, capacity));
+            }
+        }
+
+        @Override
+        boolean set(int row, Object value) {
+            ensureCapacity(row + 1);
+            if (SqlDataHelper.isClob(value.getClass())) {
+                value = SqlDataHelper.extractString((Clob) value);
+            } else if (value instanceof TIMESTAMP) {
+                value = SqlDataHelper.extractDate(value);
+            }
+            values[row] = value;
+            return true;
+        }
+
+        @Override
+        void trim(int size) {
+            values = Arrays.copyOf(values, size);
+        }
+
+        @Override
+        Object getObject(int row) {
+            return values[row];
+        }
+    }
+}
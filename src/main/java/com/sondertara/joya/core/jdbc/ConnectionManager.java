@@ -1,16 +1,22 @@
 package com.sondertara.joya.core.jdbc;
 
-import com.sondertara.common.util.StringUtils;
+import com.google.common.collect.MapMaker;
 import com.sondertara.joya.enums.DbType;
+import oracle.jdbc.OracleConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.regex.Pattern;
 
 import static com.sondertara.joya.core.constant.JoyaConst.Sql.ORACLE_GET_CURRENT_SCHEMA;
 import static com.sondertara.joya.core.constant.JoyaConst.Sql.ORACLE_SET_CURRENT_SCHEMA;
@@ -24,19 +30,49 @@ import static com.sondertara.joya.core.constant.JoyaConst.Sql.ORACLE_SET_CURRENT
 public final class ConnectionManager {
 
     private static final Logger LOG = LoggerFactory.getLogger(JoyaJdbc.class);
+    /**
+     * 修改Oracle会话current_schema的语句
+     */
+    private static final Pattern SCHEMA_CHANGE = Pattern.compile("alter\\s+session\\s+set\\s+current_schema", Pattern.CASE_INSENSITIVE);
     private final DataSource dataSource;
+    /**
+     * 事务连接上默认缓存的PreparedStatement数量
+     */
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
     private final ThreadLocal<Connection> connHolder = new ThreadLocal<>();
+    /**
+     * 事务连接上的PreparedStatement缓存,随事务结束而清空
+     */
+    private final ThreadLocal<StatementCache> stmtCacheHolder = new ThreadLocal<>();
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+
+    private volatile int statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+    /**
+     * 获取连接的总耗时,包括等待连接池和切换catalog
+     */
+    private final LatencyHistogram acquireLatency = new LatencyHistogram();
+    /**
+     * 等待连接池返回连接的耗时
+     */
+    private final LatencyHistogram poolWaitTime = new LatencyHistogram();
+    /**
+     * 已经切换过current_schema的Oracle物理连接({@link OracleConnection}),连接池回收后自动移除
+     */
+    private final Set<Connection> initializedConnections = Collections.newSetFromMap(new MapMaker().weakKeys().makeMap());
 
     private volatile String defaultCatalog;
 
     private volatile DbType dbType;
 
+    private volatile int databaseMajorVersion;
+
     public ConnectionManager(DataSource dataSource) {
         this.dataSource = dataSource;
         try (Connection connection = dataSource.getConnection()) {
-            String productName = connection.getMetaData().getDatabaseProductName();
-            if (StringUtils.containsAnyIgnoreCase(productName, DbType.ORACLE.getType())) {
-                dbType = DbType.ORACLE;
+            dbType = DbType.fromProductName(connection.getMetaData().getDatabaseProductName());
+            databaseMajorVersion = connection.getMetaData().getDatabaseMajorVersion();
+            if (DbType.ORACLE.equals(dbType)) {
                 ResultSet resultSet = connection.createStatement().executeQuery(ORACLE_GET_CURRENT_SCHEMA);
                 if (resultSet.next()) {
                     this.defaultCatalog = resultSet.getString(1);
@@ -53,18 +89,18 @@ public final class ConnectionManager {
         consumer.accept(this.dataSource);
     }
 
-    public synchronized Connection getConnection() {
+    /**
+     * 获取当前线程绑定的连接,不存在则从数据源获取
+     * <p>
+     * 连接只保存在当前线程中,因此不需要加锁
+     *
+     * @return 数据库连接
+     */
+    public Connection getConnection() {
         try {
             Connection conn = connHolder.get();
             if (conn == null || conn.isClosed()) {
-                conn = dataSource.getConnection();
-                if (null != defaultCatalog) {
-                    if (DbType.ORACLE.equals(dbType)) {
-                        conn.createStatement().execute(ORACLE_SET_CURRENT_SCHEMA.replace("?", defaultCatalog));
-                    } else {
-                        conn.setCatalog(defaultCatalog);
-                    }
-                }
+                conn = acquireConnection();
                 connHolder.set(conn);
             }
             return conn;
@@ -73,10 +109,53 @@ public final class ConnectionManager {
         }
     }
 
+    /**
+     * 获取一个不绑定到当前线程的连接,用于需要长时间持有游标的场景(如流式查询)
+     * <p>
+     * 如果当前线程在事务中,则返回事务连接,否则从数据源获取一个新连接,
+     * 使用完毕后必须调用{@link #releaseDetachedConnection(Connection)}释放
+     *
+     * @return 数据库连接
+     */
+    public Connection getDetachedConnection() {
+        if (inTransaction()) {
+            return connHolder.get();
+        }
+        try {
+            return acquireConnection();
+        } catch (SQLException e) {
+            throw new DbException("An error occurred while creating a database connection.", e);
+        }
+    }
+
+    /**
+     * 释放{@link #getDetachedConnection()}获取的连接,事务连接由事务负责关闭
+     *
+     * @param conn 数据库连接
+     */
+    public void releaseDetachedConnection(Connection conn) {
+        if (conn == null || conn == connHolder.get()) {
+            return;
+        }
+        try {
+            conn.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    public DbType getDbType() {
+        return dbType;
+    }
+
+    public int getDatabaseMajorVersion() {
+        return databaseMajorVersion;
+    }
+
     public void close(Connection conn) {
         if (conn != null) {
             try {
                 if (conn.getAutoCommit()) {
+                    clearStatementCache();
                     conn.close();
                     connHolder.remove();
                 }
@@ -92,15 +171,11 @@ public final class ConnectionManager {
             } catch (SQLException ignored) {
             }
         }
-        if (stmt != null) {
-            try {
-                stmt.close();
-            } catch (SQLException ignored) {
-            }
-        }
+        closeStatement(stmt);
         if (conn != null) {
             try {
                 if (conn.getAutoCommit()) {
+                    clearStatementCache();
                     conn.close();
                     connHolder.remove();
                 }
@@ -113,17 +188,11 @@ public final class ConnectionManager {
         try {
             Connection conn = connHolder.get();
             if (conn != null) {
+                clearStatementCache();
                 conn.close();
                 connHolder.remove();
             }
-            conn = dataSource.getConnection();
-            if (null != defaultCatalog) {
-                if (DbType.ORACLE.equals(dbType)) {
-                    conn.createStatement().execute(ORACLE_SET_CURRENT_SCHEMA.replace("?", defaultCatalog));
-                } else {
-                    conn.setCatalog(defaultCatalog);
-                }
-            }
+            conn = acquireConnection();
             conn.setAutoCommit(false);
             connHolder.set(conn);
         } catch (SQLException e) {
@@ -136,6 +205,7 @@ public final class ConnectionManager {
         if (conn != null) {
             try {
                 conn.commit();
+                clearStatementCache();
                 conn.close();
                 connHolder.remove();
             } catch (SQLException e) {
@@ -149,6 +219,7 @@ public final class ConnectionManager {
         if (conn != null) {
             try {
                 conn.rollback();
+                clearStatementCache();
                 conn.close();
                 connHolder.remove();
             } catch (SQLException e) {
@@ -157,6 +228,123 @@ public final class ConnectionManager {
         }
     }
 
+    /**
+     * 创建PreparedStatement,在事务连接上则使用缓存
+     *
+     * @param conn          数据库连接
+     * @param sql           sql语句
+     * @param generatedKeys 是否返回自增主键
+     * @return 语句,使用完毕后调用{@link #closeStatement(Statement)}释放
+     * @throws SQLException e
+     */
+    public PreparedStatement prepareStatement(Connection conn, String sql, boolean generatedKeys) throws SQLException {
+        checkSchemaChange(conn, sql);
+        StatementCache.Key key = new StatementCache.Key(sql, generatedKeys);
+        return prepareStatement(conn, key, () -> generatedKeys ? conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS) : conn.prepareStatement(sql));
+    }
+
+    /**
+     * 创建查询的PreparedStatement,在事务连接上则使用缓存
+     *
+     * @param conn                 数据库连接
+     * @param sql                  sql语句
+     * @param resultSetType        结果集类型
+     * @param resultSetConcurrency 结果集并发模式
+     * @return 语句,使用完毕后调用{@link #closeStatement(Statement)}释放
+     * @throws SQLException e
+     */
+    public PreparedStatement prepareStatement(Connection conn, String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        checkSchemaChange(conn, sql);
+        StatementCache.Key key = new StatementCache.Key(sql, false, resultSetType, resultSetConcurrency);
+        return prepareStatement(conn, key, () -> conn.prepareStatement(sql, resultSetType, resultSetConcurrency));
+    }
+
+    private PreparedStatement prepareStatement(Connection conn, StatementCache.Key key, StatementCreator creator) throws SQLException {
+        StatementCache cache = statementCache(conn);
+        if (null == cache) {
+            return creator.create();
+        }
+        PreparedStatement stmt = cache.get(key);
+        if (null != stmt) {
+            if (cache.acquire(stmt)) {
+                statementCacheHits.incrementAndGet();
+                return stmt;
+            }
+            // the same sql is executed in a nested call,use a temporary statement
+            return creator.create();
+        }
+        statementCacheMisses.incrementAndGet();
+        stmt = creator.create();
+        cache.put(key, stmt);
+        cache.acquire(stmt);
+        return stmt;
+    }
+
+    /**
+     * 释放语句,缓存的语句只清空参数,其余语句直接关闭
+     *
+     * @param stmt 语句
+     */
+    public void closeStatement(Statement stmt) {
+        if (stmt == null) {
+            return;
+        }
+        StatementCache cache = stmtCacheHolder.get();
+        try {
+            if (null != cache && cache.contains(stmt)) {
+                cache.release(stmt);
+                ((PreparedStatement) stmt).clearParameters();
+                stmt.clearBatch();
+            } else {
+                stmt.close();
+            }
+        } catch (SQLException ignored) {
+        }
+    }
+
+    /**
+     * 获取当前事务连接的语句缓存,不在事务中或者不是事务连接则返回null
+     */
+    private StatementCache statementCache(Connection conn) throws SQLException {
+        if (statementCacheSize <= 0 || conn != connHolder.get() || conn.getAutoCommit()) {
+            return null;
+        }
+        StatementCache cache = stmtCacheHolder.get();
+        if (null == cache || cache.getConnection() != conn) {
+            if (null != cache) {
+                cache.clear();
+            }
+            cache = new StatementCache(conn, statementCacheSize);
+            stmtCacheHolder.set(cache);
+        }
+        return cache;
+    }
+
+    private void clearStatementCache() {
+        StatementCache cache = stmtCacheHolder.get();
+        if (null != cache) {
+            cache.clear();
+            stmtCacheHolder.remove();
+        }
+    }
+
+    /**
+     * 设置事务连接上缓存的语句数量,0表示不缓存
+     *
+     * @param statementCacheSize 缓存数量
+     */
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheHits.get();
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.get();
+    }
+
     public boolean inTransaction() {
         Connection conn = connHolder.get();
         try {
@@ -165,4 +353,115 @@ public final class ConnectionManager {
             throw new DbException("An error occurred while getting auto commit.", e);
         }
     }
+
+    /**
+     * 从数据源获取连接并切换到默认的catalog,记录等待连接池和获取连接的耗时
+     *
+     * @return 数据库连接
+     * @throws SQLException e
+     */
+    private Connection acquireConnection() throws SQLException {
+        long start = System.nanoTime();
+        Connection conn = dataSource.getConnection();
+        poolWaitTime.record(System.nanoTime() - start);
+        try {
+            initCatalog(conn);
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        acquireLatency.record(System.nanoTime() - start);
+        return conn;
+    }
+
+    /**
+     * 切换到默认的catalog(Oracle为current_schema)
+     * <p>
+     * 连接池中的连接已经是默认catalog时跳过.Oracle的物理连接只切换一次,
+     * 无法解包到{@link OracleConnection}的连接每次都切换
+     *
+     * @param conn 数据库连接
+     * @throws SQLException e
+     */
+    private void initCatalog(Connection conn) throws SQLException {
+        if (null == defaultCatalog) {
+            return;
+        }
+        if (DbType.ORACLE.equals(dbType)) {
+            Connection physical = physicalConnection(conn);
+            if (null != physical && initializedConnections.contains(physical)) {
+                return;
+            }
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(ORACLE_SET_CURRENT_SCHEMA.replace("?", defaultCatalog));
+            }
+            if (null != physical) {
+                initializedConnections.add(physical);
+            }
+        } else if (!defaultCatalog.equals(conn.getCatalog())) {
+            conn.setCatalog(defaultCatalog);
+        }
+    }
+
+    /**
+     * 连接池代理下的Oracle物理连接
+     *
+     * @param conn 数据库连接
+     * @return 物理连接,无法解包时返回null
+     * @throws SQLException e
+     */
+    private static Connection physicalConnection(Connection conn) throws SQLException {
+        return conn.isWrapperFor(OracleConnection.class) ? conn.unwrap(OracleConnection.class) : null;
+    }
+
+    /**
+     * 语句修改了会话的current_schema时,下次获取该物理连接需要重新切换
+     *
+     * @param conn 数据库连接
+     * @param sql  执行的sql语句
+     */
+    public void checkSchemaChange(Connection conn, String sql) {
+        if (DbType.ORACLE.equals(dbType) && null != sql && SCHEMA_CHANGE.matcher(sql).find()) {
+            schemaChanged(conn);
+        }
+    }
+
+    /**
+     * 标记连接的current_schema已被修改,在{@link StatementCallback}等无法识别sql的场景中手动调用
+     *
+     * @param conn 数据库连接
+     */
+    public void schemaChanged(Connection conn) {
+        try {
+            Connection physical = physicalConnection(conn);
+            if (null != physical) {
+                initializedConnections.remove(physical);
+            }
+        } catch (SQLException e) {
+            throw new DbException("An error occurred while unwrapping the connection.", e);
+        }
+    }
+
+    /**
+     * 获取连接的总耗时,包括等待连接池和切换catalog
+     *
+     * @return 延迟直方图
+     */
+    public LatencyHistogram getAcquireLatency() {
+        return acquireLatency;
+    }
+
+    /**
+     * 等待连接池返回连接的耗时
+     *
+     * @return 延迟直方图
+     */
+    public LatencyHistogram getPoolWaitTime() {
+        return poolWaitTime;
+    }
+
+    @FunctionalInterface
+    private interface StatementCreator {
+        PreparedStatement create() throws SQLException;
+    }
 }
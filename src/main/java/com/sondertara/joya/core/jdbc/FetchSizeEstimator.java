@@ -0,0 +1,118 @@
+package com.sondertara.joya.core.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 根据结果集的行宽估算fetch size
+ * <p>
+ * 估算结果按sql缓存,同一条sql再次执行时在执行前就设置好fetch size
+ *
+ * @author huangxiaohu
+ */
+final class FetchSizeEstimator {
+
+    private static final Logger log = LoggerFactory.getLogger(FetchSizeEstimator.class);
+
+    private static final int MIN_FETCH_SIZE = 50;
+    private static final int MAX_FETCH_SIZE = 10000;
+    /**
+     * 未知长度的字符类型按该宽度估算
+     */
+    private static final int DEFAULT_VARCHAR_WIDTH = 255;
+    /**
+     * LOB类型按驱动默认的预取长度估算
+     */
+    private static final int LOB_WIDTH = 4000;
+    private static final int ROW_OVERHEAD = 16;
+    private static final int MAX_CACHED_SQL = 1024;
+
+    private static final Map<String, Integer> FETCH_SIZE_CACHE = new ConcurrentHashMap<>();
+
+    private FetchSizeEstimator() {
+    }
+
+    /**
+     * 获取之前为该sql估算过的fetch size
+     *
+     * @param sql sql语句
+     * @return fetch size,没有估算过则返回null
+     */
+    static Integer cached(String sql) {
+        return FETCH_SIZE_CACHE.get(sql);
+    }
+
+    /**
+     * 根据结果集元数据估算fetch size
+     *
+     * @param sql         sql语句
+     * @param metaData    结果集元数据
+     * @param targetBytes 每次往返的目标字节数
+     * @return fetch size
+     * @throws SQLException 来自JDBC的异常
+     */
+    static int estimate(String sql, ResultSetMetaData metaData, int targetBytes) throws SQLException {
+        int rowWidth = ROW_OVERHEAD;
+        int count = metaData.getColumnCount();
+        for (int i = 1; i <= count; i++) {
+            rowWidth += columnWidth(metaData.getColumnType(i), metaData.getPrecision(i));
+        }
+        int fetchSize = Math.max(MIN_FETCH_SIZE, Math.min(MAX_FETCH_SIZE, targetBytes / rowWidth));
+        if (FETCH_SIZE_CACHE.size() >= MAX_CACHED_SQL) {
+            FETCH_SIZE_CACHE.clear();
+        }
+        Integer previous = FETCH_SIZE_CACHE.put(sql, fetchSize);
+        if (null == previous || previous != fetchSize) {
+            log.debug("Adaptive fetch size is {} for estimated row width {} bytes,sql:{}", fetchSize, rowWidth, sql);
+        }
+        return fetchSize;
+    }
+
+    private static int columnWidth(int sqlType, int precision) {
+        switch (sqlType) {
+            case Types.BIT:
+            case Types.BOOLEAN:
+            case Types.TINYINT:
+                return 1;
+            case Types.SMALLINT:
+                return 2;
+            case Types.INTEGER:
+            case Types.REAL:
+                return 4;
+            case Types.BIGINT:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+            case Types.DATE:
+            case Types.TIME:
+                return 8;
+            case Types.TIMESTAMP:
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+                return 12;
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return 22;
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.BINARY:
+            case Types.VARBINARY:
+                return precision > 0 ? Math.min(precision, LOB_WIDTH) : DEFAULT_VARCHAR_WIDTH;
+            case Types.LONGVARCHAR:
+            case Types.LONGNVARCHAR:
+            case Types.LONGVARBINARY:
+            case Types.CLOB:
+            case Types.NCLOB:
+            case Types.BLOB:
+                return LOB_WIDTH;
+            default:
+                return 32;
+        }
+    }
+}
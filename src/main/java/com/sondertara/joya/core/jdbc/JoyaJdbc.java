@@ -2,9 +2,12 @@ package com.sondertara.joya.core.jdbc;
 
 
 import com.sondertara.common.exception.TaraException;
+import com.sondertara.common.model.PageResult;
 import com.sondertara.common.util.StringFormatter;
+import com.sondertara.joya.cache.EntityMetadata;
 import com.sondertara.joya.cache.TableClassCache;
 import com.sondertara.joya.core.jdbc.mapper.BeanRowMapper;
+import com.sondertara.joya.core.jdbc.mapper.ColumnarRecordMapper;
 import com.sondertara.joya.core.jdbc.mapper.ListRecordMapper;
 import com.sondertara.joya.core.jdbc.mapper.MapRowMapper;
 import com.sondertara.joya.core.jdbc.mapper.RecordMapper;
@@ -12,6 +15,8 @@ import com.sondertara.joya.core.jdbc.mapper.RowMapper;
 import com.sondertara.joya.core.jdbc.mapper.SingleColumnRowMapper;
 import com.sondertara.joya.core.jdbc.mapper.SingleRowRecordMapper;
 import com.sondertara.joya.core.model.TableEntity;
+import com.sondertara.joya.enums.DbType;
+import com.sondertara.joya.utils.PageSqlCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,8 +31,10 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * JDBC工具类
@@ -37,7 +44,19 @@ import java.util.stream.Collectors;
 public class JoyaJdbc {
 
     private static final Logger log = LoggerFactory.getLogger(JoyaJdbc.class);
+    /**
+     * 流式查询每次从数据库获取的行数
+     */
+    private static final int STREAM_FETCH_SIZE = 1000;
+    /**
+     * 批量操作每次executeBatch的默认行数
+     */
+    private static final int DEFAULT_BATCH_SIZE = 500;
     private final ConnectionManager connManager;
+    /**
+     * 读操作的语句参数
+     */
+    private final StatementOptions options;
 
     /**
      * 创建JdbcUtils
@@ -45,7 +64,43 @@ public class JoyaJdbc {
      * @param dataSource 数据源
      */
     public JoyaJdbc(DataSource dataSource) {
-        connManager = new ConnectionManager(dataSource);
+        this(dataSource, StatementOptions.create());
+    }
+
+    /**
+     * 创建JdbcUtils并指定全局的语句参数
+     *
+     * @param dataSource     数据源
+     * @param defaultOptions 全局语句参数,未设置的参数使用{@link StatementOptions#defaults()}
+     */
+    public JoyaJdbc(DataSource dataSource, StatementOptions defaultOptions) {
+        this(new ConnectionManager(dataSource), StatementOptions.defaults().merge(defaultOptions));
+    }
+
+    private JoyaJdbc(ConnectionManager connManager, StatementOptions options) {
+        this.connManager = connManager;
+        this.options = options;
+    }
+
+    /**
+     * 使用指定的语句参数覆盖全局参数,返回共享连接管理器的JoyaJdbc
+     * <p>
+     * example: joyaJdbc.withOptions(StatementOptions.create().fetchSize(2000)).queryList(sql, User.class)
+     *
+     * @param override 覆盖的语句参数
+     * @return JoyaJdbc
+     */
+    public JoyaJdbc withOptions(StatementOptions override) {
+        return new JoyaJdbc(this.connManager, this.options.merge(override));
+    }
+
+    /**
+     * 当前生效的语句参数
+     *
+     * @return 语句参数
+     */
+    public StatementOptions getOptions() {
+        return options;
     }
 
     /**
@@ -57,6 +112,20 @@ public class JoyaJdbc {
         this.connManager.destroy(consumer);
     }
 
+    /**
+     * 事务中PreparedStatement缓存的命中次数
+     */
+    public long getStatementCacheHits() {
+        return connManager.getStatementCacheHits();
+    }
+
+    /**
+     * 事务中PreparedStatement缓存的未命中次数
+     */
+    public long getStatementCacheMisses() {
+        return connManager.getStatementCacheMisses();
+    }
+
     /**
      * 判断当前是否在事务中
      */
@@ -80,15 +149,18 @@ public class JoyaJdbc {
      */
     public <T> T query(String sql, RecordMapper<T> recordMapper, Object... params) {
         Connection conn = null;
+        PreparedStatement stmt = null;
         try {
             conn = connManager.getConnection();
-            try (PreparedStatement stmt = createPreparedStatement(conn, sql, false, params); ResultSet rs = stmt.executeQuery()) {
+            stmt = createQueryStatement(conn, sql, params);
+            try (ResultSet rs = executeQuery(stmt, sql)) {
                 return recordMapper.map(new RecordAdapterForResultSet(rs));
             }
         } catch (Exception e) {
             log.error("query sql error,sql:{}", sql, e);
             throw new TaraException(e);
         } finally {
+            connManager.closeStatement(stmt);
             connManager.close(conn);
         }
     }
@@ -112,6 +184,111 @@ public class JoyaJdbc {
         return query(sql, new ListRecordMapper<>(rowMapper), params);
     }
 
+    /**
+     * 查询数据库，将结果集按列存储。
+     * 适用于大数据量的报表查询，数值列使用基本类型数组，字符串列使用字典编码，不为每行创建对象
+     *
+     * @param sql    sql语句
+     * @param params sql参数
+     * @return 成功则返回按列存储的结果，失败则抛出DbException
+     * @see ColumnarResult
+     */
+    public ColumnarResult queryColumnar(String sql, Object... params) {
+        return query(sql, new ColumnarRecordMapper(), params);
+    }
+
+    /**
+     * 流式查询数据库，对结果集的每一行进行转换。
+     * 结果不会一次性加载到内存，适用于大数据量的导出。
+     * <p>
+     * 返回的Stream持有数据库连接和游标(只进、只读)，直到Stream被关闭，必须配合try-with-resources使用:
+     * <pre>
+     * try (Stream&lt;User&gt; users = joyaJdbc.stream(sql, new BeanRowMapper&lt;&gt;(User.class))) {
+     *     users.forEach(...);
+     * }
+     * </pre>
+     * 在事务中调用时使用事务连接，否则使用独立的连接，不影响当前线程的其他查询。
+     * <ul>
+     *     <li>PostgreSQL只在关闭自动提交时按fetch size读取，在事务外调用时独立连接会临时关闭自动提交，Stream关闭时提交并恢复</li>
+     *     <li>MySQL使用逐行读取的游标，在事务中调用时Stream关闭前同一事务不能执行其他语句
+     *     (Streaming result set is still active)，需要在事务中查询其他数据时请在事务外调用</li>
+     * </ul>
+     *
+     * @param sql       sql语句
+     * @param rowMapper 行转换器
+     * @param params    sql参数
+     * @param <T>       rowMapper返回的结果类型
+     * @return 成功则返回结果流，失败则抛出DbException
+     */
+    public <T> Stream<T> stream(String sql, RowMapper<T> rowMapper, Object... params) {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        boolean restoreAutoCommit = false;
+        try {
+            boolean inTransaction = connManager.inTransaction();
+            conn = connManager.getDetachedConnection();
+            if (!inTransaction && DbType.POSTGRESQL.equals(connManager.getDbType()) && conn.getAutoCommit()) {
+                // the postgresql driver ignores the fetch size and reads the whole result in autocommit mode
+                conn.setAutoCommit(false);
+                restoreAutoCommit = true;
+            }
+            stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            applyOptions(stmt, sql);
+            boolean mysqlStreaming = null == options.getFetchSize() && DbType.MYSQL.equals(connManager.getDbType());
+            if (mysqlStreaming) {
+                // mysql only streams the result set row by row when the fetch size is Integer.MIN_VALUE
+                stmt.setFetchSize(Integer.MIN_VALUE);
+            } else if (null == options.getFetchSize() && null == FetchSizeEstimator.cached(sql)) {
+                stmt.setFetchSize(STREAM_FETCH_SIZE);
+            }
+            setParameters(stmt, params);
+            rs = mysqlStreaming ? stmt.executeQuery() : executeQuery(stmt, sql);
+            RecordAdapterForResultSet record = new RecordAdapterForResultSet(rs);
+            final Connection streamConn = conn;
+            final Statement streamStmt = stmt;
+            final boolean streamRestoreAutoCommit = restoreAutoCommit;
+            return record.toStream().map(rowMapper::map).onClose(() -> {
+                connManager.close(null, streamStmt, null);
+                if (streamRestoreAutoCommit) {
+                    endCursorTransaction(streamConn, true);
+                }
+                connManager.releaseDetachedConnection(streamConn);
+            });
+        } catch (Exception e) {
+            log.error("stream sql error,sql:{}", sql, e);
+            connManager.close(null, stmt, rs);
+            if (restoreAutoCommit) {
+                endCursorTransaction(conn, false);
+            }
+            connManager.releaseDetachedConnection(conn);
+            throw new TaraException(e);
+        }
+    }
+
+    /**
+     * 结束流式查询临时开启的事务并恢复自动提交
+     *
+     * @param conn   数据库连接
+     * @param commit true提交,false回滚
+     */
+    private void endCursorTransaction(Connection conn, boolean commit) {
+        try {
+            if (commit) {
+                conn.commit();
+            } else {
+                conn.rollback();
+            }
+        } catch (SQLException e) {
+            log.warn("end the transaction of stream query error", e);
+        }
+        try {
+            conn.setAutoCommit(true);
+        } catch (SQLException e) {
+            log.warn("restore autocommit of stream query error", e);
+        }
+    }
+
     /**
      * 查询数据库，将结果集的每一行转换成JavaBean，然后将所有行封装成列表。
      *
@@ -170,6 +347,30 @@ public class JoyaJdbc {
         return querySingleRow(sql, new BeanRowMapper<>(type), params);
     }
 
+    /**
+     * 分页查询，将结果集的每一行转换成JavaBean。
+     * count语句和分页语句按数据库类型生成并缓存，分页参数使用?绑定。
+     *
+     * @param sql      sql语句
+     * @param type     JavaBean类型
+     * @param pageNo   页码，从0开始
+     * @param pageSize 每页行数
+     * @param params   sql参数
+     * @param <T>      JavaBean类型
+     * @return 分页结果，不支持的数据库类型抛出TaraException
+     * @see PageSqlCache
+     */
+    public <T> PageResult<T> queryPage(String sql, Class<T> type, int pageNo, int pageSize, Object... params) {
+        PageSqlCache.PageSql pageSql = PageSqlCache.pageSql(sql, connManager.getDbType(), connManager.getDatabaseMajorVersion());
+        if (null == pageSql) {
+            throw new TaraException("The page query is not supported for database type {}", connManager.getDbType());
+        }
+        Long total = querySingleValue(PageSqlCache.countSql(sql), Long.class, params);
+        long totalRecord = null == total ? 0 : total;
+        List<T> result = totalRecord == 0 ? new ArrayList<>(0) : queryList(pageSql.getSql(), type, pageSql.params(params, (long) pageNo * pageSize, pageSize));
+        return new PageResult<>(result, totalRecord, pageNo, pageSize);
+    }
+
     /**
      * 更新数据库，返回影响行数
      *
@@ -200,14 +401,15 @@ public class JoyaJdbc {
      */
     public int update(String sql, Object[] params) {
         Connection conn = null;
+        PreparedStatement stmt = null;
         try {
             conn = connManager.getConnection();
-            try (PreparedStatement stmt = createPreparedStatement(conn, sql, false, params);) {
-                return stmt.executeUpdate();
-            }
+            stmt = createPreparedStatement(conn, sql, false, params);
+            return stmt.executeUpdate();
         } catch (Exception e) {
             throw new TaraException(e);
         } finally {
+            connManager.closeStatement(stmt);
             connManager.close(conn);
         }
     }
@@ -221,11 +423,12 @@ public class JoyaJdbc {
      */
     public Object insert(String sql, Object... params) {
         Connection conn = null;
+        PreparedStatement stmt = null;
         try {
             conn = connManager.getConnection();
-            try (PreparedStatement stmt = createPreparedStatement(conn, sql, true, params)) {
-                stmt.executeUpdate();
-                ResultSet generatedKeys = stmt.getGeneratedKeys();
+            stmt = createPreparedStatement(conn, sql, true, params);
+            stmt.executeUpdate();
+            try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
                     return generatedKeys.getObject(1);
                 }
@@ -234,10 +437,97 @@ public class JoyaJdbc {
         } catch (Exception e) {
             throw new TaraException(e);
         } finally {
+            connManager.closeStatement(stmt);
             connManager.close(conn);
         }
     }
 
+    /**
+     * 批量更新数据库,每chunkSize行调用一次executeBatch
+     * <p>
+     * 所有分批在同一个连接和事务中执行,如果当前已在事务中则加入当前事务,否则开启新事务并在结束后提交,失败则回滚
+     *
+     * @param sql       sql语句
+     * @param batchArgs 每一行的sql参数
+     * @param chunkSize 每次executeBatch的行数
+     * @return 每个分批的耗时和影响行数，失败则抛出TaraException
+     */
+    public BatchResult batchUpdate(String sql, List<Object[]> batchArgs, int chunkSize) {
+        return batchUpdate(sql, batchArgs, chunkSize, false);
+    }
+
+    /**
+     * 批量更新数据库,每chunkSize行调用一次executeBatch
+     *
+     * @param sql                 sql语句
+     * @param batchArgs           每一行的sql参数
+     * @param chunkSize           每次executeBatch的行数
+     * @param returnGeneratedKeys 是否返回自增主键
+     * @return 每个分批的耗时和影响行数，失败则抛出TaraException
+     * @see #batchUpdate(String, List, int)
+     */
+    public BatchResult batchUpdate(String sql, List<Object[]> batchArgs, int chunkSize, boolean returnGeneratedKeys) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("The chunk size must be positive");
+        }
+        if (null == batchArgs || batchArgs.isEmpty()) {
+            return new BatchResult();
+        }
+        return doInBatch(conn -> executeBatch(conn, sql, batchArgs, chunkSize, returnGeneratedKeys));
+    }
+
+    /**
+     * 批量插入实体,不依赖Hibernate
+     * <p>
+     * 主键为null的实体不插入主键列并返回自增主键,其余实体连同主键一起插入
+     *
+     * @param entities 实体列表
+     * @param <T>      实体类型
+     * @return 每个分批的耗时和影响行数，失败则抛出TaraException
+     */
+    public <T> BatchResult batchSave(List<T> entities) {
+        return batchSave(entities, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * 批量插入实体,每chunkSize行调用一次executeBatch
+     *
+     * @param entities  实体列表
+     * @param chunkSize 每次executeBatch的行数
+     * @param <T>       实体类型
+     * @return 每个分批的耗时和影响行数，失败则抛出TaraException
+     * @see #batchSave(List)
+     */
+    public <T> BatchResult batchSave(List<T> entities, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("The chunk size must be positive");
+        }
+        if (null == entities || entities.isEmpty()) {
+            return new BatchResult();
+        }
+        // the entity class -> rows,the entities without primary key value don`t insert the primary key column
+        Map<EntityMetadata, List<Object[]>> generatedKeyRows = new LinkedHashMap<>();
+        Map<EntityMetadata, List<Object[]>> rows = new LinkedHashMap<>();
+        Object[] buffer = null;
+        for (T entity : entities) {
+            EntityMetadata metadata = TableClassCache.getMetadata(entity.getClass());
+            buffer = metadata.extract(entity, buffer);
+            boolean generatedKey = null != metadata.getPrimaryKey() && null == metadata.getPrimaryKeyValue(buffer);
+            (generatedKey ? generatedKeyRows : rows).computeIfAbsent(metadata, k -> new ArrayList<>()).add(generatedKey ? metadata.withoutPrimaryKey(buffer) : buffer.clone());
+        }
+        log.info("Batch save start,size is:{}", entities.size());
+        return doInBatch(conn -> {
+            BatchResult result = new BatchResult();
+            for (Map.Entry<EntityMetadata, List<Object[]>> entry : rows.entrySet()) {
+                result.merge(executeBatch(conn, EntityMetadata.insertSql(entry.getKey().getTableName(), entry.getKey().getColumns()), entry.getValue(), chunkSize, false));
+            }
+            for (Map.Entry<EntityMetadata, List<Object[]>> entry : generatedKeyRows.entrySet()) {
+                result.merge(executeBatch(conn, EntityMetadata.insertSql(entry.getKey().getTableName(), entry.getKey().getColumnsWithoutPrimaryKey()), entry.getValue(), chunkSize, true));
+            }
+            return result;
+        });
+    }
+
     public <T> Object saveEntityIgnoreNull(T entity) {
         TableEntity table = TableClassCache.getInstance().getTable(entity, true);
         Map<String, Object> data = table.getData();
@@ -259,6 +549,76 @@ public class JoyaJdbc {
     }
 
 
+    /**
+     * 批量保存实体,主键已存在则更新,不存在则插入
+     *
+     * @param entities 实体列表
+     * @param <T>      实体类型
+     * @return 每条语句的耗时和影响行数，失败则抛出TaraException
+     * @see #saveEntities(List, int)
+     */
+    public <T> BatchResult saveEntities(List<T> entities) {
+        return saveEntities(entities, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * 批量保存实体,主键已存在则更新,不存在则插入
+     * <p>
+     * 与{@link #saveEntity(Object)}不同,不再逐行查询主键是否存在,而是按数据库方言生成多行upsert语句,
+     * 每条语句最多包含batchSize行:
+     * MySQL使用on duplicate key update,PostgreSQL使用on conflict,Oracle使用merge.
+     * 主键为null的实体使用多行insert插入并返回自增主键.
+     * 不支持upsert的数据库回退到逐行保存.
+     * <p>
+     * 注意MySQL的upsert中被更新的行计为2行影响行数
+     *
+     * @param entities  实体列表
+     * @param batchSize 每条语句的最大行数
+     * @param <T>       实体类型
+     * @return 每条语句的耗时和影响行数，失败则抛出TaraException
+     */
+    public <T> BatchResult saveEntities(List<T> entities, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("The batch size must be positive");
+        }
+        if (null == entities || entities.isEmpty()) {
+            return new BatchResult();
+        }
+        BulkSqlBuilder builder = new BulkSqlBuilder(connManager.getDbType());
+        Map<String, BulkGroup> groups = new LinkedHashMap<>();
+        List<TableEntity> fallback = new ArrayList<>();
+        Object[] buffer = null;
+        for (T entity : entities) {
+            EntityMetadata metadata = TableClassCache.getMetadata(entity.getClass());
+            buffer = metadata.extract(entity, buffer);
+            String primaryKey = metadata.getPrimaryKey();
+            boolean generatedKey = null == primaryKey || null == metadata.getPrimaryKeyValue(buffer);
+            if (!generatedKey && !builder.supportsUpsert()) {
+                fallback.add(TableClassCache.getInstance().getTable(entity, true));
+                continue;
+            }
+            List<String> columns = generatedKey ? metadata.getColumnsWithoutPrimaryKey() : metadata.getColumns();
+            String key = metadata.getEntityClass().getName() + "|" + generatedKey;
+            groups.computeIfAbsent(key, k -> new BulkGroup(metadata.getTableName(), primaryKey, columns, generatedKey)).rows.add(generatedKey ? metadata.withoutPrimaryKey(buffer) : buffer.clone());
+        }
+        if (!fallback.isEmpty()) {
+            log.warn("The upsert statement is not supported for database type {},save {} entities one by one", connManager.getDbType(), fallback.size());
+        }
+        log.info("Bulk save start,size is:{}", entities.size());
+        return doInBatch(conn -> {
+            BatchResult result = new BatchResult();
+            for (BulkGroup group : groups.values()) {
+                result.merge(executeBulk(conn, builder, group, batchSize));
+            }
+            for (TableEntity table : fallback) {
+                long start = System.nanoTime();
+                save(table);
+                result.addChunk(1, 1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+            return result;
+        });
+    }
+
     /**
      * 执行sql命令, 失败则抛出DbException
      *
@@ -271,6 +631,7 @@ public class JoyaJdbc {
             try (Statement stmt = conn.createStatement()) {
                 stmt.execute(sql);
             }
+            connManager.checkSchemaChange(conn, sql);
         } catch (Exception e) {
             log.error("execute sql error,sql:{}", sql, e);
             throw new TaraException(e);
@@ -353,7 +714,179 @@ public class JoyaJdbc {
 
 
     /**
-     * 创建语句
+     * 在同一个连接和事务中执行批量操作
+     * <p>
+     * 已在事务中则加入当前事务,否则开启新事务,结束后提交,失败则回滚
+     *
+     * @param action 批量操作
+     * @return 批量操作结果
+     */
+    private BatchResult doInBatch(ConnectionCallback<BatchResult> action) {
+        boolean newTransaction = !connManager.inTransaction();
+        if (newTransaction) {
+            connManager.startTransaction();
+        }
+        long start = System.nanoTime();
+        try {
+            BatchResult result = action.doInTransaction(connManager.getConnection());
+            if (newTransaction) {
+                connManager.commit();
+            }
+            result.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            log.info("Batch completed,rows affected:{},chunks:{},elapsed:{}ms", result.getRowsAffected(), result.getChunks().size(), result.getElapsedMillis());
+            return result;
+        } catch (Exception e) {
+            log.error("batch sql error", e);
+            if (newTransaction) {
+                connManager.rollback();
+            }
+            throw new TaraException(e);
+        }
+    }
+
+    /**
+     * 分批执行executeBatch
+     *
+     * @param conn                连接
+     * @param sql                 sql语句
+     * @param batchArgs           每一行的sql参数
+     * @param chunkSize           每次executeBatch的行数
+     * @param returnGeneratedKeys 是否返回自增主键
+     * @return 批量操作结果
+     * @throws SQLException 来自JDBC的异常
+     */
+    private BatchResult executeBatch(Connection conn, String sql, List<Object[]> batchArgs, int chunkSize, boolean returnGeneratedKeys) throws SQLException {
+        PreparedStatement stmt = connManager.prepareStatement(conn, sql, returnGeneratedKeys);
+        try {
+            return executeBatch(stmt, sql, batchArgs, chunkSize, returnGeneratedKeys);
+        } finally {
+            connManager.closeStatement(stmt);
+        }
+    }
+
+    /**
+     * 在已创建的语句上分批执行executeBatch
+     *
+     * @param stmt                语句,由调用方关闭
+     * @param sql                 sql语句,用于日志
+     * @param batchArgs           每一行的sql参数
+     * @param chunkSize           每次executeBatch的行数
+     * @param returnGeneratedKeys 是否读取自增主键,语句需要以返回主键的方式创建
+     * @return 批量操作结果
+     * @throws SQLException 来自JDBC的异常
+     */
+    private BatchResult executeBatch(PreparedStatement stmt, String sql, List<Object[]> batchArgs, int chunkSize, boolean returnGeneratedKeys) throws SQLException {
+        BatchResult result = new BatchResult();
+        for (int from = 0; from < batchArgs.size(); from += chunkSize) {
+            int to = Math.min(from + chunkSize, batchArgs.size());
+            long start = System.nanoTime();
+            for (Object[] args : batchArgs.subList(from, to)) {
+                setParameters(stmt, args);
+                stmt.addBatch();
+            }
+            int[] counts = stmt.executeBatch();
+            stmt.clearBatch();
+            long rowsAffected = 0;
+            for (int count : counts) {
+                if (count > 0) {
+                    rowsAffected += count;
+                }
+            }
+            if (returnGeneratedKeys) {
+                try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                    while (generatedKeys.next()) {
+                        result.getGeneratedKeys().add(generatedKeys.getObject(1));
+                    }
+                }
+            }
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            result.addChunk(to - from, rowsAffected, elapsed);
+            log.debug("Batch chunk executed,size:{},rows affected:{},elapsed:{}ms,sql:{}", to - from, rowsAffected, elapsed, sql);
+        }
+        return result;
+    }
+
+    /**
+     * 执行一组相同表和列的批量保存,每条语句包含多行数据
+     *
+     * @param conn      连接
+     * @param builder   sql生成器
+     * @param group     相同表和列的数据
+     * @param batchSize 每条语句的最大行数
+     * @return 批量操作结果
+     * @throws SQLException 来自JDBC的异常
+     */
+    private BatchResult executeBulk(Connection conn, BulkSqlBuilder builder, BulkGroup group, int batchSize) throws SQLException {
+        // the entity without @Id has no key to read back
+        boolean returnKeys = group.generatedKey && null != group.primaryKey;
+        if (group.generatedKey && !builder.supportsMultiRowInsert()) {
+            // e.g. Oracle,fallback to the JDBC batch of single row insert.
+            // Oracle returns the ROWID for RETURN_GENERATED_KEYS,so ask for the primary key column
+            String sql = builder.insert(group.tableName, group.columns, 1);
+            try (PreparedStatement stmt = returnKeys ? conn.prepareStatement(sql, new String[]{group.primaryKey}) : conn.prepareStatement(sql)) {
+                return executeBatch(stmt, sql, group.rows, batchSize, returnKeys);
+            }
+        }
+        BatchResult result = new BatchResult();
+        int rowsPerStatement = builder.rowsPerStatement(group.columns.size(), batchSize);
+        // the statement of full chunk is prepared once and reused,only the last chunk may need another one
+        PreparedStatement fullStmt = null;
+        try {
+            for (int from = 0; from < group.rows.size(); from += rowsPerStatement) {
+                int to = Math.min(from + rowsPerStatement, group.rows.size());
+                int size = to - from;
+                long start = System.nanoTime();
+                PreparedStatement stmt;
+                if (size == rowsPerStatement) {
+                    if (null == fullStmt) {
+                        fullStmt = prepareBulk(conn, builder, group, size);
+                    }
+                    stmt = fullStmt;
+                } else {
+                    stmt = prepareBulk(conn, builder, group, size);
+                }
+                try {
+                    int index = 1;
+                    for (Object[] row : group.rows.subList(from, to)) {
+                        for (Object value : row) {
+                            stmt.setObject(index++, value);
+                        }
+                    }
+                    int rowsAffected = stmt.executeUpdate();
+                    if (returnKeys) {
+                        try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                            while (generatedKeys.next()) {
+                                result.getGeneratedKeys().add(generatedKeys.getObject(1));
+                            }
+                        }
+                    }
+                    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    result.addChunk(size, Math.max(rowsAffected, 0), elapsed);
+                    log.debug("Bulk statement executed,table:{},rows:{},rows affected:{},elapsed:{}ms", group.tableName, size, rowsAffected, elapsed);
+                } finally {
+                    if (stmt != fullStmt) {
+                        stmt.close();
+                    }
+                }
+            }
+        } finally {
+            if (null != fullStmt) {
+                fullStmt.close();
+            }
+        }
+        return result;
+    }
+
+    private PreparedStatement prepareBulk(Connection conn, BulkSqlBuilder builder, BulkGroup group, int rows) throws SQLException {
+        if (group.generatedKey) {
+            String sql = builder.insert(group.tableName, group.columns, rows);
+            return null == group.primaryKey ? conn.prepareStatement(sql) : conn.prepareStatement(sql, new String[]{group.primaryKey});
+        }
+        return conn.prepareStatement(builder.upsert(group.tableName, group.primaryKey, group.columns, rows));
+    }
+
+    /**
+     * 创建语句,在事务中则复用连接上缓存的语句
      *
      * @param conn   连接
      * @param sql    sql语句
@@ -362,18 +895,91 @@ public class JoyaJdbc {
      * @throws SQLException 来自JDBC的异常
      */
     private PreparedStatement createPreparedStatement(Connection conn, String sql, boolean autoGeneratedKeys, Object... params) throws SQLException {
-        PreparedStatement stmt = null;
-        if (autoGeneratedKeys) {
-            stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-        } else {
-            stmt = conn.prepareStatement(sql);
+        PreparedStatement stmt = connManager.prepareStatement(conn, sql, autoGeneratedKeys);
+        try {
+            setParameters(stmt, params);
+        } catch (SQLException e) {
+            connManager.closeStatement(stmt);
+            throw e;
+        }
+        return stmt;
+    }
+
+    /**
+     * 创建查询语句,并应用语句参数
+     *
+     * @param conn   连接
+     * @param sql    sql语句
+     * @param params sql参数
+     * @return 创建的PreparedStatement对象
+     * @throws SQLException 来自JDBC的异常
+     */
+    private PreparedStatement createQueryStatement(Connection conn, String sql, Object... params) throws SQLException {
+        PreparedStatement stmt = connManager.prepareStatement(conn, sql, options.getResultSetType(), options.getResultSetConcurrency());
+        try {
+            applyOptions(stmt, sql);
+            setParameters(stmt, params);
+        } catch (SQLException e) {
+            connManager.closeStatement(stmt);
+            throw e;
+        }
+        return stmt;
+    }
+
+    /**
+     * 应用fetch size、max rows和query timeout,所有读操作都通过该方法设置语句参数
+     * <p>
+     * 未指定fetch size时,使用该sql上一次根据行宽估算的值.
+     * 事务中的语句可能被不同参数的JoyaJdbc复用,因此未设置的参数也会重置为驱动默认值
+     *
+     * @param stmt 语句
+     * @param sql  sql语句
+     * @throws SQLException 来自JDBC的异常
+     */
+    private void applyOptions(Statement stmt, String sql) throws SQLException {
+        Integer fetchSize = options.getFetchSize();
+        if (null == fetchSize && options.isAdaptiveFetch()) {
+            fetchSize = FetchSizeEstimator.cached(sql);
+        }
+        stmt.setFetchSize(null != fetchSize ? fetchSize : 0);
+        stmt.setMaxRows(null != options.getMaxRows() && options.getMaxRows() > 0 ? options.getMaxRows() : 0);
+        stmt.setQueryTimeout(null != options.getQueryTimeout() && options.getQueryTimeout() > 0 ? options.getQueryTimeout() : 0);
+    }
+
+    /**
+     * 执行查询,首次执行的sql根据结果集的行宽调整后续的fetch size
+     *
+     * @param stmt 语句
+     * @param sql  sql语句
+     * @return 结果集
+     * @throws SQLException 来自JDBC的异常
+     */
+    private ResultSet executeQuery(PreparedStatement stmt, String sql) throws SQLException {
+        ResultSet rs = stmt.executeQuery();
+        if (options.isAdaptiveFetch() && null == FetchSizeEstimator.cached(sql)) {
+            try {
+                rs.setFetchSize(FetchSizeEstimator.estimate(sql, rs.getMetaData(), options.getAdaptiveFetchBytes()));
+            } catch (SQLException e) {
+                rs.close();
+                throw e;
+            }
         }
+        return rs;
+    }
+
+    /**
+     * 设置sql参数
+     *
+     * @param stmt   语句
+     * @param params sql参数
+     * @throws SQLException 来自JDBC的异常
+     */
+    private void setParameters(PreparedStatement stmt, Object... params) throws SQLException {
         if (null != params && params.length > 0) {
             for (int i = 0; i < params.length; ++i) {
                 stmt.setObject(i + 1, params[i]);
             }
         }
-        return stmt;
     }
 
     private Object save(TableEntity table) {
@@ -403,4 +1009,25 @@ public class JoyaJdbc {
             return data.get(table.getPrimaryKey());
         }
     }
+
+    /**
+     * 相同表和列的一组待保存数据
+     */
+    private static final class BulkGroup {
+        private final String tableName;
+        private final String primaryKey;
+        private final List<String> columns;
+        /**
+         * 主键为空,由数据库生成主键
+         */
+        private final boolean generatedKey;
+        private final List<Object[]> rows = new ArrayList<>();
+
+        private BulkGroup(String tableName, String primaryKey, List<String> columns, boolean generatedKey) {
+            this.tableName = tableName;
+            this.primaryKey = primaryKey;
+            this.columns = columns;
+            this.generatedKey = generatedKey;
+        }
+    }
 }
@@ -0,0 +1,275 @@
+package com.sondertara.joya.core.jdbc;
+
+import com.sondertara.common.exception.TaraException;
+import com.sondertara.joya.core.jdbc.mapper.RecordMapper;
+import com.sondertara.joya.core.jdbc.mapper.RowMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * JoyaJdbc的异步门面
+ * <p>
+ * 每个任务在工作线程上执行,使用工作线程自己的连接,同时执行的任务数不超过连接池容量.
+ * JVM支持虚拟线程时使用虚拟线程,否则使用固定大小的线程池.
+ * <pre>
+ * JoyaJdbcAsync async = new JoyaJdbcAsync(joyaJdbc, dataSource);
+ * CompletableFuture&lt;List&lt;User&gt;&gt; users = async.queryList("select * from user where dept_id = ?", User.class, deptId);
+ * CompletableFuture&lt;Dept&gt; dept = async.querySingleRow("select * from dept where id = ?", Dept.class, deptId);
+ * </pre>
+ * 连接绑定在线程上,调用线程的事务不会传播到异步任务,因此在事务中调用会抛出IllegalStateException,
+ * 需要事务时使用{@link #supplyInTransaction(Function)}在同一个工作线程上执行整个事务
+ *
+ * @author huangxiaohu
+ */
+public class JoyaJdbcAsync implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(JoyaJdbcAsync.class);
+
+    /**
+     * 无法获取连接池容量时的默认并发数
+     */
+    public static final int DEFAULT_CONCURRENCY = 10;
+
+    /**
+     * 常见连接池获取最大连接数的方法: HikariCP, Druid/Tomcat/DBCP, DBCP2
+     */
+    private static final String[] POOL_SIZE_METHODS = {"getMaximumPoolSize", "getMaxActive", "getMaxTotal"};
+
+    private final JoyaJdbc jdbc;
+    private final ExecutorService executor;
+    private final boolean ownExecutor;
+    private final Semaphore permits;
+    private final int concurrency;
+
+    /**
+     * 并发数取连接池的最大连接数
+     *
+     * @param jdbc       JoyaJdbc
+     * @param dataSource jdbc使用的数据源
+     */
+    public JoyaJdbcAsync(JoyaJdbc jdbc, DataSource dataSource) {
+        this(jdbc, detectPoolSize(dataSource));
+    }
+
+    /**
+     * @param jdbc        JoyaJdbc
+     * @param concurrency 最大并发数,不应超过连接池容量
+     */
+    public JoyaJdbcAsync(JoyaJdbc jdbc, int concurrency) {
+        this(jdbc, concurrency, createExecutor(concurrency), true);
+    }
+
+    /**
+     * 使用外部的线程池,关闭时不会关闭该线程池
+     *
+     * @param jdbc        JoyaJdbc
+     * @param concurrency 最大并发数,不应超过连接池容量
+     * @param executor    线程池
+     */
+    public JoyaJdbcAsync(JoyaJdbc jdbc, int concurrency, ExecutorService executor) {
+        this(jdbc, concurrency, executor, false);
+    }
+
+    private JoyaJdbcAsync(JoyaJdbc jdbc, int concurrency, ExecutorService executor, boolean ownExecutor) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("The concurrency must be positive");
+        }
+        this.jdbc = jdbc;
+        this.concurrency = concurrency;
+        this.permits = new Semaphore(concurrency);
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+    }
+
+    public <T> CompletableFuture<T> query(String sql, RecordMapper<T> recordMapper, Object... params) {
+        return supply(db -> db.query(sql, recordMapper, params));
+    }
+
+    public <T> CompletableFuture<List<T>> queryList(String sql, RowMapper<T> rowMapper, Object... params) {
+        return supply(db -> db.queryList(sql, rowMapper, params));
+    }
+
+    public <T> CompletableFuture<List<T>> queryList(String sql, Class<T> type, Object... params) {
+        return supply(db -> db.queryList(sql, type, params));
+    }
+
+    public <T> CompletableFuture<T> querySingleValue(String sql, Class<T> clazz, Object... params) {
+        return supply(db -> db.querySingleValue(sql, clazz, params));
+    }
+
+    public <T> CompletableFuture<T> querySingleRow(String sql, Class<T> type, Object... params) {
+        return supply(db -> db.querySingleRow(sql, type, params));
+    }
+
+    public CompletableFuture<Integer> update(String sql, Object... params) {
+        return supply(db -> db.update(sql, params));
+    }
+
+    /**
+     * 异步执行任意JoyaJdbc操作,每个操作使用自动提交的独立连接
+     *
+     * @param action 操作
+     * @param <T>    结果类型
+     * @return 异步结果
+     */
+    public <T> CompletableFuture<T> supply(Function<JoyaJdbc, T> action) {
+        checkNotInTransaction();
+        return CompletableFuture.supplyAsync(() -> withPermit(() -> action.apply(jdbc)), executor);
+    }
+
+    /**
+     * 批量提交操作,按并发数分组,每组在一个工作线程上依次执行,减少调度开销
+     *
+     * @param actions 操作列表
+     * @param <T>     结果类型
+     * @return 异步结果,顺序与操作列表一致
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<List<T>> supplyAll(List<Function<JoyaJdbc, T>> actions) {
+        checkNotInTransaction();
+        if (actions.isEmpty()) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        int groups = Math.min(concurrency, actions.size());
+        int groupSize = (actions.size() + groups - 1) / groups;
+        Object[] results = new Object[actions.size()];
+        List<CompletableFuture<Void>> futures = new ArrayList<>(groups);
+        for (int from = 0; from < actions.size(); from += groupSize) {
+            int start = from;
+            int end = Math.min(from + groupSize, actions.size());
+            futures.add(CompletableFuture.runAsync(() -> withPermit(() -> {
+                for (int i = start; i < end; i++) {
+                    results[i] = actions.get(i).apply(jdbc);
+                }
+                return null;
+            }), executor));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(v -> (List<T>) new ArrayList<>(Arrays.asList(results)));
+    }
+
+    /**
+     * 在同一个工作线程上以事务方式执行操作,操作中通过参数JoyaJdbc执行的语句都在该事务中,
+     * 成功则提交,失败则回滚
+     *
+     * @param action 事务中的操作,不能在其中使用异步门面
+     * @param <T>    结果类型
+     * @return 异步结果
+     */
+    public <T> CompletableFuture<T> supplyInTransaction(Function<JoyaJdbc, T> action) {
+        checkNotInTransaction();
+        return CompletableFuture.supplyAsync(() -> withPermit(() -> {
+            jdbc.startTransaction();
+            try {
+                T result = action.apply(jdbc);
+                jdbc.commit();
+                return result;
+            } catch (RuntimeException e) {
+                log.error("Async transaction error", e);
+                jdbc.rollback();
+                throw e;
+            }
+        }), executor);
+    }
+
+    /**
+     * 当前可用的并发数
+     *
+     * @return available permits
+     */
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    @Override
+    public void close() {
+        if (ownExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    private <T> T withPermit(PermitTask<T> task) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TaraException(e);
+        }
+        try {
+            return task.run();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void checkNotInTransaction() {
+        if (jdbc.inTransaction()) {
+            throw new IllegalStateException("The transaction of current thread is not visible to async tasks, use supplyInTransaction instead");
+        }
+    }
+
+    /**
+     * JVM支持虚拟线程时使用虚拟线程,并发由信号量控制,否则使用固定大小的线程池
+     *
+     * @param concurrency 并发数
+     * @return 线程池
+     */
+    private static ExecutorService createExecutor(int concurrency) {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            ExecutorService executor = (ExecutorService) method.invoke(null);
+            log.info("JoyaJdbcAsync uses virtual threads,concurrency:{}", concurrency);
+            return executor;
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            log.info("JoyaJdbcAsync uses platform threads,concurrency:{}", concurrency);
+        }
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread thread = new Thread(r, "joya-async-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(concurrency, factory);
+    }
+
+    /**
+     * 通过反射获取常见连接池的最大连接数
+     *
+     * @param dataSource 数据源
+     * @return 最大连接数,无法获取则返回{@link #DEFAULT_CONCURRENCY}
+     */
+    static int detectPoolSize(DataSource dataSource) {
+        for (String name : POOL_SIZE_METHODS) {
+            try {
+                Object value = dataSource.getClass().getMethod(name).invoke(dataSource);
+                if (value instanceof Number && ((Number) value).intValue() > 0) {
+                    return ((Number) value).intValue();
+                }
+            } catch (ReflectiveOperationException ignored) {
+            }
+        }
+        log.warn("Can not detect the pool size of {},use the default concurrency {}", dataSource.getClass().getName(), DEFAULT_CONCURRENCY);
+        return DEFAULT_CONCURRENCY;
+    }
+
+    @FunctionalInterface
+    private interface PermitTask<T> {
+        T run();
+    }
+}
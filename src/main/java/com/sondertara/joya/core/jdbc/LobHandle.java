@@ -0,0 +1,213 @@
+package com.sondertara.joya.core.jdbc;
+
+import com.sondertara.common.exception.TaraException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.SQLException;
+
+/**
+ * 延迟读取的CLOB/BLOB
+ * <p>
+ * 只持有数据库返回的lob定位符,按需以流的方式读取,调用{@link #getString()}或{@link #getBytes()}时才整体读入内存.
+ * lob定位符只在连接(或事务)打开期间有效,需要在{@link JoyaJdbc#stream}或事务中读取.
+ * CLOB按UTF-8编码为字节流
+ *
+ * @author huangxiaohu
+ */
+public final class LobHandle {
+
+    private static final int BUFFER_SIZE = 1024 * 8;
+
+    private final Clob clob;
+    private final Blob blob;
+
+    private LobHandle(Clob clob, Blob blob) {
+        this.clob = clob;
+        this.blob = blob;
+    }
+
+    public static LobHandle of(Clob clob) {
+        return new LobHandle(clob, null);
+    }
+
+    public static LobHandle of(Blob blob) {
+        return new LobHandle(null, blob);
+    }
+
+    /**
+     * @return true if this is a CLOB,false if a BLOB
+     */
+    public boolean isCharacter() {
+        return null != clob;
+    }
+
+    /**
+     * @return the count of characters of a CLOB or bytes of a BLOB
+     */
+    public long length() {
+        try {
+            return null != clob ? clob.length() : blob.length();
+        } catch (SQLException e) {
+            throw new TaraException("Unable to access lob", e);
+        }
+    }
+
+    /**
+     * @return the character stream,a BLOB is decoded as UTF-8
+     */
+    public Reader getReader() {
+        try {
+            return null != clob ? clob.getCharacterStream() : new InputStreamReader(blob.getBinaryStream(), StandardCharsets.UTF_8);
+        } catch (SQLException e) {
+            throw new TaraException("Unable to access lob stream", e);
+        }
+    }
+
+    /**
+     * @return the binary stream,a CLOB is encoded as UTF-8
+     */
+    public InputStream getInputStream() {
+        try {
+            return null != clob ? new EncodingInputStream(clob.getCharacterStream()) : blob.getBinaryStream();
+        } catch (SQLException e) {
+            throw new TaraException("Unable to access lob stream", e);
+        }
+    }
+
+    /**
+     * 将lob写入channel,不整体读入内存
+     *
+     * @param channel the target channel,which is not closed
+     * @return the count of bytes written
+     */
+    public long transferTo(WritableByteChannel channel) {
+        long count = 0;
+        try (InputStream in = getInputStream()) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+            int amountRead;
+            while ((amountRead = in.read(buffer)) != -1) {
+                byteBuffer.clear().limit(amountRead);
+                while (byteBuffer.hasRemaining()) {
+                    count += channel.write(byteBuffer);
+                }
+            }
+        } catch (IOException e) {
+            throw new TaraException("IOException occurred transferring lob", e);
+        }
+        return count;
+    }
+
+    /**
+     * @return the whole content as string
+     */
+    public String getString() {
+        return null != clob ? SqlDataHelper.extractString(clob) : new String(SqlDataHelper.extractBytes(blob), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the whole content as bytes
+     */
+    public byte[] getBytes() {
+        return null != clob ? getString().getBytes(StandardCharsets.UTF_8) : SqlDataHelper.extractBytes(blob);
+    }
+
+    /**
+     * 释放数据库持有的lob资源
+     */
+    public void free() {
+        try {
+            if (null != clob) {
+                clob.free();
+            } else {
+                blob.free();
+            }
+        } catch (SQLException e) {
+            throw new TaraException("Unable to free lob", e);
+        }
+    }
+
+    /**
+     * 不读取内容,避免日志打印时整体读入内存
+     */
+    @Override
+    public String toString() {
+        return "LobHandle(" + (null != clob ? "CLOB" : "BLOB") + ")";
+    }
+
+    /**
+     * 将字符流编码为UTF-8字节流
+     */
+    private static final class EncodingInputStream extends InputStream {
+
+        private final Reader reader;
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+        /**
+         * up to 3 bytes for every char in UTF-8
+         */
+        private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE * 3);
+        private boolean endOfInput = false;
+        private boolean flushed = false;
+
+        private EncodingInputStream(Reader reader) {
+            this.reader = reader;
+            this.bytes.flip();
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (!bytes.hasRemaining()) {
+                if (flushed) {
+                    return -1;
+                }
+                fill();
+            }
+            int n = Math.min(len, bytes.remaining());
+            bytes.get(b, off, n);
+            return n;
+        }
+
+        private void fill() throws IOException {
+            bytes.compact();
+            if (!endOfInput && reader.read(chars) == -1) {
+                endOfInput = true;
+            }
+            chars.flip();
+            encoder.encode(chars, bytes, endOfInput);
+            if (endOfInput && !chars.hasRemaining()) {
+                encoder.flush(bytes);
+                flushed = true;
+            }
+            chars.compact();
+            bytes.flip();
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
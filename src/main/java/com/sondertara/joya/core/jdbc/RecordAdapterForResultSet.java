@@ -15,11 +15,37 @@ import java.util.NoSuchElementException;
  */
 public class RecordAdapterForResultSet implements Record, Row {
     private final ResultSet rs;
+    /**
+     * the column labels snapshot when the cursor opens
+     */
+    private final String[] columnLabels;
+    /**
+     * the column sql types snapshot when the cursor opens
+     */
+    private final int[] columnTypes;
+    /**
+     * the java class names of columns snapshot when the cursor opens,null if the driver does not support
+     */
+    private final String[] columnClassNames;
     private volatile boolean hasNext = false;
     private volatile boolean cursorReady = false;
 
     public RecordAdapterForResultSet(ResultSet resultSet) {
         this.rs = resultSet;
+        try {
+            ResultSetMetaData metaData = rs.getMetaData();
+            int count = metaData.getColumnCount();
+            this.columnLabels = new String[count];
+            this.columnTypes = new int[count];
+            this.columnClassNames = new String[count];
+            for (int i = 0; i < count; i++) {
+                this.columnLabels[i] = metaData.getColumnLabel(i + 1).intern();
+                this.columnTypes[i] = metaData.getColumnType(i + 1);
+                this.columnClassNames[i] = columnClassName(metaData, i + 1);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
     }
 
     @Override
@@ -114,21 +140,34 @@ public class RecordAdapterForResultSet implements Record, Row {
 
     @Override
     public int getColumnCount() {
-        try {
-            ResultSetMetaData metaData = rs.getMetaData();
-            return metaData.getColumnCount();
-        } catch (SQLException e) {
-            throw new RuntimeException(e.getMessage(), e);
-        }
+        return columnLabels.length;
     }
 
     @Override
     public String getColumnLabel(int index) {
+        return columnLabels[index - 1];
+    }
+
+    @Override
+    public String[] getColumnLabels() {
+        return columnLabels;
+    }
+
+    @Override
+    public int[] getColumnTypes() {
+        return columnTypes;
+    }
+
+    @Override
+    public String[] getColumnClassNames() {
+        return columnClassNames;
+    }
+
+    private static String columnClassName(ResultSetMetaData metaData, int column) {
         try {
-            ResultSetMetaData metaData = rs.getMetaData();
-            return metaData.getColumnLabel(index);
+            return metaData.getColumnClassName(column);
         } catch (SQLException e) {
-            throw new RuntimeException(e.getMessage(), e);
+            return null;
         }
     }
 
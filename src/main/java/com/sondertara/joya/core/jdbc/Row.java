@@ -3,6 +3,8 @@ package com.sondertara.joya.core.jdbc;
 import java.io.Closeable;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.sql.Types;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.stream.Stream;
@@ -149,6 +151,46 @@ public interface Row extends Iterator<Row>, Iterable<Row>, Closeable {
      */
     String getColumnLabel(int index);
 
+    /**
+     * 获取全部列标签
+     * <p>
+     * 默认每次调用时由{@link #getColumnLabel(int)}生成,实现类可以在游标打开时读取一次并返回共享实例,调用方不能修改返回的数组
+     *
+     * @return 列标签,下标从0开始
+     */
+    default String[] getColumnLabels() {
+        String[] labels = new String[getColumnCount()];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = getColumnLabel(i + 1);
+        }
+        return labels;
+    }
+
+    /**
+     * 获取全部列的SQL类型
+     * <p>
+     * 默认不知道列的类型,全部为{@link java.sql.Types#OTHER},按对象读取;
+     * 实现类可以在游标打开时读取一次并返回共享实例,调用方不能修改返回的数组
+     *
+     * @return 列类型 {@link java.sql.Types},下标从0开始
+     */
+    default int[] getColumnTypes() {
+        int[] types = new int[getColumnCount()];
+        Arrays.fill(types, Types.OTHER);
+        return types;
+    }
+
+    /**
+     * 获取全部列值的Java类型名称({@link java.sql.ResultSetMetaData#getColumnClassName(int)})
+     * <p>
+     * 默认不知道列的Java类型,全部为null;调用方不能修改返回的数组
+     *
+     * @return 类型名称,下标从0开始,驱动不支持时元素为null
+     */
+    default String[] getColumnClassNames() {
+        return new String[getColumnCount()];
+    }
+
 
     /**
      * Returns the same object to iterate over elements of type {@code T}.
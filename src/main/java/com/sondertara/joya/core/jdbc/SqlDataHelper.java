@@ -16,9 +16,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.io.StringReader;
+import java.sql.Blob;
 import java.sql.Clob;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.TimeZone;
 
@@ -39,6 +41,16 @@ public final class SqlDataHelper {
      */
     private static final int BUFFER_SIZE = 1024 * 4;
 
+    /**
+     * The max size of the read buffer when the length of the lob is known
+     */
+    private static final int MAX_BUFFER_SIZE = 1024 * 64;
+
+    /**
+     * The max length of a lob which can be materialized into one array
+     */
+    private static final long MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
 
     public static boolean isNClob(final Class<?> type) {
         return java.sql.NClob.class.isAssignableFrom(type);
@@ -80,9 +92,10 @@ public final class SqlDataHelper {
      * @return The content as string
      */
     public static String extractString(Reader reader, int lengthHint) {
-        // read the Reader contents into a buffer and return the complete string
+        // read the Reader contents into a buffer and return the complete string,
+        // the builder is sized by the hint so a large clob is not copied while growing
         final int bufferSize = getSuggestedBufferSize(lengthHint);
-        final StringBuilder stringBuilder = new StringBuilder(bufferSize);
+        final StringBuilder stringBuilder = new StringBuilder(Math.max(lengthHint, 16));
         try {
             char[] buffer = new char[bufferSize];
             while (true) {
@@ -165,11 +178,22 @@ public final class SqlDataHelper {
      * @return The contents as a {@code byte[]}
      */
     public static byte[] extractBytes(InputStream inputStream) {
+        return extractBytes(inputStream, BUFFER_SIZE);
+    }
+
+    /**
+     * Extract by bytes from the given stream.
+     *
+     * @param inputStream The stream of bytes.
+     * @param lengthHint  if the length is known in advance the implementation can be slightly more efficient
+     * @return The contents as a {@code byte[]}
+     */
+    public static byte[] extractBytes(InputStream inputStream, int lengthHint) {
 
         // read the stream contents into a buffer and return the complete byte[]
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(BUFFER_SIZE);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(Math.max(lengthHint, 32));
         try {
-            byte[] buffer = new byte[BUFFER_SIZE];
+            byte[] buffer = new byte[getSuggestedBufferSize(lengthHint)];
             while (true) {
                 int amountRead = inputStream.read(buffer);
                 if (amountRead == -1) {
@@ -205,9 +229,50 @@ public final class SqlDataHelper {
         try {
             final Reader characterStream = value.getCharacterStream();
             final long length = determineLengthForBufferSizing(value);
-            return length > Integer.MAX_VALUE ? extractString(characterStream, Integer.MAX_VALUE) : extractString(characterStream, (int) length);
+            // a length which can not be presized falls back to growing the builder
+            return length > MAX_ARRAY_LENGTH ? extractString(characterStream, BUFFER_SIZE) : extractString(characterStream, (int) length);
+        } catch (SQLException e) {
+            throw new TaraException("Unable to access lob stream", e);
+        }
+    }
+
+    /**
+     * Extract the contents of the given Blob as bytes.
+     * A blob with known length is read into one array without the copy of ByteArrayOutputStream.
+     *
+     * @param value The blob to to be extracted from
+     * @return The contents as a {@code byte[]}
+     */
+    public static byte[] extractBytes(final Blob value) {
+        try {
+            long length;
+            try {
+                length = value.length();
+            } catch (SQLFeatureNotSupportedException e) {
+                return extractBytes(value.getBinaryStream());
+            }
+            if (length > MAX_ARRAY_LENGTH) {
+                throw new TaraException("The blob is too large to be read into an array,length:" + length);
+            }
+            InputStream inputStream = value.getBinaryStream();
+            byte[] bytes = new byte[(int) length];
+            try {
+                int offset = 0;
+                while (offset < bytes.length) {
+                    int amountRead = inputStream.read(bytes, offset, bytes.length - offset);
+                    if (amountRead == -1) {
+                        return Arrays.copyOf(bytes, offset);
+                    }
+                    offset += amountRead;
+                }
+            } finally {
+                inputStream.close();
+            }
+            return bytes;
         } catch (SQLException e) {
             throw new TaraException("Unable to access lob stream", e);
+        } catch (IOException e) {
+            throw new TaraException("IOException occurred reading a binary value", e);
         }
     }
 
@@ -226,13 +291,13 @@ public final class SqlDataHelper {
     }
 
     /**
-     * Make sure we allocate a buffer sized not bigger than 2048,
+     * Make sure we allocate a buffer sized not bigger than 64KB,
      * not higher than what is actually needed, and at least one.
      *
      * @param lengthHint the expected size of the full value
      * @return the buffer size
      */
-    private static int getSuggestedBufferSize(final int lengthHint) {
-        return Math.max(1, Math.min(lengthHint, BUFFER_SIZE));
+    static int getSuggestedBufferSize(final int lengthHint) {
+        return Math.max(1, Math.min(lengthHint, MAX_BUFFER_SIZE));
     }
 }
\ No newline at end of file
@@ -0,0 +1,178 @@
+package com.sondertara.joya.core.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 单个连接上的PreparedStatement LRU缓存
+ * <p>
+ * 只在事务连接上使用,随事务提交、回滚或连接关闭而清空,不是线程安全的
+ *
+ * @author huangxiaohu
+ */
+final class StatementCache {
+
+    private final Connection connection;
+    private final int capacity;
+    private final LinkedHashMap<Key, PreparedStatement> statements;
+    /**
+     * 缓存中的语句,用于释放时判断语句是否被缓存
+     */
+    private final Set<Statement> cached = Collections.newSetFromMap(new IdentityHashMap<>());
+    /**
+     * 正在使用的语句,嵌套执行相同sql时不能复用
+     */
+    private final Set<Statement> inUse = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    StatementCache(Connection connection, int capacity) {
+        this.connection = connection;
+        this.capacity = capacity;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * 获取缓存的语句
+     *
+     * @param key 缓存key
+     * @return 语句,未缓存或已关闭则返回null
+     * @throws SQLException 来自JDBC的异常
+     */
+    PreparedStatement get(Key key) throws SQLException {
+        PreparedStatement stmt = statements.get(key);
+        if (null != stmt && stmt.isClosed()) {
+            statements.remove(key);
+            cached.remove(stmt);
+            inUse.remove(stmt);
+            return null;
+        }
+        return stmt;
+    }
+
+    /**
+     * 缓存语句,超出容量时关闭最久未使用的语句
+     *
+     * @param key  缓存key
+     * @param stmt 语句
+     */
+    void put(Key key, PreparedStatement stmt) {
+        PreparedStatement previous = statements.put(key, stmt);
+        if (null != previous && previous != stmt) {
+            cached.remove(previous);
+            closeQuietly(previous);
+        }
+        cached.add(stmt);
+        if (statements.size() > capacity) {
+            Iterator<Map.Entry<Key, PreparedStatement>> iterator = statements.entrySet().iterator();
+            while (iterator.hasNext()) {
+                PreparedStatement eldest = iterator.next().getValue();
+                if (!inUse.contains(eldest)) {
+                    iterator.remove();
+                    cached.remove(eldest);
+                    closeQuietly(eldest);
+                    break;
+                }
+            }
+        }
+    }
+
+    boolean contains(Statement stmt) {
+        return cached.contains(stmt);
+    }
+
+    /**
+     * 标记语句正在使用
+     *
+     * @param stmt 语句
+     * @return false if the statement is already in use
+     */
+    boolean acquire(Statement stmt) {
+        return inUse.add(stmt);
+    }
+
+    /**
+     * 语句使用完毕,可以再次复用
+     *
+     * @param stmt 语句
+     */
+    void release(Statement stmt) {
+        inUse.remove(stmt);
+    }
+
+    /**
+     * 关闭并清空所有缓存的语句
+     */
+    void clear() {
+        for (PreparedStatement stmt : statements.values()) {
+            closeQuietly(stmt);
+        }
+        statements.clear();
+        cached.clear();
+        inUse.clear();
+    }
+
+    int size() {
+        return statements.size();
+    }
+
+    private static void closeQuietly(Statement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    /**
+     * 缓存key,包括sql、是否返回自增主键以及结果集类型和并发模式
+     */
+    static final class Key {
+        private final String sql;
+        private final boolean generatedKeys;
+        private final int resultSetType;
+        private final int resultSetConcurrency;
+        private final int hash;
+
+        Key(String sql, boolean generatedKeys) {
+            this(sql, generatedKeys, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        }
+
+        Key(String sql, boolean generatedKeys, int resultSetType, int resultSetConcurrency) {
+            this.sql = sql;
+            this.generatedKeys = generatedKeys;
+            this.resultSetType = resultSetType;
+            this.resultSetConcurrency = resultSetConcurrency;
+            this.hash = Objects.hash(sql, generatedKeys, resultSetType, resultSetConcurrency);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return generatedKeys == other.generatedKeys && resultSetType == other.resultSetType
+                    && resultSetConcurrency == other.resultSetConcurrency && sql.equals(other.sql);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.sondertara.joya.core.jdbc;
+
+import java.io.Serializable;
+import java.sql.ResultSet;
+
+/**
+ * JDBC语句参数
+ * <p>
+ * 包括 fetch size、max rows、query timeout 以及结果集类型和并发模式,
+ * 值为null的参数表示未设置,使用{@link JoyaJdbc}的全局默认值
+ * <pre>
+ * joyaJdbc.withOptions(StatementOptions.create().fetchSize(2000).queryTimeout(30)).queryList(sql, User.class);
+ * </pre>
+ *
+ * @author huangxiaohu
+ */
+public class StatementOptions implements Serializable {
+
+    /**
+     * 默认的自适应fetch目标字节数,每次网络往返大约获取1MB数据
+     */
+    public static final int DEFAULT_ADAPTIVE_FETCH_BYTES = 1024 * 1024;
+
+    /**
+     * 每次从数据库获取的行数,未设置时根据行宽自适应
+     */
+    private Integer fetchSize;
+    /**
+     * 最大返回行数,0表示不限制
+     */
+    private Integer maxRows;
+    /**
+     * 查询超时时间(秒),0表示不限制
+     */
+    private Integer queryTimeout;
+    /**
+     * 结果集类型 {@link ResultSet#TYPE_FORWARD_ONLY}
+     */
+    private Integer resultSetType;
+    /**
+     * 结果集并发模式 {@link ResultSet#CONCUR_READ_ONLY}
+     */
+    private Integer resultSetConcurrency;
+    /**
+     * 自适应fetch size时每次往返的目标字节数,0表示关闭自适应
+     */
+    private Integer adaptiveFetchBytes;
+
+    public static StatementOptions create() {
+        return new StatementOptions();
+    }
+
+    /**
+     * 全局默认参数
+     *
+     * @return 默认参数
+     */
+    public static StatementOptions defaults() {
+        return create().maxRows(0)
+                .queryTimeout(0)
+                .resultSetType(ResultSet.TYPE_FORWARD_ONLY)
+                .resultSetConcurrency(ResultSet.CONCUR_READ_ONLY)
+                .adaptiveFetchBytes(DEFAULT_ADAPTIVE_FETCH_BYTES);
+    }
+
+    /**
+     * 使用override中已设置的参数覆盖当前参数,返回新的对象
+     *
+     * @param override 覆盖的参数
+     * @return 合并后的参数
+     */
+    public StatementOptions merge(StatementOptions override) {
+        if (null == override) {
+            override = create();
+        }
+        StatementOptions merged = create();
+        merged.fetchSize = pick(override.fetchSize, this.fetchSize);
+        merged.maxRows = pick(override.maxRows, this.maxRows);
+        merged.queryTimeout = pick(override.queryTimeout, this.queryTimeout);
+        merged.resultSetType = pick(override.resultSetType, this.resultSetType);
+        merged.resultSetConcurrency = pick(override.resultSetConcurrency, this.resultSetConcurrency);
+        merged.adaptiveFetchBytes = pick(override.adaptiveFetchBytes, this.adaptiveFetchBytes);
+        return merged;
+    }
+
+    private static Integer pick(Integer override, Integer value) {
+        return null != override ? override : value;
+    }
+
+    public StatementOptions fetchSize(Integer fetchSize) {
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    public StatementOptions maxRows(Integer maxRows) {
+        this.maxRows = maxRows;
+        return this;
+    }
+
+    public StatementOptions queryTimeout(Integer queryTimeout) {
+        this.queryTimeout = queryTimeout;
+        return this;
+    }
+
+    public StatementOptions resultSetType(Integer resultSetType) {
+        this.resultSetType = resultSetType;
+        return this;
+    }
+
+    public StatementOptions resultSetConcurrency(Integer resultSetConcurrency) {
+        this.resultSetConcurrency = resultSetConcurrency;
+        return this;
+    }
+
+    public StatementOptions adaptiveFetchBytes(Integer adaptiveFetchBytes) {
+        this.adaptiveFetchBytes = adaptiveFetchBytes;
+        return this;
+    }
+
+    public Integer getFetchSize() {
+        return fetchSize;
+    }
+
+    public Integer getMaxRows() {
+        return maxRows;
+    }
+
+    public Integer getQueryTimeout() {
+        return queryTimeout;
+    }
+
+    public Integer getResultSetType() {
+        return resultSetType;
+    }
+
+    public Integer getResultSetConcurrency() {
+        return resultSetConcurrency;
+    }
+
+    public Integer getAdaptiveFetchBytes() {
+        return adaptiveFetchBytes;
+    }
+
+    public boolean isAdaptiveFetch() {
+        return null == fetchSize && null != adaptiveFetchBytes && adaptiveFetchBytes > 0;
+    }
+
+    @Override
+    public String toString() {
+        return "StatementOptions{" +
+                "fetchSize=" + fetchSize +
+                ", maxRows=" + maxRows +
+                ", queryTimeout=" + queryTimeout +
+                ", resultSetType=" + resultSetType +
+                ", resultSetConcurrency=" + resultSetConcurrency +
+                ", adaptiveFetchBytes=" + adaptiveFetchBytes +
+                '}';
+    }
+}
@@ -0,0 +1,317 @@
+package com.sondertara.joya.core.jdbc.mapper;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.sondertara.common.util.StringUtils;
+import com.sondertara.joya.cache.TableClassCache;
+import com.sondertara.joya.core.jdbc.DbException;
+import com.sondertara.joya.core.jdbc.Row;
+import com.sondertara.joya.utils.PageSqlCache;
+
+import javax.persistence.Entity;
+import javax.persistence.Table;
+import java.beans.IntrospectionException;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * 预编译的行映射计划
+ * <p>
+ * 每个(JavaBean类型, 结果集列标签)组合只解析一次属性、setter和类型转换器,
+ * 之后每行只需要创建JavaBean并依次调用setter.基本类型的属性通过Row的类型化方法读取,不装箱
+ *
+ * @author huangxiaohu
+ */
+final class BeanMappingPlan<T> {
+
+    private static final int MAX_CACHED_PLANS = 1024;
+
+    private static final Cache<PlanKey, BeanMappingPlan<?>> PLANS = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_PLANS).build();
+
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+    private final MethodHandle constructor;
+    private final ColumnBinder[] binders;
+
+    private BeanMappingPlan(MethodHandle constructor, ColumnBinder[] binders) {
+        this.constructor = constructor;
+        this.binders = binders;
+    }
+
+    /**
+     * 获取JavaBean类型在当前结果集上的映射计划
+     *
+     * @param type JavaBean类型
+     * @param row  当前行
+     * @param <T>  JavaBean类型
+     * @return 映射计划
+     */
+    @SuppressWarnings("unchecked")
+    static <T> BeanMappingPlan<T> of(Class<T> type, Row row) {
+        String[] labels = row.getColumnLabels();
+        BeanMappingPlan<?> plan = PLANS.getIfPresent(new PlanKey(type, labels));
+        if (null == plan) {
+            String[] copy = labels.clone();
+            plan = compile(type, copy);
+            PLANS.put(new PlanKey(type, copy), plan);
+        }
+        return (BeanMappingPlan<T>) plan;
+    }
+
+    /**
+     * 将一行数据转换成JavaBean
+     *
+     * @param row 当前行
+     * @return JavaBean
+     */
+    @SuppressWarnings("unchecked")
+    T map(Row row) {
+        try {
+            T bean = (T) constructor.invokeExact();
+            for (int i = 0; i < binders.length; i++) {
+                binders[i].bind(bean, row, i + 1);
+            }
+            return bean;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    private static <T> BeanMappingPlan<T> compile(Class<T> type, String[] labels) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            Constructor<T> declaredConstructor = type.getDeclaredConstructor();
+            declaredConstructor.setAccessible(true);
+            MethodHandle constructor = lookup.unreflectConstructor(declaredConstructor).asType(CONSTRUCTOR_TYPE);
+
+            Map<String, String> relation = null;
+            if (type.isAnnotationPresent(Table.class) || type.isAnnotationPresent(Entity.class)) {
+                relation = TableClassCache.getInstance().getTable(type.getDeclaredConstructor().newInstance(), false).getRelation();
+            }
+            ColumnBinder[] binders = new ColumnBinder[labels.length];
+            for (int i = 0; i < labels.length; i++) {
+                if (PageSqlCache.ROWNUM_COLUMN.equalsIgnoreCase(labels[i])) {
+                    // the rownum column of the Oracle page sql is not a column of the query
+                    binders[i] = ColumnBinder.SKIP;
+                    continue;
+                }
+                String propertyName;
+                if (null != relation) {
+                    propertyName = relation.get(labels[i].toLowerCase());
+                } else {
+                    propertyName = StringUtils.toCamelCase(labels[i]);
+                }
+                //the jdk bug,don`t remove the String convert.
+                PropertyDescriptor pd = new PropertyDescriptor((String) propertyName, type);
+                Method writeMethod = pd.getWriteMethod();
+                writeMethod.setAccessible(true);
+                binders[i] = binderFor(lookup.unreflect(writeMethod), pd.getPropertyType());
+            }
+            return new BeanMappingPlan<>(constructor, binders);
+        } catch (IntrospectionException e) {
+            throw new DbException("No writable property found for class " + type.getName() + " with columns " + Arrays.toString(labels), e);
+        } catch (ReflectiveOperationException e) {
+            throw new DbException("Can not compile the row mapping for class " + type.getName(), e);
+        }
+    }
+
+    /**
+     * 根据属性类型提前选定列值的读取和设置方式,基本类型直接调用对应类型的setter
+     *
+     * @param setter       属性的setter
+     * @param propertyType 属性类型
+     * @return 列绑定
+     */
+    private static ColumnBinder binderFor(MethodHandle setter, Class<?> propertyType) throws IllegalAccessException {
+        if (propertyType.isPrimitive()) {
+            MethodHandle typed = setter.asType(MethodType.methodType(void.class, Object.class, propertyType));
+            if (boolean.class.equals(propertyType)) {
+                return (bean, row, index) -> {
+                    typed.invokeExact(bean, row.getBoolean(index));
+                };
+            }
+            if (int.class.equals(propertyType)) {
+                return (bean, row, index) -> {
+                    typed.invokeExact(bean, row.getInt(index));
+                };
+            }
+            if (long.class.equals(propertyType)) {
+                return (bean, row, index) -> {
+                    typed.invokeExact(bean, row.getLong(index));
+                };
+            }
+            if (double.class.equals(propertyType)) {
+                return (bean, row, index) -> {
+                    typed.invokeExact(bean, row.getDouble(index));
+                };
+            }
+            if (short.class.equals(propertyType)) {
+                return (bean, row, index) -> {
+                    typed.invokeExact(bean, (short) row.getInt(index));
+                };
+            }
+            if (byte.class.equals(propertyType)) {
+                return (bean, row, index) -> {
+                    typed.invokeExact(bean, (byte) row.getInt(index));
+                };
+            }
+            if (float.class.equals(propertyType)) {
+                return (bean, row, index) -> {
+                    typed.invokeExact(bean, (float) row.getDouble(index));
+                };
+            }
+        }
+        MethodHandle generic = setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+        ColumnReader reader = readerFor(propertyType);
+        return (bean, row, index) -> {
+            generic.invokeExact(bean, reader.read(row, index));
+        };
+    }
+
+    /**
+     * 根据属性类型提前选定列值转换器
+     *
+     * @param propertyType 引用类型的属性
+     * @return 列值转换器
+     */
+    private static ColumnReader readerFor(Class<?> propertyType) throws IllegalAccessException {
+        if (Boolean.class.equals(propertyType)) {
+            return Row::getBoolean;
+        }
+        if (Date.class.equals(propertyType)) {
+            return Row::getDate;
+        }
+        if (BigDecimal.class.equals(propertyType)) {
+            return Row::getBigDecimal;
+        }
+        if (Number.class.isAssignableFrom(propertyType)) {
+            MethodHandle fromString;
+            try {
+                fromString = MethodHandles.publicLookup().findConstructor(propertyType, MethodType.methodType(void.class, String.class));
+            } catch (NoSuchMethodException e) {
+                return Row::getObject;
+            }
+            return (row, index) -> {
+                Object value = row.getObject(index);
+                if (null == value || propertyType.isInstance(value)) {
+                    return value;
+                }
+                Object number = readNumber(value, propertyType);
+                if (null != number) {
+                    return number;
+                }
+                try {
+                    return fromString.invoke(value.toString());
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new RuntimeException(e.getMessage(), e);
+                }
+            };
+        }
+        return Row::getObject;
+    }
+
+    /**
+     * 常用包装类型直接从Number转换,避免toString后再解析
+     */
+    private static Object readNumber(Object value, Class<?> type) {
+        if (!(value instanceof Number)) {
+            return null;
+        }
+        Number number = (Number) value;
+        if (Integer.class.equals(type)) {
+            return number.intValue();
+        } else if (Long.class.equals(type)) {
+            return number.longValue();
+        } else if (Double.class.equals(type)) {
+            return number.doubleValue();
+        } else if (Float.class.equals(type)) {
+            return number.floatValue();
+        } else if (Short.class.equals(type)) {
+            return number.shortValue();
+        } else if (Byte.class.equals(type)) {
+            return number.byteValue();
+        }
+        return null;
+    }
+
+    /**
+     * 列绑定:读取列值并设置到JavaBean
+     */
+    @FunctionalInterface
+    private interface ColumnBinder {
+        /**
+         * the column without property
+         */
+        ColumnBinder SKIP = (bean, row, index) -> {
+        };
+
+        /**
+         * 读取列值并调用setter
+         *
+         * @param bean  JavaBean
+         * @param row   当前行
+         * @param index 列索引(从1开始)
+         * @throws Throwable setter的异常
+         */
+        void bind(Object bean, Row row, int index) throws Throwable;
+    }
+
+    /**
+     * 列值读取器
+     */
+    @FunctionalInterface
+    private interface ColumnReader {
+        /**
+         * 读取列值
+         *
+         * @param row   当前行
+         * @param index 列索引(从1开始)
+         * @return 转换后的列值
+         */
+        Object read(Row row, int index);
+    }
+
+    /**
+     * 映射计划的缓存key
+     */
+    private static final class PlanKey {
+        private final Class<?> type;
+        private final String[] labels;
+        private final int hash;
+
+        private PlanKey(Class<?> type, String[] labels) {
+            this.type = type;
+            this.labels = labels;
+            this.hash = 31 * type.hashCode() + Arrays.hashCode(labels);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PlanKey)) {
+                return false;
+            }
+            PlanKey other = (PlanKey) o;
+            return type.equals(other.type) && Arrays.equals(labels, other.labels);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -1,65 +1,50 @@
 package com.sondertara.joya.core.jdbc.mapper;
 
-import com.sondertara.common.util.StringUtils;
-import com.sondertara.joya.cache.TableClassCache;
 import com.sondertara.joya.core.jdbc.Row;
-import com.sondertara.joya.core.model.TableEntity;
 
-import javax.persistence.Entity;
-import javax.persistence.Table;
-import java.beans.PropertyDescriptor;
-import java.lang.reflect.Method;
-import java.util.Date;
+import java.lang.ref.WeakReference;
 
 /**
  * 将一行数据转换成JavaBean
+ * <p>
+ * 映射计划按(JavaBean类型, 结果集列标签)缓存,同一个结果集只在第一行解析一次.
+ * 实例可以在多个线程间共享
  *
  * @author huangxiaohu
  */
 public class BeanRowMapper<T> implements RowMapper<T> {
     private final Class<T> type;
 
+    /**
+     * the plan of the last row(result set)
+     */
+    private volatile BoundPlan<T> plan;
+
     public BeanRowMapper(Class<T> type) {
         this.type = type;
     }
 
     @Override
     public T map(Row row) {
-        try {
-            int count = row.getColumnCount();
-            T bean = type.getDeclaredConstructor().newInstance();
-            TableEntity tableEntity = null;
-            if (type.isAnnotationPresent(Table.class) || type.isAnnotationPresent(Entity.class)) {
-                tableEntity = TableClassCache.getInstance().getTable(bean, false);
-            }
-            for (int i = 1; i <= count; i++) {
-                String propertyName;
-                if (null != tableEntity) {
-                    propertyName = tableEntity.getRelation().get(row.getColumnLabel(i).toLowerCase());
-                } else {
-                    propertyName = StringUtils.toCamelCase(row.getColumnLabel(i));
-                }
-                //the jdk bug,don`t remove the String convert.
-                PropertyDescriptor pd = new PropertyDescriptor((String) propertyName, type);
-                Class<?> propertyType = pd.getPropertyType();
-                Object value;
-                if (Number.class.isAssignableFrom(propertyType)) {
-                    value = propertyType.getConstructor(String.class).newInstance(row.getObject(i).toString());
-                } else if (propertyType.equals(Boolean.class) || propertyType.equals(boolean.class)) {
-                    value = row.getBoolean(i);
-                } else if (Date.class.equals(propertyType)) {
-                    value = row.getDate(i);
-                } else {
-                    value = row.getObject(i);
-                }
-                Method setter = pd.getWriteMethod();
-                if (null != setter) {
-                    setter.invoke(bean, value);
-                }
-            }
-            return bean;
-        } catch (Exception e) {
-            throw new RuntimeException(e.getMessage(), e);
+        BoundPlan<T> current = this.plan;
+        if (null == current || row != current.row.get()) {
+            current = new BoundPlan<>(row, BeanMappingPlan.of(type, row));
+            this.plan = current;
+        }
+        return current.plan.map(row);
+    }
+
+    /**
+     * the plan and the row which it is compiled for,
+     * the row is weakly referenced so that the result set is not kept reachable by a shared mapper
+     */
+    private static final class BoundPlan<T> {
+        private final WeakReference<Row> row;
+        private final BeanMappingPlan<T> plan;
+
+        private BoundPlan(Row row, BeanMappingPlan<T> plan) {
+            this.row = new WeakReference<>(row);
+            this.plan = plan;
         }
     }
 }
@@ -0,0 +1,24 @@
+package com.sondertara.joya.core.jdbc.mapper;
+
+import com.sondertara.joya.core.jdbc.ColumnarResult;
+import com.sondertara.joya.core.jdbc.Record;
+import com.sondertara.joya.core.jdbc.Row;
+
+/**
+ * 将结果集转换成按列存储的{@link ColumnarResult}
+ *
+ * @author huangxiaohu
+ */
+public class ColumnarRecordMapper implements RecordMapper<ColumnarResult> {
+
+    @Override
+    public ColumnarResult map(Record record) {
+        // the labels,types and class names are read when the cursor opens,so they are available without rows
+        Row row = record.getCurrentRow();
+        ColumnarResult.Builder builder = ColumnarResult.builder(row.getColumnLabels(), row.getColumnTypes(), row.getColumnClassNames());
+        while (record.hasMore()) {
+            builder.add(record.getCurrentRow());
+        }
+        return builder.build();
+    }
+}
@@ -1,10 +1,12 @@
 package com.sondertara.joya.core.jdbc.mapper;
 
+import com.sondertara.joya.core.jdbc.LobHandle;
 import com.sondertara.joya.core.jdbc.Row;
 import com.sondertara.joya.core.jdbc.SqlDataHelper;
 import lombok.extern.slf4j.Slf4j;
 import oracle.sql.TIMESTAMP;
 
+import java.sql.Blob;
 import java.sql.Clob;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -16,16 +18,36 @@ import java.util.Map;
  */
 @Slf4j
 public class MapRowMapper implements RowMapper<Map<String, Object>> {
+
+    /**
+     * 是否将CLOB/BLOB转换成{@link LobHandle}
+     */
+    private final boolean lazyLob;
+
+    public MapRowMapper() {
+        this(false);
+    }
+
+    /**
+     * @param lazyLob true将CLOB/BLOB转换成{@link LobHandle},按需读取;
+     *                lob只在连接打开期间可读,需要配合{@link com.sondertara.joya.core.jdbc.JoyaJdbc#stream}或事务使用
+     */
+    public MapRowMapper(boolean lazyLob) {
+        this.lazyLob = lazyLob;
+    }
+
     @Override
     public Map<String, Object> map(Row row) {
-        Map<String, Object> map = new LinkedHashMap<>();
-        int count = row.getColumnCount();
-        for (int i = 1; i <= count; i++) {
-            String key = row.getColumnLabel(i);
+        String[] labels = row.getColumnLabels();
+        Map<String, Object> map = new LinkedHashMap<>((int) (labels.length / 0.75f) + 1);
+        for (int i = 1; i <= labels.length; i++) {
+            String key = labels[i - 1];
             Object value = row.getObject(i);
             if (null != value) {
                 if (SqlDataHelper.isClob(value.getClass())) {
-                    value = SqlDataHelper.extractString((Clob) value);
+                    value = lazyLob ? LobHandle.of((Clob) value) : SqlDataHelper.extractString((Clob) value);
+                } else if (value instanceof Blob) {
+                    value = lazyLob ? LobHandle.of((Blob) value) : SqlDataHelper.extractBytes((Blob) value);
                 } else if (value instanceof TIMESTAMP) {
                     value = SqlDataHelper.extractDate(value);
                 }
@@ -25,4 +25,8 @@ public final class TableStructDef implements Serializable {
      * value: the table columnName
      */
     private Map<String, String> fields;
+    /**
+     * the column name of primary key
+     */
+    private String primaryKey;
 }
@@ -2,6 +2,7 @@ package com.sondertara.joya.core.query;
 
 
 import com.sondertara.joya.core.builder.SelectBuilder;
+import com.sondertara.joya.utils.PageSqlCache;
 import com.sondertara.joya.utils.SqlUtils;
 
 import java.util.List;
@@ -24,13 +25,22 @@ public class NativeSqlQuery {
      * 占位符对应的参数值
      */
     private List<Object> params;
+    /**
+     * 构建器优化的count语句,参数与查询语句相同
+     */
+    private String countSql;
 
 
     private NativeSqlQuery() {
     }
 
     protected NativeSqlQuery(String sqlStr, List<Object> params) {
+        this(sqlStr, null, params);
+    }
+
+    protected NativeSqlQuery(String sqlStr, String countSql, List<Object> params) {
         this.sqlStr = sqlStr;
+        this.countSql = countSql;
         this.params = params;
     }
 
@@ -57,6 +67,15 @@ public class NativeSqlQuery {
         return params;
     }
 
+    /**
+     * 获取count语句
+     *
+     * @return 构建器优化的count语句,没有则由查询语句推导
+     */
+    public String getCountSql() {
+        return null == countSql ? PageSqlCache.countSql(this.sqlStr) : countSql;
+    }
+
     @Override
     public String toString() {
         return "NativeSqlQuery{" + this.toSql() + "}";
@@ -1,7 +1,6 @@
 package com.sondertara.joya.core.query;
 
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import com.sondertara.common.exception.TaraException;
 import com.sondertara.common.function.TaraFunction;
 import com.sondertara.common.lang.tree.NodeList;
@@ -9,6 +8,8 @@ import com.sondertara.common.util.CollectionUtils;
 import com.sondertara.common.util.StringFormatter;
 import com.sondertara.common.util.StringUtils;
 import com.sondertara.joya.cache.AliasCacheHelper;
+import com.sondertara.joya.cache.AliasContext;
+import com.sondertara.joya.cache.LocalEntityCache;
 import com.sondertara.joya.core.builder.ExtPartBuilder;
 import com.sondertara.joya.core.builder.FromBuilder;
 import com.sondertara.joya.core.builder.SelectBuilder;
@@ -22,7 +23,6 @@ import com.sondertara.joya.core.query.criterion.SelectCriterion;
 import com.sondertara.joya.core.query.criterion.WhereCriterion;
 import com.sondertara.joya.core.query.pagination.OrderParam;
 import com.sondertara.joya.utils.SqlUtils;
-import com.sondertara.joya.utils.ThreadLocalUtil;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -68,8 +68,21 @@ public class NativeSqlQueryBuilder implements SelectBuilder, FromBuilder, WhereB
      */
     private List<Object> params;
 
+    /**
+     * 当前查询的表别名
+     */
+    private final AliasContext aliasContext;
+
+    /**
+     * join的主表和关联的表,用于生成count语句
+     */
+    private ColumnAlias joinFirst;
+    private List<JoinPart> joinParts;
+    private String whereClause;
+    private String havingClause;
+
     public NativeSqlQueryBuilder() {
-        ThreadLocalUtil.put(JoyaConst.JOYA_SQL, Maps.newLinkedHashMap());
+        this.aliasContext = new AliasContext();
         this.orderBy = new ArrayList<>();
     }
 
@@ -117,7 +130,7 @@ public class NativeSqlQueryBuilder implements SelectBuilder, FromBuilder, WhereB
      */
     @Override
     public <T> FromBuilder select(TaraFunction<T, ?> f1) {
-        this.select = AliasCacheHelper.getColumn(f1).getColumnAlias();
+        this.select = AliasCacheHelper.getColumn(aliasContext, f1).getColumnAlias();
         return this;
     }
 
@@ -132,77 +145,77 @@ public class NativeSqlQueryBuilder implements SelectBuilder, FromBuilder, WhereB
     @Override
     public <T1, T2> FromBuilder select(TaraFunction<T1, ?> f1, TaraFunction<T2, ?> f2) {
         StringJoiner sj = new StringJoiner(", ");
-        this.select = sj.add(AliasCacheHelper.getColumn(f1).getColumnAlias()).add(AliasCacheHelper.getColumn(f2).getColumnAlias()).toString();
+        this.select = sj.add(AliasCacheHelper.getColumn(aliasContext, f1).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f2).getColumnAlias()).toString();
         return this;
     }
 
     @Override
     public <T1, T2, T3> FromBuilder select(TaraFunction<T1, ?> f1, TaraFunction<T2, ?> f2, TaraFunction<T3, ?> f3) {
         StringJoiner sj = new StringJoiner(", ");
-        this.select = sj.add(AliasCacheHelper.getColumn(f1).getColumnAlias()).add(AliasCacheHelper.getColumn(f2).getColumnAlias()).add(AliasCacheHelper.getColumn(f3).getColumnAlias()).toString();
+        this.select = sj.add(AliasCacheHelper.getColumn(aliasContext, f1).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f2).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f3).getColumnAlias()).toString();
         return this;
     }
 
     @Override
     public <T1, T2, T3, T4> FromBuilder select(TaraFunction<T1, ?> f1, TaraFunction<T2, ?> f2, TaraFunction<T3, ?> f3, TaraFunction<T4, ?> f4) {
         StringJoiner sj = new StringJoiner(", ");
-        this.select = sj.add(AliasCacheHelper.getColumn(f1).getColumnAlias()).add(AliasCacheHelper.getColumn(f2).getColumnAlias()).add(AliasCacheHelper.getColumn(f3).getColumnAlias()).add(AliasCacheHelper.getColumn(f4).getColumnAlias()).toString();
+        this.select = sj.add(AliasCacheHelper.getColumn(aliasContext, f1).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f2).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f3).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f4).getColumnAlias()).toString();
         return this;
     }
 
     @Override
     public <T1, T2, T3, T4, T5> FromBuilder select(TaraFunction<T1, ?> f1, TaraFunction<T2, ?> f2, TaraFunction<T3, ?> f3, TaraFunction<T4, ?> f4, TaraFunction<T5, ?> f5) {
         StringJoiner sj = new StringJoiner(", ");
-        this.select = sj.add(AliasCacheHelper.getColumn(f1).getColumnAlias()).add(AliasCacheHelper.getColumn(f2).getColumnAlias()).add(AliasCacheHelper.getColumn(f3).getColumnAlias()).add(AliasCacheHelper.getColumn(f4).getColumnAlias()).add(AliasCacheHelper.getColumn(f5).getColumnAlias()).toString();
+        this.select = sj.add(AliasCacheHelper.getColumn(aliasContext, f1).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f2).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f3).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f4).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f5).getColumnAlias()).toString();
         return this;
     }
 
     @Override
     public <T1, T2, T3, T4, T5, T6> FromBuilder select(TaraFunction<T1, ?> f1, TaraFunction<T2, ?> f2, TaraFunction<T3, ?> f3, TaraFunction<T4, ?> f4, TaraFunction<T5, ?> f5, TaraFunction<T6, ?> f6) {
         StringJoiner sj = new StringJoiner(", ");
-        this.select = sj.add(AliasCacheHelper.getColumn(f1).getColumnAlias()).add(AliasCacheHelper.getColumn(f2).getColumnAlias()).add(AliasCacheHelper.getColumn(f3).getColumnAlias()).add(AliasCacheHelper.getColumn(f4).getColumnAlias()).add(AliasCacheHelper.getColumn(f5).getColumnAlias()).add(AliasCacheHelper.getColumn(f6).getColumnAlias()).toString();
+        this.select = sj.add(AliasCacheHelper.getColumn(aliasContext, f1).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f2).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f3).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f4).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f5).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f6).getColumnAlias()).toString();
         return this;
     }
 
     @Override
     public <T1, T2, T3, T4, T5, T6, T7> FromBuilder select(TaraFunction<T1, ?> f1, TaraFunction<T2, ?> f2, TaraFunction<T3, ?> f3, TaraFunction<T4, ?> f4, TaraFunction<T5, ?> f5, TaraFunction<T6, ?> f6, TaraFunction<T7, ?> f7) {
         StringJoiner sj = new StringJoiner(", ");
-        this.select = sj.add(AliasCacheHelper.getColumn(f1).getColumnAlias()).add(AliasCacheHelper.getColumn(f2).getColumnAlias()).add(AliasCacheHelper.getColumn(f3).getColumnAlias()).add(AliasCacheHelper.getColumn(f4).getColumnAlias()).add(AliasCacheHelper.getColumn(f5).getColumnAlias()).add(AliasCacheHelper.getColumn(f6).getColumnAlias()).add(AliasCacheHelper.getColumn(f7).getColumnAlias()).toString();
+        this.select = sj.add(AliasCacheHelper.getColumn(aliasContext, f1).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f2).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f3).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f4).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f5).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f6).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f7).getColumnAlias()).toString();
         return this;
     }
 
     @Override
     public <T1, T2, T3, T4, T5, T6, T7, T8> FromBuilder select(TaraFunction<T1, ?> f1, TaraFunction<T2, ?> f2, TaraFunction<T3, ?> f3, TaraFunction<T4, ?> f4, TaraFunction<T5, ?> f5, TaraFunction<T6, ?> f6, TaraFunction<T7, ?> f7, TaraFunction<T8, ?> f8) {
         StringJoiner sj = new StringJoiner(", ");
-        this.select = sj.add(AliasCacheHelper.getColumn(f1).getColumnAlias()).add(AliasCacheHelper.getColumn(f2).getColumnAlias()).add(AliasCacheHelper.getColumn(f3).getColumnAlias()).add(AliasCacheHelper.getColumn(f4).getColumnAlias()).add(AliasCacheHelper.getColumn(f5).getColumnAlias()).add(AliasCacheHelper.getColumn(f6).getColumnAlias()).add(AliasCacheHelper.getColumn(f7).getColumnAlias()).add(AliasCacheHelper.getColumn(f8).getColumnAlias()).toString();
+        this.select = sj.add(AliasCacheHelper.getColumn(aliasContext, f1).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f2).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f3).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f4).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f5).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f6).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f7).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f8).getColumnAlias()).toString();
         return this;
     }
 
     @Override
     public <T1, T2, T3, T4, T5, T6, T7, T8, T9> FromBuilder select(TaraFunction<T1, ?> f1, TaraFunction<T2, ?> f2, TaraFunction<T3, ?> f3, TaraFunction<T4, ?> f4, TaraFunction<T5, ?> f5, TaraFunction<T6, ?> f6, TaraFunction<T7, ?> f7, TaraFunction<T8, ?> f8, TaraFunction<T9, ?> f9) {
         StringJoiner sj = new StringJoiner(", ");
-        this.select = sj.add(AliasCacheHelper.getColumn(f1).getColumnAlias()).add(AliasCacheHelper.getColumn(f2).getColumnAlias()).add(AliasCacheHelper.getColumn(f3).getColumnAlias()).add(AliasCacheHelper.getColumn(f4).getColumnAlias()).add(AliasCacheHelper.getColumn(f5).getColumnAlias()).add(AliasCacheHelper.getColumn(f6).getColumnAlias()).add(AliasCacheHelper.getColumn(f7).getColumnAlias()).add(AliasCacheHelper.getColumn(f8).getColumnAlias()).add(AliasCacheHelper.getColumn(f9).getColumnAlias()).toString();
+        this.select = sj.add(AliasCacheHelper.getColumn(aliasContext, f1).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f2).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f3).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f4).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f5).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f6).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f7).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f8).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f9).getColumnAlias()).toString();
         return this;
     }
 
     @Override
     public <T1, T2, T3, T4, T5, T6, T7, T8, T9, T10> FromBuilder select(TaraFunction<T1, ?> f1, TaraFunction<T2, ?> f2, TaraFunction<T3, ?> f3, TaraFunction<T4, ?> f4, TaraFunction<T5, ?> f5, TaraFunction<T6, ?> f6, TaraFunction<T7, ?> f7, TaraFunction<T8, ?> f8, TaraFunction<T9, ?> f9, TaraFunction<T10, ?> f10) {
         StringJoiner sj = new StringJoiner(", ");
-        this.select = sj.add(AliasCacheHelper.getColumn(f1).getColumnAlias()).add(AliasCacheHelper.getColumn(f2).getColumnAlias()).add(AliasCacheHelper.getColumn(f3).getColumnAlias()).add(AliasCacheHelper.getColumn(f4).getColumnAlias()).add(AliasCacheHelper.getColumn(f5).getColumnAlias()).add(AliasCacheHelper.getColumn(f6).getColumnAlias()).add(AliasCacheHelper.getColumn(f7).getColumnAlias()).add(AliasCacheHelper.getColumn(f8).getColumnAlias()).add(AliasCacheHelper.getColumn(f9).getColumnAlias()).add(AliasCacheHelper.getColumn(f10).getColumnAlias()).toString();
+        this.select = sj.add(AliasCacheHelper.getColumn(aliasContext, f1).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f2).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f3).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f4).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f5).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f6).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f7).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f8).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f9).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f10).getColumnAlias()).toString();
         return this;
     }
 
     @Override
     public <T1, T2, T3, T4, T5, T6, T7, T8, T9, T10, T11> FromBuilder select(TaraFunction<T1, ?> f1, TaraFunction<T2, ?> f2, TaraFunction<T3, ?> f3, TaraFunction<T4, ?> f4, TaraFunction<T5, ?> f5, TaraFunction<T6, ?> f6, TaraFunction<T7, ?> f7, TaraFunction<T8, ?> f8, TaraFunction<T9, ?> f9, TaraFunction<T10, ?> f10, TaraFunction<T11, ?> f11) {
         StringJoiner sj = new StringJoiner(", ");
-        this.select = sj.add(AliasCacheHelper.getColumn(f1).getColumnAlias()).add(AliasCacheHelper.getColumn(f2).getColumnAlias()).add(AliasCacheHelper.getColumn(f3).getColumnAlias()).add(AliasCacheHelper.getColumn(f4).getColumnAlias()).add(AliasCacheHelper.getColumn(f5).getColumnAlias()).add(AliasCacheHelper.getColumn(f6).getColumnAlias()).add(AliasCacheHelper.getColumn(f7).getColumnAlias()).add(AliasCacheHelper.getColumn(f8).getColumnAlias()).add(AliasCacheHelper.getColumn(f9).getColumnAlias()).add(AliasCacheHelper.getColumn(f10).getColumnAlias()).add(AliasCacheHelper.getColumn(f11).getColumnAlias()).toString();
+        this.select = sj.add(AliasCacheHelper.getColumn(aliasContext, f1).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f2).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f3).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f4).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f5).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f6).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f7).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f8).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f9).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f10).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f11).getColumnAlias()).toString();
         return this;
     }
 
     @Override
     public <T1, T2, T3, T4, T5, T6, T7, T8, T9, T10, T11, T12> FromBuilder select(TaraFunction<T1, ?> f1, TaraFunction<T2, ?> f2, TaraFunction<T3, ?> f3, TaraFunction<T4, ?> f4, TaraFunction<T5, ?> f5, TaraFunction<T6, ?> f6, TaraFunction<T7, ?> f7, TaraFunction<T8, ?> f8, TaraFunction<T9, ?> f9, TaraFunction<T10, ?> f10, TaraFunction<T11, ?> f11, TaraFunction<T12, ?> f12) {
         StringJoiner sj = new StringJoiner(", ");
-        this.select = sj.add(AliasCacheHelper.getColumn(f1).getColumnAlias()).add(AliasCacheHelper.getColumn(f2).getColumnAlias()).add(AliasCacheHelper.getColumn(f3).getColumnAlias()).add(AliasCacheHelper.getColumn(f4).getColumnAlias()).add(AliasCacheHelper.getColumn(f5).getColumnAlias()).add(AliasCacheHelper.getColumn(f6).getColumnAlias()).add(AliasCacheHelper.getColumn(f7).getColumnAlias()).add(AliasCacheHelper.getColumn(f8).getColumnAlias()).add(AliasCacheHelper.getColumn(f9).getColumnAlias()).add(AliasCacheHelper.getColumn(f10).getColumnAlias()).add(AliasCacheHelper.getColumn(f11).getColumnAlias()).add(AliasCacheHelper.getColumn(f12).getColumnAlias()).toString();
+        this.select = sj.add(AliasCacheHelper.getColumn(aliasContext, f1).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f2).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f3).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f4).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f5).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f6).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f7).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f8).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f9).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f10).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f11).getColumnAlias()).add(AliasCacheHelper.getColumn(aliasContext, f12).getColumnAlias()).toString();
         return this;
     }
 
@@ -214,7 +227,7 @@ public class NativeSqlQueryBuilder implements SelectBuilder, FromBuilder, WhereB
      */
     @Override
     public FromBuilder select(UnaryOperator<SelectCriterion> func) {
-        SelectCriterion selectFields = func.apply(new SelectCriterion());
+        SelectCriterion selectFields = func.apply(new SelectCriterion(aliasContext));
         this.select = selectFields.getSelectFields();
         return this;
     }
@@ -239,7 +252,7 @@ public class NativeSqlQueryBuilder implements SelectBuilder, FromBuilder, WhereB
                     throw new TaraException("The table alias name will generate by default,so don`t allocate the alias");
                 }
                 sj.add(s1);
-                AliasCacheHelper.generateTableAlias(s1);
+                AliasCacheHelper.generateTableAlias(aliasContext, s1);
             }
         }
         this.from = sj.toString();
@@ -256,7 +269,7 @@ public class NativeSqlQueryBuilder implements SelectBuilder, FromBuilder, WhereB
     public WhereBuilder from(Class<?>... clazz) {
         for (Class<?> aClass : clazz) {
             //表别名
-            AliasCacheHelper.generateTableAlias(aClass);
+            AliasCacheHelper.generateTableAlias(aliasContext, aClass);
         }
         return this;
     }
@@ -270,7 +283,7 @@ public class NativeSqlQueryBuilder implements SelectBuilder, FromBuilder, WhereB
     @Override
     public WhereBuilder from(UnaryOperator<JoinCriterion> func) {
 
-        this.joinCriterion = func.apply(new JoinCriterion());
+        this.joinCriterion = func.apply(new JoinCriterion(aliasContext));
         return this;
     }
 
@@ -281,7 +294,7 @@ public class NativeSqlQueryBuilder implements SelectBuilder, FromBuilder, WhereB
     @Override
     public ExtPartBuilder where(UnaryOperator<WhereCriterion> func) {
         // 条件之间 用 and 连接
-        this.where = func.apply(new WhereCriterion(WhereCriterion.Operator.AND));
+        this.where = func.apply(new WhereCriterion(aliasContext, WhereCriterion.Operator.AND));
         return this;
     }
 
@@ -297,9 +310,9 @@ public class NativeSqlQueryBuilder implements SelectBuilder, FromBuilder, WhereB
     public ExtPartBuilder where(UnaryOperator<WhereCriterion> func, boolean linkOr) {
         // 条件之间 用 or 连接
         if (linkOr) {
-            this.where = func.apply(new WhereCriterion(WhereCriterion.Operator.OR));
+            this.where = func.apply(new WhereCriterion(aliasContext, WhereCriterion.Operator.OR));
         } else {
-            this.where = func.apply(new WhereCriterion(WhereCriterion.Operator.AND));
+            this.where = func.apply(new WhereCriterion(aliasContext, WhereCriterion.Operator.AND));
         }
         return this;
     }
@@ -321,7 +334,7 @@ public class NativeSqlQueryBuilder implements SelectBuilder, FromBuilder, WhereB
     @Override
     public ExtPartBuilder having(UnaryOperator<WhereCriterion> func) {
         // 条件之间 用 and 连接
-        this.having = func.apply(new WhereCriterion(WhereCriterion.Operator.AND));
+        this.having = func.apply(new WhereCriterion(aliasContext, WhereCriterion.Operator.AND));
         return this;
     }
 
@@ -333,7 +346,7 @@ public class NativeSqlQueryBuilder implements SelectBuilder, FromBuilder, WhereB
      */
     @Override
     public <T> ExtPartBuilder orderBy(TaraFunction<T, ?> fn, OrderParam.OrderBy orderBy) {
-        String column = AliasCacheHelper.getColumn(fn).getColumnAlias();
+        String column = AliasCacheHelper.getColumn(aliasContext, fn).getColumnAlias();
         this.orderBy.add(StringFormatter.format("{} {}", column, orderBy.toString()));
 
         return this;
@@ -363,17 +376,12 @@ public class NativeSqlQueryBuilder implements SelectBuilder, FromBuilder, WhereB
             if ((nodeList.getSize() / join.size()) != JoyaConst.TWO_QUERY_COUNT) {
                 throw new TaraException("The join part is incorrect!");
             }
-            StringJoiner sb = new StringJoiner(" ");
             if (!nodeList.isEmpty()) {
 
                 ColumnAlias first = nodeList.getFirst();
                 ColumnAlias second = nodeList.get(1);
-
-                sb.add(first.getTableName()).add(" ").add(first.getTableAlias());
-                sb.add(join.get(0));
-                sb.add(second.getTableName()).add(" ").add(second.getTableAlias());
-                sb.add("ON");
-                sb.add(first.getColumnAlias()).add("=").add(second.getColumnAlias());
+                this.joinParts = new ArrayList<>(2);
+                joinParts.add(new JoinPart(join.get(0), first, second));
                 if (nodeList.getSize() > JoyaConst.TWO_QUERY_COUNT) {
                     ColumnAlias third = nodeList.get(2);
                     ColumnAlias forth = nodeList.get(3);
@@ -383,14 +391,85 @@ public class NativeSqlQueryBuilder implements SelectBuilder, FromBuilder, WhereB
                         forth = third;
                         third = temp;
                     }
-                    sb.add(join.get(1));
-                    sb.add(forth.getTableName()).add(" ").add(forth.getTableAlias());
-                    sb.add("ON");
-                    sb.add(third.getColumnAlias()).add("=").add(forth.getColumnAlias());
+                    joinParts.add(new JoinPart(join.get(1), third, forth));
                 }
-                this.from = sb.toString();
+                this.joinFirst = first;
+                this.from = buildJoinFrom(joinParts);
+            }
+        }
+    }
+
+    private String buildJoinFrom(List<JoinPart> parts) {
+        StringJoiner sb = new StringJoiner(" ");
+        sb.add(joinFirst.getTableName()).add(" ").add(joinFirst.getTableAlias());
+        for (JoinPart part : parts) {
+            sb.add(part.joinType);
+            sb.add(part.joined.getTableName()).add(" ").add(part.joined.getTableAlias());
+            sb.add("ON");
+            sb.add(part.on.getColumnAlias()).add("=").add(part.joined.getColumnAlias());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 生成count语句,去掉不影响行数的left join
+     * <p>
+     * left join的表在where和group by中没有引用,并且按主键关联时,每行最多匹配一行,去掉后总数不变.
+     * select distinct时count(*)不等于去重后的行数,不生成
+     *
+     * @param sql 查询语句
+     * @return count sql,没有可以去掉的关联时返回null,由查询语句推导
+     */
+    private String buildCountSql(String sql) {
+        if (null == joinParts || null != havingClause || StringUtils.isNotBlank(groupBy) || SqlUtils.containsDistinctKeywords(sql)) {
+            return null;
+        }
+        String referenced = null == whereClause ? "" : whereClause;
+        List<JoinPart> kept = new ArrayList<>(joinParts);
+        for (int i = kept.size() - 1; i >= 0; i--) {
+            JoinPart part = kept.get(i);
+            if (isRemovableJoin(part, referenced, kept)) {
+                kept.remove(i);
             }
         }
+        if (kept.size() == joinParts.size()) {
+            return null;
+        }
+        StringJoiner sj = new StringJoiner(" ");
+        sj.add("SELECT count(*)");
+        sj.add("FROM " + buildJoinFrom(kept));
+        if (null != whereClause) {
+            sj.add(whereClause);
+        }
+        return sj.toString();
+    }
+
+    private boolean isRemovableJoin(JoinPart part, String referenced, List<JoinPart> kept) {
+        if (!JoinCriterion.JoinType.LEFT_JOIN.getCode().equals(part.joinType)) {
+            return false;
+        }
+        String alias = part.joined.getTableAlias();
+        if (containsAlias(referenced, alias)) {
+            return false;
+        }
+        for (JoinPart other : kept) {
+            if (other != part && alias.equals(other.on.getTableAlias())) {
+                return false;
+            }
+        }
+        return LocalEntityCache.getInstance().get(part.joined.getTableName()).map(t -> part.joined.getColumnName().equalsIgnoreCase(t.getPrimaryKey())).orElse(false);
+    }
+
+    private static boolean containsAlias(String sql, String alias) {
+        String prefix = alias + ".";
+        int index = sql.indexOf(prefix);
+        while (index >= 0) {
+            if (index == 0 || !Character.isLetterOrDigit(sql.charAt(index - 1)) && sql.charAt(index - 1) != '_') {
+                return true;
+            }
+            index = sql.indexOf(prefix, index + 1);
+        }
+        return false;
     }
 
     /**
@@ -407,7 +486,7 @@ public class NativeSqlQueryBuilder implements SelectBuilder, FromBuilder, WhereB
             String column = split[0];
             String orderByType = split[1];
 
-            String columnName = AliasCacheHelper.getColumnName(column);
+            String columnName = AliasCacheHelper.getColumnName(aliasContext, column);
             sjOrderBy.add(StringFormatter.format("{} {}", columnName, orderByType));
         }
         sj.add(new StringBuilder("ORDER BY ").append(sjOrderBy));
@@ -472,7 +551,7 @@ public class NativeSqlQueryBuilder implements SelectBuilder, FromBuilder, WhereB
      */
     private String toSqlStr() {
         StringJoiner sj = new StringJoiner(" ");
-        List<TableAlias> tables = AliasCacheHelper.getTables();
+        List<TableAlias> tables = aliasContext.getTables();
         //select
         buildSelect(sj, tables);
         //form
@@ -481,7 +560,8 @@ public class NativeSqlQueryBuilder implements SelectBuilder, FromBuilder, WhereB
         if (where != null) {
             String wh = where.getSegments().toString();
             if (wh.length() > 0) {
-                sj.add("WHERE " + wh);
+                whereClause = "WHERE " + wh;
+                sj.add(whereClause);
                 counts += where.getCounts();
                 params = where.getParams();
             }
@@ -494,7 +574,8 @@ public class NativeSqlQueryBuilder implements SelectBuilder, FromBuilder, WhereB
         if (having != null) {
             String hv = having.getSegments().toString();
             if (hv.length() > 0) {
-                sj.add("HAVING " + moveCount(hv, counts));
+                havingClause = "HAVING " + moveCount(hv, counts);
+                sj.add(havingClause);
                 counts += having.getCounts();
                 if (params == null) {
                     params = having.getParams();
@@ -516,8 +597,7 @@ public class NativeSqlQueryBuilder implements SelectBuilder, FromBuilder, WhereB
     public NativeSqlQuery build() {
         buildJoin();
         String sqlStr = toSqlStr();
-        ThreadLocalUtil.clear();
-        return new NativeSqlQuery(sqlStr, this.params);
+        return new NativeSqlQuery(sqlStr, buildCountSql(sqlStr), this.params);
     }
 
     /**
@@ -533,4 +613,19 @@ public class NativeSqlQueryBuilder implements SelectBuilder, FromBuilder, WhereB
         return sb.toString();
     }
 
-}
\ No newline at end of file
+
+    /**
+     * 一个关联: joinType joined ON on = joined
+     */
+    private static final class JoinPart {
+        private final String joinType;
+        private final ColumnAlias on;
+        private final ColumnAlias joined;
+
+        private JoinPart(String joinType, ColumnAlias on, ColumnAlias joined) {
+            this.joinType = joinType;
+            this.on = on;
+            this.joined = joined;
+        }
+    }
+}
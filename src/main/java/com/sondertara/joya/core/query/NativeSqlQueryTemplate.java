@@ -0,0 +1,247 @@
+package com.sondertara.joya.core.query;
+
+import com.sondertara.common.exception.TaraException;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 预编译的查询模板
+ * <p>
+ * 将NativeSqlQueryBuilder的构建过程编译为最终的sql和参数槽位,运行时只需要绑定参数,不再拼接sql.
+ * 构建器会跳过值为null的条件,因此按参数的null分布分别编译和缓存sql.
+ * <pre>
+ * private static final NativeSqlQueryTemplate USER_QUERY = NativeSqlQueryTemplate.compile(args -&gt; NativeSqlQuery.builder()
+ *         .select()
+ *         .from(UserPo.class)
+ *         .where(w -&gt; w.eq(UserPo::getId, args.get(0)).contains(UserPo::getUserName, args.get(1)))
+ *         .build());
+ *
+ * NativeSqlQuery query = USER_QUERY.bind(id, userName);
+ * </pre>
+ * 构建过程只能通过{@link Args}读取参数,不能依赖参数的实际值
+ *
+ * @author huangxiaohu
+ */
+public final class NativeSqlQueryTemplate {
+
+    /**
+     * 参数个数上限,参数个数和null分布编码在一个long中
+     */
+    private static final int MAX_ARGS = 56;
+
+    private final Function<Args, NativeSqlQuery> definition;
+
+    /**
+     * key is the args length and null mask
+     */
+    private final Map<Long, Variant> variants = new ConcurrentHashMap<>();
+
+    private NativeSqlQueryTemplate(Function<Args, NativeSqlQuery> definition) {
+        this.definition = definition;
+    }
+
+    /**
+     * 编译查询模板
+     *
+     * @param definition 使用占位参数构建查询
+     * @return 查询模板
+     */
+    public static NativeSqlQueryTemplate compile(Function<Args, NativeSqlQuery> definition) {
+        return new NativeSqlQueryTemplate(definition);
+    }
+
+    /**
+     * 绑定参数
+     *
+     * @param args 参数,顺序与{@link Args#get(int)}的下标一致
+     * @return 查询
+     */
+    public NativeSqlQuery bind(Object... args) {
+        Object[] values = null == args ? new Object[0] : args;
+        if (values.length > MAX_ARGS) {
+            throw new TaraException("The query template supports at most {} args", MAX_ARGS);
+        }
+        long mask = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (null == values[i]) {
+                mask |= 1L << i;
+            }
+        }
+        final long nullMask = mask;
+        long key = ((long) values.length << MAX_ARGS) | nullMask;
+        Variant variant = variants.get(key);
+        if (null == variant) {
+            variant = variants.computeIfAbsent(key, k -> compileVariant(values.length, nullMask));
+        }
+        List<Object> params = new ArrayList<>(variant.bindings.length);
+        for (Binding binding : variant.bindings) {
+            params.add(binding.bind(values));
+        }
+        return new NativeSqlQuery(variant.sql, variant.countSql, params);
+    }
+
+    /**
+     * 已编译的sql数量
+     *
+     * @return the number of variants
+     */
+    public int variantCount() {
+        return variants.size();
+    }
+
+    private Variant compileVariant(int length, long mask) {
+        NativeSqlQuery query = definition.apply(new Args(length, mask));
+        List<Object> params = null == query.getParams() ? new ArrayList<>() : query.getParams();
+        Binding[] bindings = new Binding[params.size()];
+        for (int i = 0; i < params.size(); i++) {
+            bindings[i] = toBinding(params.get(i));
+        }
+        return new Variant(query.toSql(), query.getCountSql(), bindings);
+    }
+
+    private Binding toBinding(Object param) {
+        if (param instanceof Slot) {
+            int index = ((Slot) param).index;
+            return values -> values[index];
+        }
+        if (param instanceof SlotCollection) {
+            int index = ((SlotCollection) param).index;
+            return values -> values[index];
+        }
+        if (param instanceof String) {
+            String str = (String) param;
+            int start = str.indexOf(Slot.TOKEN_START);
+            if (start >= 0) {
+                int end = str.indexOf(Slot.TOKEN_END, start + Slot.TOKEN_START.length());
+                int index = Integer.parseInt(str.substring(start + Slot.TOKEN_START.length(), end));
+                String prefix = str.substring(0, start);
+                String suffix = str.substring(end + Slot.TOKEN_END.length());
+                // e.g. the value of like is wrapped as "%" + value + "%"
+                return values -> prefix + values[index] + suffix;
+            }
+        }
+        if (param instanceof Collection) {
+            for (Object o : (Collection<?>) param) {
+                if (o instanceof Slot || o instanceof SlotCollection) {
+                    throw new TaraException("The arg in collection is not supported by query template,use Args#getCollection instead");
+                }
+            }
+        }
+        // the constant value
+        return values -> param;
+    }
+
+    /**
+     * 模板参数,构建时返回占位对象,值为null的参数返回null
+     */
+    public static final class Args {
+        private final int length;
+        private final long mask;
+
+        private Args(int length, long mask) {
+            this.length = length;
+            this.mask = mask;
+        }
+
+        /**
+         * 获取参数
+         *
+         * @param index 参数下标
+         * @return 占位对象,参数为null时返回null
+         */
+        public Object get(int index) {
+            checkIndex(index);
+            return isNull(index) ? null : new Slot(index);
+        }
+
+        /**
+         * 获取集合参数,用于in/not in
+         *
+         * @param index 参数下标
+         * @return 占位集合,参数为null时返回null
+         */
+        public Collection<Object> getCollection(int index) {
+            checkIndex(index);
+            return isNull(index) ? null : new SlotCollection(index);
+        }
+
+        public int size() {
+            return length;
+        }
+
+        private boolean isNull(int index) {
+            return (mask & (1L << index)) != 0;
+        }
+
+        private void checkIndex(int index) {
+            if (index < 0 || index >= length) {
+                throw new TaraException("The arg index {} is out of bound {}", index, length);
+            }
+        }
+    }
+
+    /**
+     * 参数占位对象
+     */
+    private static final class Slot {
+        private static final String TOKEN_START = "\u0001joya_slot_";
+        private static final String TOKEN_END = "\u0001";
+        private final int index;
+
+        private Slot(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public String toString() {
+            return TOKEN_START + index + TOKEN_END;
+        }
+    }
+
+    /**
+     * 集合参数占位对象
+     */
+    private static final class SlotCollection extends AbstractList<Object> {
+        private final int index;
+
+        private SlotCollection(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public Object get(int i) {
+            throw new IndexOutOfBoundsException("Index: " + i);
+        }
+
+        @Override
+        public int size() {
+            return 0;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Binding {
+        Object bind(Object[] values);
+    }
+
+    /**
+     * 某个null分布下编译的sql和参数绑定
+     */
+    private static final class Variant {
+        private final String sql;
+        private final String countSql;
+        private final Binding[] bindings;
+
+        private Variant(String sql, String countSql, Binding[] bindings) {
+            this.sql = sql;
+            this.countSql = countSql;
+            this.bindings = bindings;
+        }
+    }
+}
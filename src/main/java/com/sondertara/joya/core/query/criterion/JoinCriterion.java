@@ -5,6 +5,7 @@ import com.sondertara.common.exception.TaraException;
 import com.sondertara.common.function.TaraFunction;
 import com.sondertara.common.lang.tree.NodeList;
 import com.sondertara.joya.cache.AliasCacheHelper;
+import com.sondertara.joya.cache.AliasContext;
 import com.sondertara.joya.core.constant.JoyaConst;
 import com.sondertara.joya.core.model.ColumnAlias;
 
@@ -38,11 +39,24 @@ public class JoinCriterion {
      */
     private final Set<String> tableNames;
 
+    /**
+     * the table alias of query
+     */
+    private final AliasContext aliasContext;
+
 
     /**
      *
      */
     public JoinCriterion() {
+        this(new AliasContext());
+    }
+
+    /**
+     * @param aliasContext the table alias of query
+     */
+    public JoinCriterion(AliasContext aliasContext) {
+        this.aliasContext = aliasContext;
         this.segments = new NodeList<>();
         join = new ArrayList<>(2);
         tableNames = new HashSet<>();
@@ -118,8 +132,8 @@ public class JoinCriterion {
         if (this.segments.getSize() > MAX_JOIN_COUNT) {
             throw new TaraException("Only support  two join association ," + "if you use too complicated query why no try to optimize the code.");
         }
-        final ColumnAlias columnLeft = AliasCacheHelper.getColumn(left);
-        ColumnAlias columnRight = AliasCacheHelper.getColumn(right);
+        final ColumnAlias columnLeft = AliasCacheHelper.getColumn(aliasContext, left);
+        ColumnAlias columnRight = AliasCacheHelper.getColumn(aliasContext, right);
         setJoinStr(columnLeft, columnRight, joinType);
     }
 
@@ -148,5 +162,9 @@ public class JoinCriterion {
         JoinType(String code) {
             this.code = code;
         }
+
+        public String getCode() {
+            return code;
+        }
     }
 }
@@ -2,6 +2,7 @@ package com.sondertara.joya.core.query.criterion;
 
 import com.sondertara.common.function.TaraFunction;
 import com.sondertara.joya.cache.AliasCacheHelper;
+import com.sondertara.joya.cache.AliasContext;
 
 import java.util.StringJoiner;
 
@@ -18,10 +19,25 @@ public class SelectCriterion {
      */
     private final StringJoiner fields;
 
+    /**
+     * the table alias of query
+     */
+    private final AliasContext aliasContext;
+
     /**
      * construct
      */
     public SelectCriterion() {
+        this(new AliasContext());
+    }
+
+    /**
+     * construct with the table alias of query
+     *
+     * @param aliasContext the table alias
+     */
+    public SelectCriterion(AliasContext aliasContext) {
+        this.aliasContext = aliasContext;
         this.fields = new StringJoiner(", ");
     }
 
@@ -34,7 +50,7 @@ public class SelectCriterion {
      */
     public <T> SelectCriterion add(TaraFunction<T, ?> fn) {
 
-        String column = AliasCacheHelper.getColumn(fn).getColumnAlias();
+        String column = AliasCacheHelper.getColumn(aliasContext, fn).getColumnAlias();
         fields.add(column);
 
         return this;
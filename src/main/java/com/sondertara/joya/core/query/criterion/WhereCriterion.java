@@ -8,7 +8,9 @@ import com.sondertara.common.util.RegexUtils;
 import com.sondertara.common.util.StringFormatter;
 import com.sondertara.common.util.StringUtils;
 import com.sondertara.joya.cache.AliasCacheHelper;
+import com.sondertara.joya.cache.AliasContext;
 import com.sondertara.joya.core.constant.JoyaConst;
+import com.sondertara.joya.core.query.pagination.OrderParam;
 import com.sondertara.joya.utils.SqlUtils;
 
 import java.util.ArrayList;
@@ -42,6 +44,10 @@ public class WhereCriterion {
      * the link type for where segments
      */
     private Operator currentOpt;
+    /**
+     * the table alias of query
+     */
+    private final AliasContext aliasContext;
 
     /**
      * 默认用 and 连接 查询条件
@@ -56,6 +62,17 @@ public class WhereCriterion {
      * @param operator Operator.AND/Operator.OR
      */
     public WhereCriterion(Operator operator) {
+        this(new AliasContext(), operator);
+    }
+
+    /**
+     * 使用查询的表别名
+     *
+     * @param aliasContext the table alias of query
+     * @param operator     Operator.AND/Operator.OR
+     */
+    public WhereCriterion(AliasContext aliasContext, Operator operator) {
+        this.aliasContext = aliasContext;
         this.currentOpt = operator;
         this.segments = new StringJoiner(" " + operator.name() + " ");
         this.params = new ArrayList<>();
@@ -70,7 +87,7 @@ public class WhereCriterion {
      */
     public WhereCriterion eq(String columnName, Object value) {
         if (Objects.nonNull(value)) {
-            segments.add(StringUtils.format("{} = ?{}", AliasCacheHelper.getColumnName(columnName), counts++));
+            segments.add(StringUtils.format("{} = ?{}", AliasCacheHelper.getColumnName(aliasContext, columnName), counts++));
             params.add(value);
         }
         return this;
@@ -81,7 +98,7 @@ public class WhereCriterion {
      */
     public <T> WhereCriterion eq(TaraFunction<T, ?> fn, Object value) {
         if (Objects.nonNull(value)) {
-            String tableColumn = AliasCacheHelper.getColumn(fn).getColumnAlias();
+            String tableColumn = AliasCacheHelper.getColumn(aliasContext, fn).getColumnAlias();
             segments.add(StringUtils.format("{} = ?{}", tableColumn, counts++));
             params.add(value);
         }
@@ -96,8 +113,8 @@ public class WhereCriterion {
         if (null == left || null == right) {
             throw new TaraException("The params is required");
         }
-        String tableColumnL = AliasCacheHelper.getColumn(left).getColumnAlias();
-        String tableColumnR = AliasCacheHelper.getColumn(right).getColumnAlias();
+        String tableColumnL = AliasCacheHelper.getColumn(aliasContext, left).getColumnAlias();
+        String tableColumnR = AliasCacheHelper.getColumn(aliasContext, right).getColumnAlias();
         segments.add(StringUtils.format("{} = {}", tableColumnL, tableColumnR));
         return this;
     }
@@ -108,7 +125,7 @@ public class WhereCriterion {
     public WhereCriterion subQuery(UnaryOperator<WhereCriterion> func) throws RuntimeException {
 
         Operator operator = Operator.OR.equals(this.currentOpt) ? Operator.AND : Operator.OR;
-        WhereCriterion apply = func.apply(new WhereCriterion(operator));
+        WhereCriterion apply = func.apply(new WhereCriterion(aliasContext, operator));
 
 
         StringJoiner joiner = apply.getSegments();
@@ -146,7 +163,7 @@ public class WhereCriterion {
      */
     public WhereCriterion ne(String columnName, Object value) {
         if (Objects.nonNull(value)) {
-            segments.add(StringUtils.format("{} != ?{}", AliasCacheHelper.getColumnName(columnName), counts++));
+            segments.add(StringUtils.format("{} != ?{}", AliasCacheHelper.getColumnName(aliasContext, columnName), counts++));
             params.add(value);
         }
         return this;
@@ -161,7 +178,7 @@ public class WhereCriterion {
      */
     public <T> WhereCriterion lt(TaraFunction<T, ?> fn, Object value) {
         if (Objects.nonNull(value)) {
-            String tableColumn = AliasCacheHelper.getColumn(fn).getColumnAlias();
+            String tableColumn = AliasCacheHelper.getColumn(aliasContext, fn).getColumnAlias();
             segments.add(StringUtils.format("{} < ?{}", tableColumn, counts++));
             params.add(value);
         }
@@ -177,7 +194,7 @@ public class WhereCriterion {
      */
     public WhereCriterion lt(String columnName, Object value) {
         if (Objects.nonNull(value)) {
-            segments.add(StringUtils.format("{} < ?{}", AliasCacheHelper.getColumnName(columnName), counts++));
+            segments.add(StringUtils.format("{} < ?{}", AliasCacheHelper.getColumnName(aliasContext, columnName), counts++));
             params.add(value);
         }
         return this;
@@ -192,7 +209,7 @@ public class WhereCriterion {
      */
     public <T> WhereCriterion lte(TaraFunction<T, ?> fn, Object value) {
         if (Objects.nonNull(value)) {
-            String tableColumn = AliasCacheHelper.getColumn(fn).getColumnAlias();
+            String tableColumn = AliasCacheHelper.getColumn(aliasContext, fn).getColumnAlias();
             segments.add(StringUtils.format("{} <= ?{}", tableColumn, counts++));
             params.add(value);
         }
@@ -208,7 +225,7 @@ public class WhereCriterion {
      */
     public WhereCriterion lte(String columnName, Object value) {
         if (Objects.nonNull(value)) {
-            segments.add(StringUtils.format("{} <= ?{}", AliasCacheHelper.getColumnName(columnName), counts++));
+            segments.add(StringUtils.format("{} <= ?{}", AliasCacheHelper.getColumnName(aliasContext, columnName), counts++));
             params.add(value);
         }
         return this;
@@ -223,7 +240,7 @@ public class WhereCriterion {
      */
     public <T> WhereCriterion gt(TaraFunction<T, ?> fn, Object value) {
         if (Objects.nonNull(value)) {
-            String tableColumn = AliasCacheHelper.getColumn(fn).getColumnAlias();
+            String tableColumn = AliasCacheHelper.getColumn(aliasContext, fn).getColumnAlias();
             segments.add(StringUtils.format("{} > ?{}", tableColumn, counts++));
             params.add(value);
         }
@@ -239,7 +256,7 @@ public class WhereCriterion {
      */
     public WhereCriterion gt(String columnName, Object value) {
         if (Objects.nonNull(value)) {
-            segments.add(StringUtils.format("{} > ?{}", AliasCacheHelper.getColumnName(columnName), counts++));
+            segments.add(StringUtils.format("{} > ?{}", AliasCacheHelper.getColumnName(aliasContext, columnName), counts++));
             params.add(value);
         }
         return this;
@@ -254,7 +271,7 @@ public class WhereCriterion {
      */
     public <T> WhereCriterion gte(TaraFunction<T, ?> fn, Object value) {
         if (Objects.nonNull(value)) {
-            String tableColumn = AliasCacheHelper.getColumn(fn).getColumnAlias();
+            String tableColumn = AliasCacheHelper.getColumn(aliasContext, fn).getColumnAlias();
             segments.add(StringUtils.format("{} >= ?{}", tableColumn, counts++));
             params.add(value);
         }
@@ -270,7 +287,7 @@ public class WhereCriterion {
      */
     public WhereCriterion gte(String columnName, Object value) {
         if (Objects.nonNull(value)) {
-            segments.add(StringUtils.format("{} >= ?{}", AliasCacheHelper.getColumnName(columnName), counts++));
+            segments.add(StringUtils.format("{} >= ?{}", AliasCacheHelper.getColumnName(aliasContext, columnName), counts++));
             params.add(value);
         }
         return this;
@@ -283,7 +300,7 @@ public class WhereCriterion {
      * @return where criterion
      */
     public <T> WhereCriterion isNull(TaraFunction<T, ?> fn) {
-        String tableColumn = AliasCacheHelper.getColumn(fn).getColumnAlias();
+        String tableColumn = AliasCacheHelper.getColumn(aliasContext, fn).getColumnAlias();
         segments.add(tableColumn + " IS NULL");
         return this;
     }
@@ -295,7 +312,7 @@ public class WhereCriterion {
      * @return where criterion
      */
     public WhereCriterion isNull(String columnName) {
-        segments.add(AliasCacheHelper.getColumnName(columnName) + " IS NULL");
+        segments.add(AliasCacheHelper.getColumnName(aliasContext, columnName) + " IS NULL");
         return this;
     }
 
@@ -306,7 +323,7 @@ public class WhereCriterion {
      * @return where criterion
      */
     public <T> WhereCriterion isNotNull(TaraFunction<T, ?> fn) {
-        String tableColumn = AliasCacheHelper.getColumn(fn).getColumnAlias();
+        String tableColumn = AliasCacheHelper.getColumn(aliasContext, fn).getColumnAlias();
 
         segments.add(tableColumn + " IS NOT NULL");
         return this;
@@ -319,7 +336,7 @@ public class WhereCriterion {
      * @return where criterion
      */
     public WhereCriterion isNotNull(String columnName) {
-        segments.add(AliasCacheHelper.getColumnName(columnName) + " IS NOT NULL");
+        segments.add(AliasCacheHelper.getColumnName(aliasContext, columnName) + " IS NOT NULL");
         return this;
     }
 
@@ -332,7 +349,7 @@ public class WhereCriterion {
      */
     public <T> WhereCriterion startsWith(TaraFunction<T, ?> fn, Object value) {
         if (Objects.nonNull(value)) {
-            String tableColumn = AliasCacheHelper.getColumn(fn).getColumnAlias();
+            String tableColumn = AliasCacheHelper.getColumn(aliasContext, fn).getColumnAlias();
             segments.add(StringUtils.format("{} LIKE ?{}", tableColumn, counts++));
             params.add(value + "%");
         }
@@ -348,8 +365,8 @@ public class WhereCriterion {
      */
     public WhereCriterion startsWith(String columnName, Object value) {
         if (Objects.nonNull(value)) {
-            AliasCacheHelper.getColumnName(columnName);
-            segments.add(StringUtils.format("{} LIKE ?{}", AliasCacheHelper.getColumnName(columnName), counts++));
+            AliasCacheHelper.getColumnName(aliasContext, columnName);
+            segments.add(StringUtils.format("{} LIKE ?{}", AliasCacheHelper.getColumnName(aliasContext, columnName), counts++));
             params.add(value + "%");
         }
         return this;
@@ -364,7 +381,7 @@ public class WhereCriterion {
      */
     public <T> WhereCriterion contains(TaraFunction<T, ?> fn, Object value) {
         if (Objects.nonNull(value)) {
-            String tableColumn = AliasCacheHelper.getColumn(fn).getColumnAlias();
+            String tableColumn = AliasCacheHelper.getColumn(aliasContext, fn).getColumnAlias();
             segments.add(StringUtils.format("{} LIKE ?{}", tableColumn, counts++));
             params.add("%" + value + "%");
         }
@@ -380,7 +397,7 @@ public class WhereCriterion {
      */
     public WhereCriterion contains(String columnName, Object value) {
         if (Objects.nonNull(value)) {
-            segments.add(StringUtils.format("{} LIKE ?{}", AliasCacheHelper.getColumnName(columnName), counts++));
+            segments.add(StringUtils.format("{} LIKE ?{}", AliasCacheHelper.getColumnName(aliasContext, columnName), counts++));
             params.add("%" + value + "%");
         }
         return this;
@@ -395,7 +412,7 @@ public class WhereCriterion {
      */
     public <T> WhereCriterion endsWith(TaraFunction<T, ?> fn, Object value) {
         if (Objects.nonNull(value)) {
-            String tableColumn = AliasCacheHelper.getColumn(fn).getColumnAlias();
+            String tableColumn = AliasCacheHelper.getColumn(aliasContext, fn).getColumnAlias();
             segments.add(StringUtils.format("{} LIKE ?{}", tableColumn, counts++));
             params.add("%" + value);
         }
@@ -411,7 +428,7 @@ public class WhereCriterion {
      */
     public WhereCriterion endsWith(String columnName, Object value) {
         if (Objects.nonNull(value)) {
-            segments.add(StringUtils.format("{} LIKE ?{}", AliasCacheHelper.getColumnName(columnName), counts++));
+            segments.add(StringUtils.format("{} LIKE ?{}", AliasCacheHelper.getColumnName(aliasContext, columnName), counts++));
             params.add("%" + value);
         }
         return this;
@@ -426,7 +443,7 @@ public class WhereCriterion {
      */
     public <T> WhereCriterion notStartsWith(TaraFunction<T, ?> fn, Object value) {
         if (Objects.nonNull(value)) {
-            String tableColumn = AliasCacheHelper.getColumn(fn).getColumnAlias();
+            String tableColumn = AliasCacheHelper.getColumn(aliasContext, fn).getColumnAlias();
             segments.add(StringUtils.format("{} NOT LIKE ?{}", tableColumn, counts++));
             params.add(value + "%");
         }
@@ -442,7 +459,7 @@ public class WhereCriterion {
      */
     public WhereCriterion notStartsWith(String columnName, Object value) {
         if (Objects.nonNull(value)) {
-            segments.add(StringUtils.format("{} NOT LIKE ?{}", AliasCacheHelper.getColumnName(columnName), counts++));
+            segments.add(StringUtils.format("{} NOT LIKE ?{}", AliasCacheHelper.getColumnName(aliasContext, columnName), counts++));
             params.add(value + "%");
         }
         return this;
@@ -457,7 +474,7 @@ public class WhereCriterion {
      */
     public <T> WhereCriterion notContains(TaraFunction<T, ?> fn, Object value) {
         if (Objects.nonNull(value)) {
-            String tableColumn = AliasCacheHelper.getColumn(fn).getColumnAlias();
+            String tableColumn = AliasCacheHelper.getColumn(aliasContext, fn).getColumnAlias();
             segments.add(StringUtils.format("{} NOT LIKE ?{}", tableColumn, counts++));
             params.add("%" + value + "%");
         }
@@ -473,7 +490,7 @@ public class WhereCriterion {
      */
     public WhereCriterion notContains(String columnName, Object value) {
         if (Objects.nonNull(value)) {
-            segments.add(StringUtils.format("{} NOT LIKE ?{}", AliasCacheHelper.getColumnName(columnName), counts++));
+            segments.add(StringUtils.format("{} NOT LIKE ?{}", AliasCacheHelper.getColumnName(aliasContext, columnName), counts++));
             params.add("%" + value + "%");
         }
         return this;
@@ -489,7 +506,7 @@ public class WhereCriterion {
 
     public WhereCriterion notEndsWith(String columnName, Object value) {
         if (Objects.nonNull(value)) {
-            segments.add(StringUtils.format("{} NOT LIKE ?{}", AliasCacheHelper.getColumnName(columnName), counts++));
+            segments.add(StringUtils.format("{} NOT LIKE ?{}", AliasCacheHelper.getColumnName(aliasContext, columnName), counts++));
             params.add("%" + value);
         }
         return this;
@@ -505,7 +522,7 @@ public class WhereCriterion {
 
     public <T> WhereCriterion notEndsWith(TaraFunction<T, ?> fn, Object value) {
         if (Objects.nonNull(value)) {
-            String tableColumn = AliasCacheHelper.getColumn(fn).getColumnAlias();
+            String tableColumn = AliasCacheHelper.getColumn(aliasContext, fn).getColumnAlias();
             segments.add(StringUtils.format("{} NOT LIKE ?{}", tableColumn, counts++));
             params.add("%" + value);
         }
@@ -521,7 +538,7 @@ public class WhereCriterion {
      */
     public WhereCriterion in(String columnName, Collection<Object> value) {
         if (Objects.nonNull(value)) {
-            segments.add(StringUtils.format("{} IN ?{}", AliasCacheHelper.getColumnName(columnName), counts++));
+            segments.add(StringUtils.format("{} IN ?{}", AliasCacheHelper.getColumnName(aliasContext, columnName), counts++));
             params.add(value);
         }
         return this;
@@ -536,7 +553,7 @@ public class WhereCriterion {
      */
     public <T> WhereCriterion in(TaraFunction<T, ?> fn, Collection<Object> value) {
         if (Objects.nonNull(value)) {
-            String tableColumn = AliasCacheHelper.getColumn(fn).getColumnAlias();
+            String tableColumn = AliasCacheHelper.getColumn(aliasContext, fn).getColumnAlias();
             segments.add(StringUtils.format("{} IN ?{}", tableColumn, counts++));
             params.add(value);
         }
@@ -552,7 +569,7 @@ public class WhereCriterion {
      */
     public WhereCriterion notIn(String columnName, Collection<Object> value) {
         if (Objects.nonNull(value)) {
-            segments.add(StringUtils.format("{} NOT IN ?{}", AliasCacheHelper.getColumnName(columnName), counts++));
+            segments.add(StringUtils.format("{} NOT IN ?{}", AliasCacheHelper.getColumnName(aliasContext, columnName), counts++));
             params.add(value);
         }
         return this;
@@ -567,7 +584,7 @@ public class WhereCriterion {
      */
     public <T> WhereCriterion notIn(TaraFunction<T, ?> fn, Collection<Object> value) {
         if (Objects.nonNull(value)) {
-            String tableColumn = AliasCacheHelper.getColumn(fn).getColumnAlias();
+            String tableColumn = AliasCacheHelper.getColumn(aliasContext, fn).getColumnAlias();
             segments.add(StringUtils.format("{} NOT IN ?{}", tableColumn, counts++));
             params.add(value);
         }
@@ -583,7 +600,7 @@ public class WhereCriterion {
      */
     public WhereCriterion between(String columnName, List<Object> values) {
         if (CollectionUtils.isNotEmpty(values) && values.size() == JoyaConst.TWO_QUERY_COUNT) {
-            segments.add(StringUtils.format("{} BETWEEN ?{} AND ?{}", AliasCacheHelper.getColumnName(columnName), counts++, counts++));
+            segments.add(StringUtils.format("{} BETWEEN ?{} AND ?{}", AliasCacheHelper.getColumnName(aliasContext, columnName), counts++, counts++));
             params.addAll(values);
         }
         return this;
@@ -598,7 +615,7 @@ public class WhereCriterion {
      */
     public <T> WhereCriterion between(TaraFunction<T, ?> fn, List<Object> values) {
         if (CollectionUtils.isNotEmpty(values) && values.size() == JoyaConst.TWO_QUERY_COUNT) {
-            String tableColumn = AliasCacheHelper.getColumn(fn).getColumnAlias();
+            String tableColumn = AliasCacheHelper.getColumn(aliasContext, fn).getColumnAlias();
             segments.add(StringUtils.format("{} BETWEEN ?{} AND ?{}", tableColumn, counts++, counts++));
             params.addAll(values);
         }
@@ -614,7 +631,7 @@ public class WhereCriterion {
      */
     public WhereCriterion notBetween(String columnName, List<Object> values) {
         if (CollectionUtils.isNotEmpty(values) && values.size() == JoyaConst.TWO_QUERY_COUNT) {
-            segments.add(StringUtils.format("{} NOT BETWEEN ?{} AND ?{}", AliasCacheHelper.getColumnName(columnName), counts++, counts++));
+            segments.add(StringUtils.format("{} NOT BETWEEN ?{} AND ?{}", AliasCacheHelper.getColumnName(aliasContext, columnName), counts++, counts++));
             params.addAll(values);
         }
         return this;
@@ -629,13 +646,51 @@ public class WhereCriterion {
      */
     public <T> WhereCriterion notBetween(TaraFunction<T, ?> fn, List<Object> values) {
         if (CollectionUtils.isNotEmpty(values) && values.size() == JoyaConst.TWO_QUERY_COUNT) {
-            String tableColumn = AliasCacheHelper.getColumn(fn).getColumnAlias();
+            String tableColumn = AliasCacheHelper.getColumn(aliasContext, fn).getColumnAlias();
             segments.add(StringUtils.format("{} NOT BETWEEN ?{} AND ?{}", tableColumn, counts++, counts++));
             params.addAll(values);
         }
         return this;
     }
 
+    /**
+     * keyset(seek) condition,only the rows after the last seen values in the specified order
+     * <p>
+     * It is expanded to {@code (c1 > ?1) OR (c1 = ?2 AND c2 > ?3)} instead of the row value
+     * comparison {@code (c1, c2) > (?1, ?2)},because Oracle does not support it and the columns may have different order.
+     *
+     * @param columnNames the order columns
+     * @param orders      the order type of every column
+     * @param values      the last seen values of every column
+     * @return where criterion
+     */
+    public WhereCriterion seekAfter(List<String> columnNames, List<OrderParam.OrderBy> orders, List<Object> values) {
+        if (columnNames.size() != orders.size() || columnNames.size() != values.size()) {
+            throw new TaraException("The cursor does not match the order columns");
+        }
+        if (values.contains(null)) {
+            throw new TaraException("The keyset pagination does not support null value of the order column");
+        }
+        List<String> columns = new ArrayList<>(columnNames.size());
+        for (String columnName : columnNames) {
+            columns.add(AliasCacheHelper.getColumnName(aliasContext, columnName));
+        }
+        StringJoiner seek = new StringJoiner(" OR ", "( ", " )");
+        for (int i = 0; i < columns.size(); i++) {
+            StringJoiner part = new StringJoiner(" AND ", "(", ")");
+            for (int j = 0; j < i; j++) {
+                part.add(StringUtils.format("{} = ?{}", columns.get(j), counts++));
+                params.add(values.get(j));
+            }
+            String operator = OrderParam.OrderBy.DESC.equals(orders.get(i)) ? "<" : ">";
+            part.add(StringUtils.format("{} {} ?{}", columns.get(i), operator, counts++));
+            params.add(values.get(i));
+            seek.add(part.toString());
+        }
+        segments.add(seek.toString());
+        return this;
+    }
+
     /**
      * 追加到 where条件中自定义sql字符串片段
      */
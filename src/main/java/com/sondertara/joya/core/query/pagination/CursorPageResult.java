@@ -0,0 +1,33 @@
+package com.sondertara.joya.core.query.pagination;
+
+import com.sondertara.common.model.PageResult;
+
+import java.util.List;
+
+/**
+ * the result of keyset pagination
+ * <p>
+ * there is no total count,the total is always -1,use {@link #getNextCursor()} to fetch the next page
+ *
+ * @author huangxiaohu
+ */
+public class CursorPageResult<T> extends PageResult<T> {
+
+    /**
+     * the cursor of next page,null if there is no more data
+     */
+    private final String nextCursor;
+
+    public CursorPageResult(List<T> data, Integer pageSize, String nextCursor) {
+        super(data, -1L, 0, pageSize);
+        this.nextCursor = nextCursor;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return null != nextCursor;
+    }
+}
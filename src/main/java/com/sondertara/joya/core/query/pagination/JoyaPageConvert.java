@@ -10,6 +10,7 @@ import com.sondertara.joya.core.query.criterion.JoinCriterion;
 import com.sondertara.joya.core.query.criterion.WhereCriterion;
 import com.sondertara.joya.utils.SqlUtils;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -53,6 +54,7 @@ public class JoyaPageConvert {
     @SuppressWarnings("unchecked")
     private static NativeSqlQuery buildNativeQuery(PageQueryParam queryParam, UnaryOperator<JoinCriterion> joinFunc, Class<?>... targetClass) {
         List<SearchParam> searchParams = queryParam.getParams();
+        List<Object> cursorValues = queryParam.isKeyset() ? checkKeyset(queryParam) : new ArrayList<>();
         UnaryOperator<WhereCriterion> func = w -> {
             if (CollectionUtils.isNotEmpty(queryParam.getCondition())) {
                 for (String s : queryParam.getCondition()) {
@@ -105,6 +107,15 @@ public class JoyaPageConvert {
                     default:
                 }
             }
+            if (!cursorValues.isEmpty()) {
+                List<String> columns = new ArrayList<>();
+                List<OrderParam.OrderBy> orders = new ArrayList<>();
+                for (OrderParam orderParam : queryParam.getOrderList()) {
+                    columns.add(SqlUtils.warpColumn(orderParam.getFieldName()));
+                    orders.add(orderParam.getOrderType());
+                }
+                w.seekAfter(columns, orders, cursorValues);
+            }
             return w;
         };
         NativeSqlQueryBuilder builder = new NativeSqlQueryBuilder();
@@ -126,4 +137,24 @@ public class JoyaPageConvert {
         }
         return builder.build();
     }
+
+    /**
+     * check the keyset pagination and decode the cursor
+     *
+     * @param queryParam page query
+     * @return the last seen values of order columns,empty if it is the first page
+     */
+    private static List<Object> checkKeyset(PageQueryParam queryParam) {
+        if (CollectionUtils.isEmpty(queryParam.getOrderList())) {
+            throw new TaraException("The order list is required by keyset pagination");
+        }
+        if (PageQueryParam.LinkType.OR.equals(queryParam.getLinkType())) {
+            throw new TaraException("The keyset pagination does not support the link type [OR]");
+        }
+        List<Object> values = KeysetCursor.decode(queryParam.getCursor());
+        if (!values.isEmpty() && values.size() != queryParam.getOrderList().size()) {
+            throw new TaraException("The cursor does not match the order columns");
+        }
+        return values;
+    }
 }
@@ -0,0 +1,182 @@
+package com.sondertara.joya.core.query.pagination;
+
+import com.sondertara.common.exception.TaraException;
+import com.sondertara.common.util.StringUtils;
+import org.springframework.beans.BeanWrapperImpl;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * keyset(seek)分页的游标
+ * <p>
+ * 游标是排序字段最后一行值的类型化编码,每个值编码为"类型:值"后使用URL安全的Base64,
+ * 不使用Java序列化,客户端只能原样回传
+ *
+ * @author huangxiaohu
+ */
+public final class KeysetCursor {
+
+    private static final String SEPARATOR = ".";
+    private static final Pattern SEPARATOR_PATTERN = Pattern.compile(Pattern.quote(SEPARATOR));
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private KeysetCursor() {
+    }
+
+    /**
+     * 编码游标
+     *
+     * @param values 排序字段的值
+     * @return 游标
+     */
+    public static String encode(List<Object> values) {
+        StringBuilder sb = new StringBuilder();
+        for (Object value : values) {
+            if (sb.length() > 0) {
+                sb.append(SEPARATOR);
+            }
+            sb.append(ENCODER.encodeToString(encodeValue(value).getBytes(StandardCharsets.UTF_8)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 解码游标
+     *
+     * @param cursor 游标
+     * @return 排序字段的值
+     */
+    public static List<Object> decode(String cursor) {
+        List<Object> values = new ArrayList<>();
+        if (null == cursor || cursor.trim().isEmpty()) {
+            return values;
+        }
+        try {
+            for (String part : SEPARATOR_PATTERN.split(cursor)) {
+                values.add(decodeValue(new String(DECODER.decode(part), StandardCharsets.UTF_8)));
+            }
+        } catch (RuntimeException e) {
+            throw new TaraException("The cursor is invalid:{}", cursor);
+        }
+        return values;
+    }
+
+    /**
+     * 根据最后一行生成下一页的游标
+     *
+     * @param lastRow   最后一行,JavaBean或者Map
+     * @param orderList 排序字段
+     * @return 游标
+     */
+    @SuppressWarnings("unchecked")
+    public static String next(Object lastRow, List<OrderParam> orderList) {
+        List<Object> values = new ArrayList<>(orderList.size());
+        BeanWrapperImpl wrapper = lastRow instanceof Map ? null : new BeanWrapperImpl(lastRow);
+        for (OrderParam orderParam : orderList) {
+            String fieldName = orderParam.getFieldName();
+            int index = fieldName.indexOf(".");
+            String name = index < 0 ? fieldName : fieldName.substring(index + 1);
+            Object value;
+            if (null == wrapper) {
+                value = getMapValue((Map<String, Object>) lastRow, name);
+            } else {
+                value = wrapper.getPropertyValue(StringUtils.toCamelCase(name));
+            }
+            values.add(value);
+        }
+        return encode(values);
+    }
+
+    private static Object getMapValue(Map<String, Object> row, String name) {
+        String camelCase = StringUtils.toCamelCase(name);
+        String underline = StringUtils.toUnderlineCase(name);
+        for (Map.Entry<String, Object> entry : row.entrySet()) {
+            String key = entry.getKey();
+            if (key.equalsIgnoreCase(name) || key.equalsIgnoreCase(camelCase) || key.equalsIgnoreCase(underline)) {
+                return entry.getValue();
+            }
+        }
+        throw new TaraException("The order column [{}] is not in the result", name);
+    }
+
+    private static String encodeValue(Object value) {
+        if (null == value) {
+            throw new TaraException("The keyset pagination does not support null value of the order column");
+        }
+        if (value instanceof String) {
+            return "S:" + value;
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return "I:" + value;
+        } else if (value instanceof Long) {
+            return "L:" + value;
+        } else if (value instanceof Double || value instanceof Float) {
+            return "D:" + value;
+        } else if (value instanceof BigDecimal) {
+            return "N:" + ((BigDecimal) value).toPlainString();
+        } else if (value instanceof BigInteger) {
+            return "G:" + value;
+        } else if (value instanceof Boolean) {
+            return "Z:" + value;
+        } else if (value instanceof Timestamp) {
+            Timestamp timestamp = (Timestamp) value;
+            return "T:" + timestamp.getTime() + ":" + timestamp.getNanos();
+        } else if (value instanceof Date) {
+            return "T:" + ((Date) value).getTime() + ":0";
+        } else if (value instanceof LocalDateTime) {
+            return "t:" + value;
+        } else if (value instanceof LocalDate) {
+            return "d:" + value;
+        }
+        throw new TaraException("The type [{}] of order column is not supported by keyset pagination", value.getClass().getName());
+    }
+
+    private static Object decodeValue(String token) {
+        int index = token.indexOf(':');
+        if (index != 1) {
+            throw new IllegalArgumentException(token);
+        }
+        String value = token.substring(2);
+        switch (token.charAt(0)) {
+            case 'S':
+                return value;
+            case 'I':
+                return Integer.valueOf(value);
+            case 'L':
+                return Long.valueOf(value);
+            case 'D':
+                return Double.valueOf(value);
+            case 'N':
+                return new BigDecimal(value);
+            case 'G':
+                return new BigInteger(value);
+            case 'Z':
+                return Boolean.valueOf(value);
+            case 'T':
+                int nanosIndex = value.indexOf(':');
+                Timestamp timestamp = new Timestamp(Long.parseLong(value.substring(0, nanosIndex)));
+                int nanos = Integer.parseInt(value.substring(nanosIndex + 1));
+                if (nanos > 0) {
+                    timestamp.setNanos(nanos);
+                }
+                return timestamp;
+            case 't':
+                return LocalDateTime.parse(value);
+            case 'd':
+                return LocalDate.parse(value);
+            default:
+                throw new IllegalArgumentException(token);
+        }
+    }
+}
@@ -42,6 +42,18 @@ public class PageQueryParam extends JoyaQuery implements Serializable {
      */
     private List<SearchParam> params = Lists.newArrayList();
 
+    /**
+     * keyset(seek) pagination instead of offset,the order list is required and the last order column should be unique
+     * 使用keyset分页,必须指定排序字段,且最后一个排序字段唯一
+     */
+    private boolean keyset = false;
+
+    /**
+     * the cursor of keyset pagination,it is the nextCursor of last page,null is the first page
+     * keyset分页的游标,为上一页返回的nextCursor,第一页为null
+     */
+    private String cursor;
+
     public enum LinkType {
         /**
          *
@@ -101,4 +113,26 @@ public class PageQueryParam extends JoyaQuery implements Serializable {
     public void setOrderList(List<OrderParam> orderList) {
         this.orderList = orderList;
     }
+
+    public boolean isKeyset() {
+        return keyset;
+    }
+
+    public void keyset(boolean keyset) {
+        this.keyset = keyset;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    /**
+     * the cursor of keyset pagination,it also enables the keyset pagination
+     *
+     * @param cursor the nextCursor of last page
+     */
+    public void cursor(String cursor) {
+        this.keyset = true;
+        this.cursor = cursor;
+    }
 }
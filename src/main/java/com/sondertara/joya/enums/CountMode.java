@@ -0,0 +1,22 @@
+package com.sondertara.joya.enums;
+
+/**
+ * 分页查询的总数统计方式
+ *
+ * @author huangxiaohu
+ */
+public enum CountMode {
+
+    /**
+     * 执行count语句统计精确的总数
+     */
+    EXACT,
+    /**
+     * 不统计总数,总数返回-1
+     */
+    SKIP,
+    /**
+     * 使用执行计划估算的行数,无法估算时回退到精确统计
+     */
+    ESTIMATED
+}
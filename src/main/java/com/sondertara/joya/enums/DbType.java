@@ -16,6 +16,7 @@ public enum DbType {
      */
     MYSQL("MYSQL", "com.mysql.cj.jdbc.Driver"),
     ORACLE("ORACLE", "oracle.jdbc.driver.OracleDriver"),
+    POSTGRESQL("POSTGRESQL", "org.postgresql.Driver"),
     CLICKHOUSE("CLICKHOUSE", "com.clickhouse.jdbc.ClickHouseDrive");
 
     private final String type;
@@ -27,6 +28,25 @@ public enum DbType {
         this.driverClassName = driverClassName;
     }
 
+    /**
+     * 根据{@link java.sql.DatabaseMetaData#getDatabaseProductName()}获取数据库类型
+     *
+     * @param productName the database product name
+     * @return 数据库类型,不支持则返回null
+     */
+    public static DbType fromProductName(String productName) {
+        if (null == productName) {
+            return null;
+        }
+        String name = productName.toUpperCase();
+        for (DbType dbTypeEnum : DbType.values()) {
+            if (name.contains(dbTypeEnum.getType())) {
+                return dbTypeEnum;
+            }
+        }
+        return null;
+    }
+
     public static DbType getDbType(String type) {
         for (DbType dbTypeEnum : DbType.values()) {
             if (dbTypeEnum.getType().equals(type)) {
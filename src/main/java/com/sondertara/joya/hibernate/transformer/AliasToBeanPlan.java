@@ -0,0 +1,188 @@
+package com.sondertara.joya.hibernate.transformer;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.sondertara.common.util.StringUtils;
+import com.sondertara.joya.hibernate.transformer.mappedfileds.Fields;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.util.ClassUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+
+import static com.sondertara.joya.core.constant.JoyaConst.ALIAS_SPLIT;
+
+/**
+ * 预编译的别名映射计划
+ * <p>
+ * 每个(结果类型, 别名数组)组合只解析一次别名对应的属性、setter和目标类型,所有transformer实例共享.
+ * 普通属性直接调用setter,嵌套属性、Map属性和ConversionService不能转换的值仍然通过{@link ValueSetter}设置
+ *
+ * @author huangxiaohu
+ */
+final class AliasToBeanPlan {
+
+    private static final int MAX_CACHED_PLANS = 1024;
+
+    private static final Cache<PlanKey, AliasToBeanPlan> PLANS = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_PLANS).build();
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final String[] aliases;
+    private final ColumnSetter[] setters;
+
+    private AliasToBeanPlan(String[] aliases, ColumnSetter[] setters) {
+        this.aliases = aliases;
+        this.setters = setters;
+    }
+
+    /**
+     * 获取映射计划
+     *
+     * @param mappedClass  结果类型
+     * @param aliases      查询结果的别名
+     * @param mappedFields 结果类型的属性
+     * @return 映射计划
+     */
+    static AliasToBeanPlan of(Class<?> mappedClass, String[] aliases, Map<String, Fields> mappedFields) {
+        AliasToBeanPlan plan = PLANS.getIfPresent(new PlanKey(mappedClass, aliases));
+        if (null == plan) {
+            String[] copy = aliases.clone();
+            plan = compile(copy, mappedFields);
+            PLANS.put(new PlanKey(mappedClass, copy), plan);
+        }
+        return plan;
+    }
+
+    /**
+     * 设置一行的值
+     *
+     * @param bean         结果对象
+     * @param tuple        一行的值
+     * @param valueSetter  不能直接设置时使用
+     * @param mappedFields 结果类型的属性
+     */
+    void apply(Object bean, Object[] tuple, ValueSetter valueSetter, Map<String, Fields> mappedFields) {
+        for (int i = 0; i < setters.length; i++) {
+            ColumnSetter setter = setters[i];
+            if (null == setter) {
+                valueSetter.set(bean, aliases[i], tuple[i], mappedFields);
+            } else if (!setter.set(bean, tuple[i])) {
+                // the value can not be converted by the ConversionService,try the property editors of BeanWrapper
+                valueSetter.set(bean, aliases[i], tuple[i], mappedFields);
+            }
+        }
+    }
+
+    private static AliasToBeanPlan compile(String[] source, Map<String, Fields> mappedFields) {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        String[] aliases = new String[source.length];
+        ColumnSetter[] setters = new ColumnSetter[source.length];
+        for (int i = 0; i < source.length; i++) {
+            String trim = source[i].trim();
+            String alias = trim.contains("_") ? StringUtils.toCamelCase(trim) : trim;
+            aliases[i] = alias;
+            if (alias.contains(ALIAS_SPLIT)) {
+                continue;
+            }
+            Fields field = ValueSetter.bestGuessFields(alias, mappedFields);
+            if (null == field) {
+                setters[i] = ColumnSetter.SKIP;
+            } else if (!field.isMap() && !field.isCollection()) {
+                setters[i] = directSetter(lookup, field);
+            }
+        }
+        return new AliasToBeanPlan(aliases, setters);
+    }
+
+    private static ColumnSetter directSetter(MethodHandles.Lookup lookup, Fields field) {
+        Method writeMethod = field.getPropertyDescriptor().getWriteMethod();
+        MethodHandle setter;
+        try {
+            writeMethod.setAccessible(true);
+            setter = lookup.unreflect(writeMethod).asType(SETTER_TYPE);
+        } catch (IllegalAccessException | RuntimeException e) {
+            // use the BeanWrapper
+            return null;
+        }
+        Class<?> type = ClassUtils.resolvePrimitiveIfNecessary(field.getPropertyType());
+        TypeDescriptor targetType = TypeDescriptor.valueOf(field.getPropertyType());
+        return (bean, value) -> {
+            if (null == value) {
+                return true;
+            }
+            Object converted = value;
+            if (!type.isInstance(value)) {
+                TypeDescriptor sourceType = TypeDescriptor.forObject(value);
+                if (!ValueSetter.conversionService.canConvert(sourceType, targetType)) {
+                    return false;
+                }
+                converted = ValueSetter.conversionService.convert(value, sourceType, targetType);
+            }
+            try {
+                setter.invokeExact(bean, converted);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException(e.getMessage(), e);
+            }
+            return true;
+        };
+    }
+
+    /**
+     * 列的setter
+     */
+    @FunctionalInterface
+    private interface ColumnSetter {
+        /**
+         * the alias without property
+         */
+        ColumnSetter SKIP = (bean, value) -> true;
+
+        /**
+         * 设置列值
+         *
+         * @param bean  结果对象
+         * @param value 列值
+         * @return false表示不能直接设置
+         */
+        boolean set(Object bean, Object value);
+    }
+
+    /**
+     * 映射计划的缓存key
+     */
+    private static final class PlanKey {
+        private final Class<?> type;
+        private final String[] aliases;
+        private final int hash;
+
+        private PlanKey(Class<?> type, String[] aliases) {
+            this.type = type;
+            this.aliases = aliases;
+            this.hash = 31 * type.hashCode() + Arrays.hashCode(aliases);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PlanKey)) {
+                return false;
+            }
+            PlanKey other = (PlanKey) o;
+            return type.equals(other.type) && Arrays.equals(aliases, other.aliases);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package com.sondertara.joya.hibernate.transformer;
 
 import com.sondertara.common.util.CollectionUtils;
-import com.sondertara.common.util.StringUtils;
 import com.sondertara.joya.core.jdbc.SqlDataHelper;
 import com.sondertara.joya.hibernate.transformer.mappedfileds.Fields;
 import oracle.sql.TIMESTAMP;
@@ -29,6 +28,10 @@ public class AliasToBeanTransformer<T> implements ResultTransformer {
     private final Class<T> mappedClass;
     private final Map<String, Fields> mappedFields;
     private final ValueSetter valueSetter;
+    /**
+     * hibernate passes the same aliases array for every tuple of one query
+     */
+    private BoundPlan plan;
 
     public AliasToBeanTransformer(Class<T> mappedClass) {
         this.mappedClass = mappedClass;
@@ -47,13 +50,12 @@ public class AliasToBeanTransformer<T> implements ResultTransformer {
             }
         }
         T mappedObject = BeanUtils.instantiateClass(mappedClass);
-
-        for (int i = 0; i < aliases.length; i++) {
-            String trim = aliases[i].trim();
-            String alias = trim.contains("_") ? StringUtils.toCamelCase(trim) : trim;
-            Object value = tuple[i];
-            valueSetter.set(mappedObject, alias, value, this.mappedFields);
+        BoundPlan current = plan;
+        if (null == current || aliases != current.aliases) {
+            current = new BoundPlan(aliases, AliasToBeanPlan.of(mappedClass, aliases, mappedFields));
+            plan = current;
         }
+        current.plan.apply(mappedObject, tuple, valueSetter, mappedFields);
         valueSetter.clearGenericMap();
         return mappedObject;
     }
@@ -135,4 +137,17 @@ public class AliasToBeanTransformer<T> implements ResultTransformer {
         }
     }
 
+    /**
+     * the plan of the last aliases array
+     */
+    private static final class BoundPlan {
+        private final String[] aliases;
+        private final AliasToBeanPlan plan;
+
+        private BoundPlan(String[] aliases, AliasToBeanPlan plan) {
+            this.aliases = aliases;
+            this.plan = plan;
+        }
+    }
+
 }
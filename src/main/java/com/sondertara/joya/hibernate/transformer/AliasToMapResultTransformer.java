@@ -6,15 +6,18 @@
  */
 package com.sondertara.joya.hibernate.transformer;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.sondertara.common.util.StringUtils;
 import com.sondertara.joya.core.jdbc.SqlDataHelper;
+import com.sondertara.joya.utils.PageSqlCache;
 import oracle.sql.TIMESTAMP;
 import org.hibernate.transform.AliasedTupleSubsetResultTransformer;
 
 import java.io.Reader;
 import java.sql.Clob;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -24,8 +27,19 @@ public class AliasToMapResultTransformer extends AliasedTupleSubsetResultTransfo
 
     public static ConcurrentHashMap<String, AliasToMapResultTransformer> TRANSFORMER = new ConcurrentHashMap<String, AliasToMapResultTransformer>();
 
+    private static final int MAX_CACHED_KEYS = 1024;
+
+    /**
+     * aliases -> keys,for camel case and not
+     */
+    private static final Cache<List<String>, RowMap.Keys> CAMEL_CASE_KEYS = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_KEYS).build();
+
+    private static final Cache<List<String>, RowMap.Keys> ALIAS_KEYS = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_KEYS).build();
+
     private final Boolean camelCase;
 
+    private transient volatile BoundKeys last;
+
     private AliasToMapResultTransformer(Boolean camelCase) {
         this.camelCase = camelCase;
     }
@@ -35,22 +49,15 @@ public class AliasToMapResultTransformer extends AliasedTupleSubsetResultTransfo
         return TRANSFORMER.computeIfAbsent(camelCase.toString(), k -> new AliasToMapResultTransformer(camelCase));
     }
 
+    /**
+     * 返回只读的{@link RowMap},同一查询的所有行共享转换后的别名
+     */
     @Override
     public Object transformTuple(Object[] tuple, String[] aliases) {
-        Map<String, Object> result = new LinkedHashMap<>(tuple.length);
-        for (int i = 0; i < tuple.length; i++) {
-            String alias = aliases[i];
-            if (null == alias) {
-                continue;
-            }
-            Object value = tuple[i];
-            if (camelCase) {
-                int index = alias.indexOf(".");
-                if (index > -1) {
-                    alias = alias.substring(index + 1);
-                }
-                alias = StringUtils.toCamelCase(alias);
-            }
+        RowMap.Keys keys = keys(aliases);
+        Object[] values = new Object[keys.size()];
+        for (int i = 0; i < values.length; i++) {
+            Object value = tuple[keys.tupleIndex(i)];
             if (null != value) {
                 if (SqlDataHelper.isClob(value.getClass())) {
                     value = SqlDataHelper.extractString((Clob) value);
@@ -60,13 +67,62 @@ public class AliasToMapResultTransformer extends AliasedTupleSubsetResultTransfo
                     value = SqlDataHelper.extractDate(value);
                 }
             }
-            result.put(alias, value);
+            values[i] = value;
+        }
+        return new RowMap(keys, values);
+    }
+
+    /**
+     * hibernate passes the same aliases array for every tuple of one query,
+     * the transformer is shared so the keys of other queries are cached by the aliases
+     */
+    private RowMap.Keys keys(String[] aliases) {
+        BoundKeys current = last;
+        if (null != current && current.aliases == aliases) {
+            return current.keys;
+        }
+        Cache<List<String>, RowMap.Keys> cache = camelCase ? CAMEL_CASE_KEYS : ALIAS_KEYS;
+        List<String> key = Arrays.asList(aliases.clone());
+        RowMap.Keys keys = cache.getIfPresent(key);
+        if (null == keys) {
+            String[] names = new String[aliases.length];
+            for (int i = 0; i < aliases.length; i++) {
+                // the rownum column of the Oracle page sql is not a column of the query
+                names[i] = PageSqlCache.ROWNUM_COLUMN.equalsIgnoreCase(aliases[i]) ? null : transformAlias(aliases[i]);
+            }
+            keys = RowMap.Keys.of(names);
+            cache.put(key, keys);
+        }
+        last = new BoundKeys(aliases, keys);
+        return keys;
+    }
+
+    private String transformAlias(String alias) {
+        if (null == alias || !camelCase) {
+            return alias;
         }
-        return result;
+        int index = alias.indexOf(".");
+        if (index > -1) {
+            alias = alias.substring(index + 1);
+        }
+        return StringUtils.toCamelCase(alias);
     }
 
     @Override
     public boolean isTransformedValueATupleElement(String[] aliases, int tupleLength) {
         return false;
     }
+
+    /**
+     * the keys of the last aliases array
+     */
+    private static final class BoundKeys {
+        private final String[] aliases;
+        private final RowMap.Keys keys;
+
+        private BoundKeys(String[] aliases, RowMap.Keys keys) {
+            this.aliases = aliases;
+            this.keys = keys;
+        }
+    }
 }
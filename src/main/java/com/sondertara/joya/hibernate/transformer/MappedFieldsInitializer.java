@@ -1,19 +1,41 @@
 package com.sondertara.joya.hibernate.transformer;
 
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.Maps;
 import com.sondertara.joya.hibernate.transformer.mappedfileds.Fields;
 import com.sondertara.joya.hibernate.transformer.mappedfileds.MapFields;
 import org.springframework.beans.BeanUtils;
 
 import java.beans.PropertyDescriptor;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
+ * 结果类型的属性
+ * <p>
+ * 每个结果类型只解析一次,结果全局缓存且只读.嵌套属性最多解析{@link #MAX_DEPTH}层,
+ * 循环引用的类型(如parent属性)不再展开子属性
+ *
  * @author huangxiaohu
  */
 public class MappedFieldsInitializer {
 
+    /**
+     * the max depth of nested properties
+     */
+    private static final int MAX_DEPTH = 5;
+
+    private static final Map<Class<?>, Map<String, Fields>> CACHE = new ConcurrentHashMap<>();
+
+    private static final LongAdder HITS = new LongAdder();
+
+    private static final LongAdder MISSES = new LongAdder();
+
     private static boolean isMap(Class<?> propertyType) {
         return Map.class.isAssignableFrom(propertyType);
     }
@@ -25,7 +47,40 @@ public class MappedFieldsInitializer {
                 Date.class.isAssignableFrom(propertyType);
     }
 
+    /**
+     * 获取结果类型的属性
+     *
+     * @param mappedClass 结果类型
+     * @return 只读的属性,key为属性名
+     */
     public Map<String, Fields> init(Class<?> mappedClass) {
+        Map<String, Fields> fields = CACHE.get(mappedClass);
+        if (null != fields) {
+            HITS.increment();
+            return fields;
+        }
+        MISSES.increment();
+        return CACHE.computeIfAbsent(mappedClass, k -> introspect(k, new HashSet<>(), 0));
+    }
+
+    /**
+     * @return the hit and miss count of the cache
+     */
+    public static CacheStats stats() {
+        return new CacheStats(HITS.sum(), MISSES.sum(), 0, 0, 0, 0);
+    }
+
+    /**
+     * @return the count of cached result classes
+     */
+    public static int size() {
+        return CACHE.size();
+    }
+
+    private static Map<String, Fields> introspect(Class<?> mappedClass, Set<Class<?>> path, int depth) {
+        if (depth >= MAX_DEPTH || !path.add(mappedClass)) {
+            return Collections.emptyMap();
+        }
         Map<String, Fields> fields = Maps.newHashMap();
         PropertyDescriptor[] pds = BeanUtils.getPropertyDescriptors(mappedClass);
         for (PropertyDescriptor pd : pds) {
@@ -48,10 +103,11 @@ public class MappedFieldsInitializer {
 
             Fields childField = new Fields(pd);
 
-            childField.setChildrenFields(init(propertyType));
+            childField.setChildrenFields(introspect(propertyType, path, depth + 1));
             fields.put(name, childField);
         }
-        return fields;
+        path.remove(mappedClass);
+        return Collections.unmodifiableMap(fields);
     }
 
 }
@@ -0,0 +1,145 @@
+package com.sondertara.joya.hibernate.transformer;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * 只读的一行数据
+ * <p>
+ * 同一个查询的所有行共享一个{@link Keys},每行只保存值数组,按查询列的顺序遍历
+ *
+ * @author huangxiaohu
+ */
+final class RowMap extends AbstractMap<String, Object> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Keys keys;
+    private final Object[] values;
+
+    RowMap(Keys keys, Object[] values) {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return keys.indexOf(key) >= 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+        int index = keys.indexOf(key);
+        return index < 0 ? null : values[index];
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new Iterator<Entry<String, Object>>() {
+                    private int index = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < values.length;
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        if (index >= values.length) {
+                            throw new NoSuchElementException();
+                        }
+                        Entry<String, Object> entry = new SimpleImmutableEntry<>(keys.names[index], values[index]);
+                        index++;
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return values.length;
+            }
+        };
+    }
+
+    /**
+     * the keys of one query
+     */
+    static final class Keys implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String[] names;
+        /**
+         * the index in the tuple of every key
+         */
+        private final int[] tupleIndexes;
+        private final Map<String, Integer> indexes;
+
+        private Keys(String[] names, int[] tupleIndexes) {
+            this.names = names;
+            this.tupleIndexes = tupleIndexes;
+            this.indexes = new HashMap<>(names.length * 4 / 3 + 1);
+            for (int i = 0; i < names.length; i++) {
+                indexes.put(names[i], i);
+            }
+        }
+
+        /**
+         * 去掉null的别名,重复的别名保留第一个的位置和最后一个的值,与LinkedHashMap的put一致
+         *
+         * @param names 转换后的别名,null表示跳过
+         * @return keys
+         */
+        static Keys of(String[] names) {
+            Map<String, Integer> positions = new HashMap<>(names.length * 4 / 3 + 1);
+            String[] keys = new String[names.length];
+            int[] tupleIndexes = new int[names.length];
+            int size = 0;
+            for (int i = 0; i < names.length; i++) {
+                String name = names[i];
+                if (null == name) {
+                    continue;
+                }
+                Integer position = positions.get(name);
+                if (null == position) {
+                    positions.put(name, size);
+                    keys[size] = name;
+                    tupleIndexes[size] = i;
+                    size++;
+                } else {
+                    tupleIndexes[position] = i;
+                }
+            }
+            return new Keys(Arrays.copyOf(keys, size), Arrays.copyOf(tupleIndexes, size));
+        }
+
+        int size() {
+            return names.length;
+        }
+
+        int tupleIndex(int index) {
+            return tupleIndexes[index];
+        }
+
+        private int indexOf(Object key) {
+            Integer index = indexes.get(key);
+            return null == index ? -1 : index;
+        }
+    }
+}
@@ -11,8 +11,6 @@ import org.springframework.data.convert.Jsr310Converters;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 import static com.sondertara.joya.core.constant.JoyaConst.ALIAS_SPLIT;
 
@@ -55,7 +53,7 @@ public class ValueSetter {
         String alias2 = alias.substring(0, index);
         String remainAlias = alias.substring(index + 1);
 
-        Fields field = bestGuessFields(alias, mappedFields);
+        Fields field = bestGuessFields(alias2, mappedFields);
         if (null == field) {
             return;
         }
@@ -76,12 +74,13 @@ public class ValueSetter {
     }
 
 
-    private Fields bestGuessFields(String aliasName, Map<String, Fields> mappedFields) {
+    static Fields bestGuessFields(String aliasName, Map<String, Fields> mappedFields) {
         Fields fields = mappedFields.get(aliasName);
         if (null == fields) {
-            Set<String> set = mappedFields.keySet().stream().filter(aliasName::equalsIgnoreCase).collect(Collectors.toSet());
-            if (set.size() > 0) {
-                return mappedFields.get(set.iterator().next());
+            for (Map.Entry<String, Fields> entry : mappedFields.entrySet()) {
+                if (aliasName.equalsIgnoreCase(entry.getKey())) {
+                    return entry.getValue();
+                }
             }
         }
         return fields;
@@ -6,7 +6,7 @@ import com.sondertara.common.util.BeanUtils;
 import com.sondertara.joya.core.query.NativeSqlQuery;
 import com.sondertara.joya.hibernate.transformer.AliasToBeanTransformer;
 import com.sondertara.joya.hibernate.transformer.AliasToMapResultTransformer;
-import com.sondertara.joya.utils.SqlUtils;
+import com.sondertara.joya.utils.PageSqlCache;
 import org.hibernate.Session;
 import org.hibernate.query.internal.NativeQueryImpl;
 import org.hibernate.transform.Transformers;
@@ -162,7 +162,7 @@ public class BaseRepositoryImpl<T, ID extends Serializable> extends SimpleJpaRep
 
         //获取总记录数
         Session session = em.unwrap(Session.class);
-        String countSql = SqlUtils.buildCountSql(sqlStr);
+        String countSql = PageSqlCache.countSql(sqlStr);
         Query countQuery = session.createNativeQuery(countSql);
         setParameters(countQuery, nativeSql.getParams());
 
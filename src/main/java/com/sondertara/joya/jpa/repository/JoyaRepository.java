@@ -4,18 +4,24 @@ package com.sondertara.joya.jpa.repository;
 import com.sondertara.common.model.PageResult;
 import com.sondertara.common.util.CollectionUtils;
 import com.sondertara.common.util.StringFormatter;
+import com.sondertara.joya.cache.EntityMetadata;
 import com.sondertara.joya.cache.TableClassCache;
-import com.sondertara.joya.core.model.TableEntity;
+import com.sondertara.joya.core.jdbc.ColumnarResult;
+import com.sondertara.joya.core.jdbc.RecordAdapterForResultSet;
+import com.sondertara.joya.core.jdbc.mapper.ColumnarRecordMapper;
 import com.sondertara.joya.core.query.NativeSqlQuery;
 import com.sondertara.joya.core.query.criterion.JoinCriterion;
+import com.sondertara.joya.core.query.pagination.CursorPageResult;
 import com.sondertara.joya.core.query.pagination.JoyaPageConvert;
+import com.sondertara.joya.core.query.pagination.KeysetCursor;
 import com.sondertara.joya.core.query.pagination.PageQueryParam;
 import com.sondertara.joya.domain.PersistEntity;
+import com.sondertara.joya.enums.CountMode;
 import com.sondertara.joya.ext.JoyaSpringContext;
 import com.sondertara.joya.hibernate.transformer.AliasToBeanTransformer;
 import com.sondertara.joya.hibernate.transformer.AliasToMapResultTransformer;
-import com.sondertara.joya.jpa.repository.statment.SimpleBatchPreparedStatementSetter;
-import com.sondertara.joya.utils.SqlUtils;
+import com.sondertara.joya.jpa.repository.statment.ArrayBatchPreparedStatementSetter;
+import com.sondertara.joya.utils.PageSqlCache;
 import org.hibernate.Session;
 import org.hibernate.query.NativeQuery;
 import org.slf4j.Logger;
@@ -23,6 +29,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.support.JdbcUtils;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
@@ -31,13 +38,14 @@ import javax.persistence.EntityManager;
 import javax.persistence.Query;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.UnaryOperator;
-import java.util.stream.Collectors;
 
 /**
  * dao
@@ -54,8 +62,11 @@ public class JoyaRepository {
 
     private final EntityManager em;
 
+    private final PageCountSupport pageCount;
+
     public JoyaRepository(EntityManager em) {
         this.em = em;
+        this.pageCount = new PageCountSupport(em);
     }
 
 
@@ -134,6 +145,43 @@ public class JoyaRepository {
         return query.getResultList();
     }
 
+    /**
+     * query the result stored by columns,for the large report query
+     *
+     * @param nativeSql sql query
+     * @return the columnar result
+     * @see ColumnarResult
+     */
+    public ColumnarResult findColumnarBySql(NativeSqlQuery nativeSql) {
+        return findColumnarBySql(nativeSql.toSql(), nativeSql.getParams());
+    }
+
+    /**
+     * query the result stored by columns,for the large report query
+     * <p>
+     * the rows are read from the jdbc connection of the current session,without the hibernate transformer.
+     * the numbered parameters(?1) are converted to the jdbc parameters(?)
+     *
+     * @param querySql sql
+     * @param params   params
+     * @return the columnar result
+     * @see ColumnarResult
+     */
+    public ColumnarResult findColumnarBySql(String querySql, List<Object> params) {
+        List<Object> args = new ArrayList<>();
+        String jdbcSql = PageCountSupport.toJdbcSql(querySql, null == params ? null : params.toArray(), args);
+        return em.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(jdbcSql)) {
+                for (int i = 0; i < args.size(); i++) {
+                    ps.setObject(i + 1, args.get(i));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    return new ColumnarRecordMapper().map(new RecordAdapterForResultSet(rs));
+                }
+            }
+        });
+    }
+
     @SuppressWarnings({"unchecked","deprecation"})
     public Map<String, Object> findMapBySql(String querySql, List<Object> params, boolean camelCase) {
         Query query = em.createNativeQuery(querySql);
@@ -174,6 +222,57 @@ public class JoyaRepository {
     }
 
 
+    /**
+     * keyset(seek) pagination,the page costs the same no matter how deep it is
+     * <p>
+     * the order list is required and the last order column should be unique,
+     * pass the {@link CursorPageResult#getNextCursor()} to {@link PageQueryParam#cursor(String)} to fetch the next page
+     *
+     * @param queryParam  query params
+     * @param resultClass the result class
+     * @param targetClass the target query table
+     * @param <T>         the type of result
+     * @return pagination result without total count
+     */
+    public <T> CursorPageResult<T> queryPageByCursor(PageQueryParam queryParam, Class<T> resultClass, Class<?>... targetClass) {
+        queryParam.keyset(true);
+        NativeSqlQuery nativeSqlQuery = JoyaPageConvert.buildNativeQuery(queryParam, targetClass);
+        return queryPageByCursor(nativeSqlQuery, queryParam, resultClass);
+    }
+
+    /**
+     * keyset(seek) pagination with join
+     *
+     * @param queryParam  query params
+     * @param resultClass the result class
+     * @param joinPart    the join  table
+     * @param <T>         the type of result
+     * @return pagination result without total count
+     * @see #queryPageByCursor(PageQueryParam, Class, Class[])
+     */
+    public <T> CursorPageResult<T> queryPageByCursor(PageQueryParam queryParam, Class<T> resultClass, UnaryOperator<JoinCriterion> joinPart) {
+        queryParam.keyset(true);
+        NativeSqlQuery nativeSqlQuery = JoyaPageConvert.buildNativeQuery(queryParam, joinPart);
+        return queryPageByCursor(nativeSqlQuery, queryParam, resultClass);
+    }
+
+    private <T> CursorPageResult<T> queryPageByCursor(NativeSqlQuery nativeSql, PageQueryParam queryParam, Class<T> resultClass) {
+        String sql = nativeSql.toSql();
+        if (JoyaSpringContext.getConfig(SQL_VIEW_SWITCH, false)) {
+            log.info("[queryPageByCursor] SQL:\nJoya-SQL: {}", sql);
+        }
+        int pageSize = queryParam.getPageSize();
+        Object[] params = null == nativeSql.getParams() ? new Object[0] : nativeSql.getParams().toArray();
+        // fetch one more row to know whether there is a next page
+        List<T> result = findPageList(em, sql, resultClass, 0, pageSize + 1, params);
+        String nextCursor = null;
+        if (result.size() > pageSize) {
+            result = new ArrayList<>(result.subList(0, pageSize));
+            nextCursor = KeysetCursor.next(result.get(pageSize - 1), queryParam.getOrderList());
+        }
+        return new CursorPageResult<>(result, pageSize, nextCursor);
+    }
+
     /**
      * query page
      *
@@ -185,31 +284,128 @@ public class JoyaRepository {
      * @param params      the query params
      * @return pagination result
      */
-    @SuppressWarnings({"unchecked","deprecation"})
     public <T> PageResult<T> queryPage(String sql, Class<T> resultClass, Integer pageNo, Integer pageSize, Object... params) {
+        return queryPage(sql, resultClass, pageNo, pageSize, CountMode.EXACT, params);
+    }
+
+    /**
+     * query page with the specified count mode
+     * <p>
+     * The count result is cached for {@code joya.page.count-cache-ttl} seconds if configured.
+     *
+     * @param sql         sql query
+     * @param resultClass result class
+     * @param pageNo      page start
+     * @param pageSize    page size
+     * @param countMode   the count mode,the total is -1 if skip
+     * @param params      the query params
+     * @param <T>         the type of result
+     * @return pagination result
+     * @see CountMode
+     */
+    public <T> PageResult<T> queryPage(String sql, Class<T> resultClass, Integer pageNo, Integer pageSize, CountMode countMode, Object... params) {
+        return doQueryPage(sql, CountMode.SKIP.equals(countMode) ? null : PageSqlCache.countSql(sql), resultClass, pageNo, pageSize, countMode, false, params);
+    }
+
+    /**
+     * query page,the count query runs concurrently with the page query
+     * <p>
+     * If {@code joya.page.parallel-count} is enabled and there is no active transaction,
+     * the count and the page query run on two new connections without transaction.
+     * Otherwise it is the same as {@link #queryPage(String, Class, Integer, Integer, CountMode, Object...)}
+     *
+     * @param sql         sql query
+     * @param resultClass result class
+     * @param pageNo      page start
+     * @param pageSize    page size
+     * @param countMode   the count mode,the total is -1 if skip
+     * @param params      the query params
+     * @param <T>         the type of result
+     * @return pagination result
+     */
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public <T> PageResult<T> queryPageParallel(String sql, Class<T> resultClass, Integer pageNo, Integer pageSize, CountMode countMode, Object... params) {
+        return doQueryPage(sql, CountMode.SKIP.equals(countMode) ? null : PageSqlCache.countSql(sql), resultClass, pageNo, pageSize, countMode, true, params);
+    }
+
+    /**
+     * query page,the count query runs concurrently with the page query
+     *
+     * @param nativeSql   sql query
+     * @param resultClass result class
+     * @param pageNo      page start
+     * @param pageSize    page size
+     * @param countMode   the count mode,the total is -1 if skip
+     * @param <T>         the type of result
+     * @return pagination result
+     * @see #queryPageParallel(String, Class, Integer, Integer, CountMode, Object...)
+     */
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public <T> PageResult<T> queryPageParallel(NativeSqlQuery nativeSql, Class<T> resultClass, Integer pageNo, Integer pageSize, CountMode countMode) {
+        String countSql = CountMode.SKIP.equals(countMode) ? null : nativeSql.getCountSql();
+        return doQueryPage(nativeSql.toSql(), countSql, resultClass, pageNo, pageSize, countMode, true, null == nativeSql.getParams() ? new Object[0] : nativeSql.getParams().toArray());
+    }
+
+    /**
+     * the page query with the count sql
+     */
+    private <T> PageResult<T> doQueryPage(String sql, String countSql, Class<T> resultClass, Integer pageNo, Integer pageSize, CountMode countMode, boolean parallel, Object... params) {
         Boolean opened = JoyaSpringContext.getConfig(SQL_VIEW_SWITCH, false);
         if (opened) {
             log.info("[queryPage] SQL:\nJoya-SQL: {}", sql);
         }
-        // get the count sql
-        String countSql = SqlUtils.buildCountSql(sql);
-        Query countQuery = em.createNativeQuery(countSql);
-        setParameters(countQuery, params);
-        long totalRecord = ((Number) countQuery.getSingleResult()).longValue();
-
-        // the query
-        Query pageQuery = em.createNativeQuery(sql);
+        if (parallel && pageCount.parallel(countMode)) {
+            CompletableFuture<Long> total = pageCount.countAsync(countSql, sql, countMode, params);
+            // no transaction holds the shared EntityManager open,use a dedicated one as the count does
+            EntityManager pageEm = em.getEntityManagerFactory().createEntityManager();
+            List<T> result;
+            try {
+                result = findPageList(pageEm, sql, resultClass, pageNo, pageSize, params);
+            } finally {
+                pageEm.close();
+            }
+            return new PageResult<>(result, PageCountSupport.join(total), pageNo, pageSize);
+        }
+        long totalRecord = pageCount.count(countSql, sql, countMode, params);
+        List<T> result = totalRecord == 0 ? new ArrayList<>(0) : findPageList(em, sql, resultClass, pageNo, pageSize, params);
+        return new PageResult<>(result, totalRecord, pageNo, pageSize);
+    }
 
-        setParameters(pageQuery, params);
-        List<T> result = null;
-        if (Map.class.isAssignableFrom(resultClass)) {
-            result = totalRecord == 0 ? new ArrayList<>(0) : pageQuery.setFirstResult(pageNo * pageSize).setMaxResults(pageSize).unwrap(NativeQuery.class).setResultTransformer(AliasToMapResultTransformer.getInstance(false)).list();
+    /**
+     * query page with the specified count mode
+     *
+     * @param nativeSql   sql query
+     * @param resultClass result class
+     * @param pageNo      page start
+     * @param pageSize    page size
+     * @param countMode   the count mode,the total is -1 if skip
+     * @param <T>         the type of result
+     * @return pagination result
+     */
+    public <T> PageResult<T> queryPage(NativeSqlQuery nativeSql, Class<T> resultClass, Integer pageNo, Integer pageSize, CountMode countMode) {
+        String countSql = CountMode.SKIP.equals(countMode) ? null : nativeSql.getCountSql();
+        return doQueryPage(nativeSql.toSql(), countSql, resultClass, pageNo, pageSize, countMode, false, null == nativeSql.getParams() ? new Object[0] : nativeSql.getParams().toArray());
+    }
 
+    /**
+     * the page query
+     */
+    @SuppressWarnings({"unchecked","deprecation"})
+    private <T> List<T> findPageList(EntityManager entityManager, String sql, Class<T> resultClass, Integer pageNo, Integer pageSize, Object... params) {
+        PageSqlCache.PageSql pageSql = pageCount.pageSql(sql, null == params ? 0 : params.length);
+        Query pageQuery;
+        if (null == pageSql) {
+            pageQuery = entityManager.createNativeQuery(sql);
+            setParameters(pageQuery, params);
+            pageQuery.setFirstResult(pageNo * pageSize).setMaxResults(pageSize);
         } else {
-            result = totalRecord == 0 ? new ArrayList<>(0) : pageQuery.setFirstResult(pageNo * pageSize).setMaxResults(pageSize).unwrap(NativeQuery.class).setResultTransformer(new AliasToBeanTransformer<>(resultClass)).list();
-
+            pageQuery = entityManager.createNativeQuery(pageSql.getSql());
+            setParameters(pageQuery, pageSql.params(params, (long) pageNo * pageSize, pageSize));
         }
-        return new PageResult<>(result,totalRecord,pageNo, pageSize);
+        if (Map.class.isAssignableFrom(resultClass)) {
+            return pageQuery.unwrap(NativeQuery.class).setResultTransformer(AliasToMapResultTransformer.getInstance(false)).list();
+        }
+        return pageQuery.unwrap(NativeQuery.class).setResultTransformer(new AliasToBeanTransformer<>(resultClass)).list();
     }
 
     /**
@@ -224,7 +420,7 @@ public class JoyaRepository {
      */
     @SuppressWarnings("unchecked")
     public <T> PageResult<T> queryPage(NativeSqlQuery nativeSql, Class<T> resultClass, Integer pageNo, Integer pageSize) {
-        return queryPage(nativeSql.toSql(), resultClass, pageNo, pageSize, null == nativeSql.getParams() ? new Object[0] : nativeSql.getParams().toArray());
+        return queryPage(nativeSql, resultClass, pageNo, pageSize, CountMode.EXACT);
     }
 
 
@@ -336,61 +532,47 @@ public class JoyaRepository {
             if (CollectionUtils.isEmpty(dataList)) {
                 return;
             }
-            List<TableEntity> insertList = new ArrayList<>();
-            List<TableEntity> updateList = new ArrayList<>();
+            EntityMetadata metadata = TableClassCache.getMetadata(dataList.get(0).getClass());
+            List<Object[]> insertList = new ArrayList<>();
+            // auto increment,don`t insert the primary key column
+            List<Object[]> generatedKeyList = new ArrayList<>();
+            List<Object[]> updateList = new ArrayList<>();
+            Object[] buffer = null;
             for (T data : dataList) {
-                TableEntity table = TableClassCache.getInstance().getTable(data, true);
+                buffer = metadata.extract(data, buffer);
                 if (data.isNew()) {
-                    // auto increment
-                    if (table.getData().get(table.getPrimaryKey()) == null) {
-                        table.getData().remove(table.getPrimaryKey());
+                    if (null == metadata.getPrimaryKeyValue(buffer)) {
+                        generatedKeyList.add(metadata.withoutPrimaryKey(buffer));
+                    } else {
+                        insertList.add(buffer.clone());
                     }
-                    insertList.add(table);
                 } else {
-                    Object remove = table.getData().remove(table.getPrimaryKey());
-                    table.getData().put(table.getPrimaryKey(), remove);
-                    updateList.add(table);
-                }
-            }
-            String insertSql = null;
-            if (insertList.size() > 0) {
-                TableEntity table = insertList.get(0);
-                Map<String, Object> data = table.getData();
-                // auto increment
-                if (null == data.get(table.getPrimaryKey())) {
-                    data.remove(table.getPrimaryKey());
+                    updateList.add(metadata.primaryKeyLast(buffer));
                 }
-                List<String> set = data.keySet().stream().map(s -> "?").collect(Collectors.toList());
-                insertSql = StringFormatter.format("insert into {}({}) values({})", table.getTableName(), String.join(",", data.keySet()), String.join(",", set));
             }
+            String insertSql = insertList.isEmpty() ? null : EntityMetadata.insertSql(metadata.getTableName(), metadata.getColumns());
+            String generatedKeySql = generatedKeyList.isEmpty() ? null : EntityMetadata.insertSql(metadata.getTableName(), metadata.getColumnsWithoutPrimaryKey());
             String updateSql = null;
-            if (updateList.size() > 0) {
-                TableEntity table = updateList.get(0);
+            List<Class<?>> updateTypes = new ArrayList<>(metadata.getColumnTypesWithoutPrimaryKey());
+            if (!updateList.isEmpty()) {
                 StringJoiner sj = new StringJoiner(", ");
-                Map<String, Object> map = table.getData();
-                for (String key : map.keySet()) {
-                    if (key.equals(table.getPrimaryKey())) {
-                        continue;
-                    }
+                for (String key : metadata.getColumnsWithoutPrimaryKey()) {
                     sj.add(key + " = ?");
                 }
-                updateSql = StringFormatter.format("update {} set {} where {} = ?", table.getTableName(), sj.toString(), table.getPrimaryKey());
+                updateSql = StringFormatter.format("update {} set {} where {} = ?", metadata.getTableName(), sj.toString(), metadata.getPrimaryKey());
+                updateTypes.add(metadata.getPrimaryKeyType());
             }
             try (Session session = em.unwrap(Session.class)) {
                 String finalUpdateSql = updateSql;
-                String finalInsertSql = insertSql;
-                log.info("Batch update start,insert size is:{},update size is:{}", insertList.size(), updateList.size());
+                log.info("Batch update start,insert size is:{},update size is:{}", insertList.size() + generatedKeyList.size(), updateList.size());
                 if (JoyaSpringContext.getConfig(SQL_VIEW_SWITCH, false)) {
                     log.info("Batch update sql:{}", finalUpdateSql);
-                    log.debug("Batch insert sql:{}", finalInsertSql);
+                    log.debug("Batch insert sql:{}", null == insertSql ? generatedKeySql : insertSql);
                 }
                 session.doWork(connection -> {
-                    if (null != finalUpdateSql) {
-                        batchUpdate(finalUpdateSql, updateList, connection);
-                    }
-                    if (null != finalInsertSql) {
-                        batchUpdate(finalInsertSql, insertList, connection);
-                    }
+                    batchUpdate(finalUpdateSql, new ArrayBatchPreparedStatementSetter(updateList, updateTypes), connection);
+                    batchUpdate(insertSql, new ArrayBatchPreparedStatementSetter(insertList, metadata.getColumnTypes()), connection);
+                    batchUpdate(generatedKeySql, new ArrayBatchPreparedStatementSetter(generatedKeyList, metadata.getColumnTypesWithoutPrimaryKey()), connection);
                 });
             }
         } catch (Exception e) {
@@ -400,11 +582,10 @@ public class JoyaRepository {
         log.info("Batch update completed.");
     }
 
-    private void batchUpdate(String sql, List<TableEntity> rows, Connection connection) throws SQLException {
+    private void batchUpdate(String sql, BatchPreparedStatementSetter setter, Connection connection) throws SQLException {
         if (null == sql) {
             return;
         }
-        SimpleBatchPreparedStatementSetter setter = new SimpleBatchPreparedStatementSetter(rows);
         PreparedStatement ps = connection.prepareStatement(sql);
         int batchSize = setter.getBatchSize();
         if (JdbcUtils.supportsBatchUpdates(ps.getConnection())) {
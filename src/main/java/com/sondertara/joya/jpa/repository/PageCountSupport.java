@@ -0,0 +1,402 @@
+package com.sondertara.joya.jpa.repository;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.sondertara.joya.enums.CountMode;
+import com.sondertara.joya.enums.DbType;
+import com.sondertara.joya.ext.JoyaSpringContext;
+import com.sondertara.joya.utils.PageSqlCache;
+import com.sondertara.joya.utils.SqlUtils;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Query;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 分页查询的总数统计
+ * <p>
+ * 支持精确统计、跳过统计和根据执行计划估算,统计结果可以按sql和参数短时间缓存.
+ * <ul>
+ *     <li>joya.page.parallel-count: 调用{@link JoyaRepository#queryPageParallel}且不在事务中时,count语句和分页查询在不同连接上并行执行,默认false</li>
+ *     <li>joya.page.count-cache-ttl: count结果的缓存时间(秒),0表示不缓存,默认0</li>
+ * </ul>
+ *
+ * @author huangxiaohu
+ */
+class PageCountSupport {
+
+    private static final Logger log = LoggerFactory.getLogger(PageCountSupport.class);
+
+    static final String PARALLEL_COUNT = "joya.page.parallel-count";
+    static final String COUNT_CACHE_TTL = "joya.page.count-cache-ttl";
+
+    private static final int MAX_CACHED_COUNT = 1000;
+    private static final int MAX_COUNT_THREADS = 16;
+
+    private static final Pattern NUMBERED_PARAM = Pattern.compile("\\?(\\d+)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern PG_PLAN_ROWS = Pattern.compile("\"Plan Rows\"\\s*:\\s*(\\d+)");
+
+    /**
+     * 并行count的线程池,线程用满时由调用线程执行,退化为串行
+     */
+    private static final ExecutorService COUNT_EXECUTOR = createExecutor();
+
+    private final EntityManager em;
+    private volatile Cache<String, Long> countCache;
+    private volatile boolean cacheInitialized;
+    private volatile DbType dbType;
+    private volatile int dbMajorVersion;
+    private volatile boolean dbResolved;
+
+    PageCountSupport(EntityManager em) {
+        this.em = em;
+    }
+
+    /**
+     * 是否并行执行count和分页查询
+     *
+     * @param countMode 统计方式
+     * @return true if parallel
+     */
+    boolean parallel(CountMode countMode) {
+        return !CountMode.SKIP.equals(countMode) && JoyaSpringContext.getConfig(PARALLEL_COUNT, false)
+                && !TransactionSynchronizationManager.isActualTransactionActive();
+    }
+
+    /**
+     * 在当前EntityManager上统计总数
+     *
+     * @param countSql  count语句
+     * @param sql       原始查询语句
+     * @param countMode 统计方式
+     * @param params    参数
+     * @return 总数,跳过统计则返回-1
+     */
+    long count(String countSql, String sql, CountMode countMode, Object[] params) {
+        if (CountMode.SKIP.equals(countMode)) {
+            return -1;
+        }
+        String key = cacheKey(countSql, countMode, params);
+        Long cached = getCached(key);
+        if (null != cached) {
+            return cached;
+        }
+        long total = count(em, countSql, sql, countMode, params);
+        putCached(key, total);
+        return total;
+    }
+
+    /**
+     * 在新的EntityManager(连接)上异步统计总数
+     *
+     * @param countSql  count语句
+     * @param sql       原始查询语句
+     * @param countMode 统计方式
+     * @param params    参数
+     * @return 总数
+     */
+    CompletableFuture<Long> countAsync(String countSql, String sql, CountMode countMode, Object[] params) {
+        String key = cacheKey(countSql, countMode, params);
+        Long cached = getCached(key);
+        if (null != cached) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        EntityManagerFactory factory = em.getEntityManagerFactory();
+        return CompletableFuture.supplyAsync(() -> {
+            EntityManager countEm = factory.createEntityManager();
+            try {
+                long total = count(countEm, countSql, sql, countMode, params);
+                putCached(key, total);
+                return total;
+            } finally {
+                countEm.close();
+            }
+        }, COUNT_EXECUTOR);
+    }
+
+    /**
+     * 获取数据库的分页语句
+     *
+     * @param sql        查询语句
+     * @param paramCount 查询参数个数
+     * @return 分页语句,不支持的数据库返回null
+     */
+    PageSqlCache.PageSql pageSql(String sql, int paramCount) {
+        resolveDatabase();
+        return PageSqlCache.nativePageSql(sql, dbType, dbMajorVersion, paramCount);
+    }
+
+    /**
+     * 等待异步统计的结果
+     *
+     * @param future 异步结果
+     * @return 总数
+     */
+    static long join(CompletableFuture<Long> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private long count(EntityManager entityManager, String countSql, String sql, CountMode countMode, Object[] params) {
+        if (CountMode.ESTIMATED.equals(countMode)) {
+            Long estimated = estimate(entityManager, sql, params);
+            if (null != estimated) {
+                return estimated;
+            }
+        }
+        Query countQuery = entityManager.createNativeQuery(countSql);
+        if (params != null) {
+            for (int i = 0; i < params.length; i++) {
+                countQuery.setParameter(i + 1, params[i]);
+            }
+        }
+        return ((Number) countQuery.getSingleResult()).longValue();
+    }
+
+    /**
+     * 通过执行计划估算行数,MySQL和PostgreSQL使用EXPLAIN,Oracle使用EXPLAIN PLAN的cardinality
+     *
+     * @return 估算的行数,无法估算则返回null
+     */
+    private Long estimate(EntityManager entityManager, String sql, Object[] params) {
+        // the shared EntityManager is closed after every call outside a transaction,so use a dedicated one
+        boolean dedicated = entityManager == em && !TransactionSynchronizationManager.isActualTransactionActive();
+        EntityManager target = dedicated ? em.getEntityManagerFactory().createEntityManager() : entityManager;
+        try {
+            return target.unwrap(Session.class).doReturningWork(conn -> explain(conn, sql, params));
+        } catch (Exception e) {
+            log.warn("Estimate the count failed,fallback to exact count,sql:{}", sql, e);
+            return null;
+        } finally {
+            if (dedicated) {
+                target.close();
+            }
+        }
+    }
+
+    private Long explain(Connection conn, String sql, Object[] params) throws SQLException {
+        DbType dbType = DbType.fromProductName(conn.getMetaData().getDatabaseProductName());
+        if (null == dbType) {
+            return null;
+        }
+        List<Object> args = new ArrayList<>();
+        String jdbcSql = toJdbcSql(SqlUtils.removeOrderBy(sql), params, args);
+        switch (dbType) {
+            case MYSQL:
+                return explainMysql(conn, jdbcSql, args);
+            case POSTGRESQL:
+                return explainPostgresql(conn, jdbcSql, args);
+            case ORACLE:
+                return explainOracle(conn, jdbcSql, args);
+            default:
+                return null;
+        }
+    }
+
+    private Long explainMysql(Connection conn, String sql, List<Object> args) throws SQLException {
+        try (PreparedStatement ps = prepare(conn, "explain " + sql, args); ResultSet rs = ps.executeQuery()) {
+            double rows = 1;
+            boolean found = false;
+            boolean hasFiltered = hasColumn(rs, "filtered");
+            while (rs.next()) {
+                String selectType = rs.getString("select_type");
+                // only the tables of the outer query contribute to the result rows
+                if (!"SIMPLE".equalsIgnoreCase(selectType) && !"PRIMARY".equalsIgnoreCase(selectType)) {
+                    continue;
+                }
+                double filtered = hasFiltered ? rs.getDouble("filtered") : 100;
+                rows *= rs.getLong("rows") * (filtered > 0 ? filtered : 100) / 100;
+                found = true;
+            }
+            return found ? (long) Math.ceil(rows) : null;
+        }
+    }
+
+    private Long explainPostgresql(Connection conn, String sql, List<Object> args) throws SQLException {
+        try (PreparedStatement ps = prepare(conn, "explain (format json) " + sql, args); ResultSet rs = ps.executeQuery()) {
+            if (rs.next()) {
+                Matcher matcher = PG_PLAN_ROWS.matcher(rs.getString(1));
+                if (matcher.find()) {
+                    return Long.parseLong(matcher.group(1));
+                }
+            }
+            return null;
+        }
+    }
+
+    private Long explainOracle(Connection conn, String sql, List<Object> args) throws SQLException {
+        String statementId = "joya_" + UUID.randomUUID().toString().replace("-", "").substring(0, 20);
+        try (PreparedStatement ps = prepare(conn, "explain plan set statement_id = '" + statementId + "' for " + sql, args)) {
+            ps.execute();
+        }
+        try {
+            try (PreparedStatement ps = conn.prepareStatement("select cardinality from plan_table where statement_id = ? and id = 0")) {
+                ps.setString(1, statementId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getLong(1) : null;
+                }
+            }
+        } finally {
+            try (PreparedStatement ps = conn.prepareStatement("delete from plan_table where statement_id = ?")) {
+                ps.setString(1, statementId);
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    private PreparedStatement prepare(Connection conn, String sql, List<Object> args) throws SQLException {
+        PreparedStatement ps = conn.prepareStatement(sql);
+        for (int i = 0; i < args.size(); i++) {
+            ps.setObject(i + 1, args.get(i));
+        }
+        return ps;
+    }
+
+    private boolean hasColumn(ResultSet rs, String column) throws SQLException {
+        for (int i = 1; i <= rs.getMetaData().getColumnCount(); i++) {
+            if (column.equalsIgnoreCase(rs.getMetaData().getColumnLabel(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 将JPA的?1编号参数转换成JDBC的?参数,并按出现顺序排列参数.
+     * 集合参数和hibernate一样展开成(?,?,...),每个元素一个参数
+     */
+    static String toJdbcSql(String sql, Object[] params, List<Object> args) {
+        Object[] values = null == params ? new Object[0] : params;
+        Matcher matcher = NUMBERED_PARAM.matcher(sql);
+        if (!matcher.find()) {
+            args.addAll(Arrays.asList(values));
+            return sql;
+        }
+        StringBuffer sb = new StringBuffer();
+        do {
+            Object value = values[Integer.parseInt(matcher.group(1)) - 1];
+            if (value instanceof Collection) {
+                matcher.appendReplacement(sb, expandCollection(sql, matcher.start(), (Collection<?>) value, args));
+            } else {
+                args.add(value);
+                matcher.appendReplacement(sb, "?");
+            }
+        } while (matcher.find());
+        matcher.appendTail(sb);
+        return sb.toString();
+    }
+
+    private static String expandCollection(String sql, int start, Collection<?> values, List<Object> args) {
+        StringJoiner placeholders = new StringJoiner(",");
+        if (values.isEmpty()) {
+            // "in ()" is invalid sql,a null never matches
+            placeholders.add("?");
+            args.add(null);
+        }
+        for (Object value : values) {
+            placeholders.add("?");
+            args.add(value);
+        }
+        int i = start - 1;
+        while (i >= 0 && Character.isWhitespace(sql.charAt(i))) {
+            i--;
+        }
+        boolean parenthesized = i >= 0 && sql.charAt(i) == '(';
+        return parenthesized ? placeholders.toString() : "(" + placeholders + ")";
+    }
+
+    private void resolveDatabase() {
+        if (dbResolved) {
+            return;
+        }
+        synchronized (this) {
+            if (dbResolved) {
+                return;
+            }
+            EntityManager target = em.getEntityManagerFactory().createEntityManager();
+            try {
+                target.unwrap(Session.class).doWork(conn -> {
+                    DatabaseMetaData metaData = conn.getMetaData();
+                    dbType = DbType.fromProductName(metaData.getDatabaseProductName());
+                    dbMajorVersion = metaData.getDatabaseMajorVersion();
+                });
+            } catch (Exception e) {
+                log.warn("Get the database type failed,the page query uses the hibernate limit", e);
+            } finally {
+                target.close();
+            }
+            dbResolved = true;
+        }
+    }
+
+    private String cacheKey(String countSql, CountMode countMode, Object[] params) {
+        return countMode + "|" + WHITESPACE.matcher(countSql).replaceAll(" ").trim() + "|" + Arrays.deepToString(params);
+    }
+
+    private Long getCached(String key) {
+        Cache<String, Long> cache = countCache();
+        return null == cache ? null : cache.getIfPresent(key);
+    }
+
+    private void putCached(String key, long total) {
+        Cache<String, Long> cache = countCache();
+        if (null != cache) {
+            cache.put(key, total);
+        }
+    }
+
+    private Cache<String, Long> countCache() {
+        if (!cacheInitialized) {
+            synchronized (this) {
+                if (!cacheInitialized) {
+                    long ttl = Long.parseLong(JoyaSpringContext.getConfig(COUNT_CACHE_TTL, "0"));
+                    if (ttl > 0) {
+                        countCache = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_COUNT).expireAfterWrite(ttl, TimeUnit.SECONDS).build();
+                    }
+                    cacheInitialized = true;
+                }
+            }
+        }
+        return countCache;
+    }
+
+    private static ExecutorService createExecutor() {
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(0, MAX_COUNT_THREADS, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            Thread thread = new Thread(r, "joya-page-count-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+}
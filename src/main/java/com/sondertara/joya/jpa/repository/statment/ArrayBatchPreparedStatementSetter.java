@@ -0,0 +1,46 @@
+package com.sondertara.joya.jpa.repository.statment;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+import org.springframework.lang.NonNull;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * 按列下标设置参数,sql类型只在创建时计算一次
+ *
+ * @author huangxiaohu
+ */
+public class ArrayBatchPreparedStatementSetter implements BatchPreparedStatementSetter {
+
+    private final List<Object[]> rows;
+
+    private final int[] sqlTypes;
+
+    /**
+     * @param rows        每行的参数
+     * @param columnTypes 每列的java类型
+     */
+    public ArrayBatchPreparedStatementSetter(List<Object[]> rows, List<Class<?>> columnTypes) {
+        this.rows = rows;
+        this.sqlTypes = new int[columnTypes.size()];
+        for (int i = 0; i < sqlTypes.length; i++) {
+            sqlTypes[i] = StatementCreatorUtils.javaTypeToSqlParameterType(columnTypes.get(i));
+        }
+    }
+
+    @Override
+    public void setValues(@NonNull PreparedStatement ps, int i) throws SQLException {
+        Object[] row = rows.get(i);
+        for (int j = 0; j < row.length; j++) {
+            StatementCreatorUtils.setParameterValue(ps, j + 1, sqlTypes[j], row[j]);
+        }
+    }
+
+    @Override
+    public int getBatchSize() {
+        return this.rows.size();
+    }
+}
@@ -0,0 +1,196 @@
+package com.sondertara.joya.utils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.sondertara.joya.enums.DbType;
+
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * 分页sql缓存
+ * <p>
+ * 缓存由查询语句生成的count语句和各数据库的分页语句,分页参数使用绑定参数,因此相同的查询只生成一次sql.
+ * <ul>
+ *     <li>MySQL/PostgreSQL/ClickHouse: limit ? offset ?</li>
+ *     <li>Oracle 12c及以上: offset ? rows fetch next ? rows only</li>
+ *     <li>Oracle 11g及以下: rownum嵌套查询,多出的{@link #ROWNUM_COLUMN}列在结果转换时丢弃</li>
+ * </ul>
+ *
+ * @author huangxiaohu
+ */
+public final class PageSqlCache {
+
+    /**
+     * the rownum column of the Oracle 11g page sql,it is not a column of the query
+     */
+    public static final String ROWNUM_COLUMN = "rn_page";
+
+    private static final int MAX_CACHED_SQL = 1024;
+
+    private static final Pattern NUMBERED_PARAM = Pattern.compile("\\?\\d+");
+
+    /**
+     * Oracle从12c开始支持offset fetch
+     */
+    private static final int ORACLE_OFFSET_FETCH_VERSION = 12;
+
+    private static final Cache<String, String> COUNT_SQL = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_SQL).recordStats().build();
+
+    private static final Cache<String, PageSql> PAGE_SQL = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_SQL).recordStats().build();
+
+    private PageSqlCache() {
+    }
+
+    /**
+     * 获取count语句
+     *
+     * @param sql 查询语句
+     * @return count语句
+     * @see SqlUtils#buildCountSql(Object)
+     */
+    public static String countSql(String sql) {
+        String countSql = COUNT_SQL.getIfPresent(sql);
+        if (null == countSql) {
+            countSql = SqlUtils.buildCountSql(sql);
+            COUNT_SQL.put(sql, countSql);
+        }
+        return countSql;
+    }
+
+    /**
+     * 获取JDBC的分页语句,分页参数为?
+     *
+     * @param sql          查询语句
+     * @param dbType       数据库类型
+     * @param majorVersion 数据库主版本号
+     * @return 分页语句,不支持的数据库返回null
+     */
+    public static PageSql pageSql(String sql, DbType dbType, int majorVersion) {
+        return pageSql(sql, dbType, majorVersion, -1);
+    }
+
+    /**
+     * 获取JPA原生查询的分页语句,分页参数为?n编号参数
+     *
+     * @param sql          查询语句
+     * @param dbType       数据库类型
+     * @param majorVersion 数据库主版本号
+     * @param paramCount   查询语句的参数个数,分页参数从paramCount+1开始编号
+     * @return 分页语句,不支持的数据库返回null
+     */
+    public static PageSql numberedPageSql(String sql, DbType dbType, int majorVersion, int paramCount) {
+        return pageSql(sql, dbType, majorVersion, paramCount);
+    }
+
+    /**
+     * 获取JPA原生查询的分页语句,分页参数的风格与查询语句一致:
+     * 使用?n编号参数的语句(如NativeSqlQueryBuilder生成的语句)追加编号参数,使用JDBC风格?参数的语句追加?,
+     * 因为hibernate不允许两种参数混用
+     *
+     * @param sql          查询语句
+     * @param dbType       数据库类型
+     * @param majorVersion 数据库主版本号
+     * @param paramCount   查询语句的参数个数
+     * @return 分页语句,不支持的数据库返回null
+     */
+    public static PageSql nativePageSql(String sql, DbType dbType, int majorVersion, int paramCount) {
+        if (paramCount > 0 && !NUMBERED_PARAM.matcher(sql).find()) {
+            return pageSql(sql, dbType, majorVersion, -1);
+        }
+        return pageSql(sql, dbType, majorVersion, paramCount);
+    }
+
+    public static CacheStats countSqlStats() {
+        return COUNT_SQL.stats();
+    }
+
+    public static CacheStats pageSqlStats() {
+        return PAGE_SQL.stats();
+    }
+
+    private static PageSql pageSql(String sql, DbType dbType, int majorVersion, int paramCount) {
+        if (null == dbType) {
+            return null;
+        }
+        boolean rownum = DbType.ORACLE.equals(dbType) && majorVersion > 0 && majorVersion < ORACLE_OFFSET_FETCH_VERSION;
+        String key = dbType + "|" + rownum + "|" + paramCount + "|" + sql;
+        PageSql pageSql = PAGE_SQL.getIfPresent(key);
+        if (null == pageSql) {
+            pageSql = buildPageSql(sql, dbType, rownum, paramCount);
+            PAGE_SQL.put(key, pageSql);
+        }
+        return pageSql;
+    }
+
+    private static PageSql buildPageSql(String sql, DbType dbType, boolean rownum, int paramCount) {
+        String first = paramCount < 0 ? "?" : "?" + (paramCount + 1);
+        String second = paramCount < 0 ? "?" : "?" + (paramCount + 2);
+        switch (dbType) {
+            case ORACLE:
+                if (rownum) {
+                    return new PageSql("select * from (select t_page.*, rownum rn_page from (" + sql + ") t_page where rownum <= " + first + ") where rn_page > " + second, Order.END_OFFSET);
+                }
+                return new PageSql(sql + " offset " + first + " rows fetch next " + second + " rows only", Order.OFFSET_LIMIT);
+            case MYSQL:
+            case POSTGRESQL:
+            case CLICKHOUSE:
+                return new PageSql(sql + " limit " + first + " offset " + second, Order.LIMIT_OFFSET);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 分页参数的顺序
+     */
+    private enum Order {
+        LIMIT_OFFSET, OFFSET_LIMIT, END_OFFSET
+    }
+
+    /**
+     * 分页语句
+     */
+    public static final class PageSql {
+        private final String sql;
+        private final Order order;
+
+        private PageSql(String sql, Order order) {
+            this.sql = sql;
+            this.order = order;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        /**
+         * 在查询参数后追加分页参数
+         *
+         * @param params 查询参数
+         * @param offset 跳过的行数
+         * @param limit  每页行数
+         * @return 全部参数
+         */
+        public Object[] params(Object[] params, long offset, int limit) {
+            Object[] source = null == params ? new Object[0] : params;
+            Object[] args = Arrays.copyOf(source, source.length + 2);
+            switch (order) {
+                case OFFSET_LIMIT:
+                    args[source.length] = offset;
+                    args[source.length + 1] = limit;
+                    break;
+                case END_OFFSET:
+                    args[source.length] = offset + limit;
+                    args[source.length + 1] = offset;
+                    break;
+                default:
+                    args[source.length] = limit;
+                    args[source.length + 1] = offset;
+                    break;
+            }
+            return args;
+        }
+    }
+}
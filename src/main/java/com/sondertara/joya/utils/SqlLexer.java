@@ -0,0 +1,232 @@
+package com.sondertara.joya.utils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * 单遍扫描的sql词法分析
+ * <p>
+ * 跳过字符串、带引号的标识符和注释,只识别最外层(不在括号中)的select、distinct、from、order by等关键字,
+ * 因此子查询和字符串中的from不会影响分页的count语句.分析结果按sql缓存
+ *
+ * @author huangxiaohu
+ */
+final class SqlLexer {
+
+    private static final int MAX_CACHED_SQL = 2048;
+
+    private static final Cache<String, ParsedSql> CACHE = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_SQL).build();
+
+    private SqlLexer() {
+    }
+
+    /**
+     * 分析sql
+     *
+     * @param sql sql str
+     * @return 分析结果
+     */
+    static ParsedSql parse(String sql) {
+        ParsedSql parsed = CACHE.getIfPresent(sql);
+        if (null == parsed) {
+            parsed = scan(sql);
+            CACHE.put(sql, parsed);
+        }
+        return parsed;
+    }
+
+    private static ParsedSql scan(String sql) {
+        int length = sql.length();
+        int depth = 0;
+        int wordCount = 0;
+        int distinctEnd = -1;
+        int from = -1;
+        int orderBy = -1;
+        int orderByEnd = length;
+        // the start of the last top level "order" word
+        int order = -1;
+        // the start of the last top level "group" word
+        int group = -1;
+        boolean groupBy = false;
+        boolean compound = false;
+        boolean afterSelect = false;
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"' || c == '`') {
+                i = skipQuoted(sql, i, c);
+            } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                int end = sql.indexOf('\n', i);
+                i = end < 0 ? length : end + 1;
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+            } else if (c == '(') {
+                depth++;
+                i++;
+                afterSelect = false;
+            } else if (c == ')') {
+                depth--;
+                i++;
+                afterSelect = false;
+            } else if (isWordPart(c)) {
+                int start = i;
+                while (i < length && isWordPart(sql.charAt(i))) {
+                    i++;
+                }
+                if (depth != 0) {
+                    continue;
+                }
+                wordCount++;
+                if (wordCount == 1 && matches(sql, start, i, "select")) {
+                    afterSelect = true;
+                    continue;
+                }
+                if (afterSelect && matches(sql, start, i, "distinct")) {
+                    distinctEnd = i;
+                } else if (from < 0 && matches(sql, start, i, "from")) {
+                    from = start;
+                } else if (matches(sql, start, i, "order")) {
+                    order = start;
+                } else if (matches(sql, start, i, "group")) {
+                    group = start;
+                } else if (group >= 0 && matches(sql, start, i, "by") && isOnlyBlank(sql, group + 5, start)) {
+                    groupBy = true;
+                    group = -1;
+                } else if (matches(sql, start, i, "union") || matches(sql, start, i, "intersect") || matches(sql, start, i, "except")) {
+                    compound = true;
+                } else if (order >= 0 && matches(sql, start, i, "by") && isOnlyBlank(sql, order + 5, start)) {
+                    // the last top level order by,the union query is ordered at the end
+                    orderBy = order;
+                    orderByEnd = length;
+                    order = -1;
+                } else if (orderBy >= 0 && orderByEnd == length && isOrderByTerminator(sql, start, i)) {
+                    orderByEnd = start;
+                }
+                afterSelect = false;
+            } else {
+                i++;
+            }
+        }
+        return new ParsedSql(sql, distinctEnd, from, orderBy, orderBy < 0 ? -1 : orderByEnd, groupBy, compound);
+    }
+
+    private static int skipQuoted(String sql, int start, char quote) {
+        int i = start + 1;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\\' && quote != '`') {
+                i += 2;
+                continue;
+            }
+            if (c == quote) {
+                // '' is the escaped quote
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return sql.length();
+    }
+
+    private static boolean isWordPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    private static boolean matches(String sql, int start, int end, String keyword) {
+        return end - start == keyword.length() && sql.regionMatches(true, start, keyword, 0, keyword.length());
+    }
+
+    private static boolean isOnlyBlank(String sql, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!Character.isWhitespace(sql.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isOrderByTerminator(String sql, int start, int end) {
+        return matches(sql, start, end, "limit") || matches(sql, start, end, "offset")
+                || matches(sql, start, end, "fetch") || matches(sql, start, end, "for");
+    }
+
+    /**
+     * sql的分析结果,位置都是原sql中的下标,-1表示不存在
+     */
+    static final class ParsedSql {
+        private final String sql;
+        private final int distinctEnd;
+        private final int from;
+        private final int orderBy;
+        private final int orderByEnd;
+        private final boolean groupBy;
+        private final boolean compound;
+
+        private ParsedSql(String sql, int distinctEnd, int from, int orderBy, int orderByEnd, boolean groupBy, boolean compound) {
+            this.sql = sql;
+            this.distinctEnd = distinctEnd;
+            this.from = from;
+            this.orderBy = orderBy;
+            this.orderByEnd = orderByEnd;
+            this.groupBy = groupBy;
+            this.compound = compound;
+        }
+
+        /**
+         * @return 是否有最外层的group by
+         */
+        boolean isGroupBy() {
+            return groupBy;
+        }
+
+        /**
+         * @return 是否是union/intersect/except组合查询
+         */
+        boolean isCompound() {
+            return compound;
+        }
+
+        /**
+         * @return 是否是select distinct
+         */
+        boolean isDistinct() {
+            return distinctEnd > 0;
+        }
+
+        /**
+         * @return 最外层from的位置
+         */
+        int fromIndex() {
+            return from;
+        }
+
+        /**
+         * 去掉最外层的order by子句
+         *
+         * @param start 截取的开始位置
+         * @return sql str
+         */
+        String withoutOrderBy(int start) {
+            if (orderBy < 0 || orderBy < start) {
+                return sql.substring(start);
+            }
+            String head = sql.substring(start, orderBy);
+            if (orderByEnd >= sql.length()) {
+                return trimEnd(head);
+            }
+            return trimEnd(head) + " " + sql.substring(orderByEnd);
+        }
+
+        private static String trimEnd(String str) {
+            int end = str.length();
+            while (end > 0 && Character.isWhitespace(str.charAt(end - 1))) {
+                end--;
+            }
+            return str.substring(0, end);
+        }
+    }
+}
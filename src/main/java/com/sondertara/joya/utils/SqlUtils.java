@@ -6,6 +6,8 @@ import com.sondertara.common.util.StringUtils;
 import com.sondertara.joya.core.query.NativeSqlQuery;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -23,12 +25,23 @@ public class SqlUtils {
      */
     public static final Pattern COLUMN_WITH_TABLE_ALIAS = Pattern.compile("(?![\"'])[t|T][0-9]+(.)[A-Za-z0-9]+[\\s]*(?![\"'])");
 
+    private static final Pattern ORDER_BY_PATTERN = Pattern.compile("\\s*[Oo][Rr][Dd][Ee][Rr]\\s+[Bb][Yy]\\s*");
+    private static final Pattern AS_PATTERN = Pattern.compile("\\s*[Aa][Ss]\\s*");
+    private static final Pattern SPACE_PATTERN = Pattern.compile("\\s*( {2,})\\s*");
+    /**
+     * the pattern of findStrPosition,key is the target str
+     */
+    private static final Map<String, Pattern> POSITION_PATTERNS = new ConcurrentHashMap<>();
+
     private SqlUtils() {
         throw new IllegalStateException("工具类,不需要实例化");
     }
 
     /**
      * 根据查询列表SQL语句自动构造查询记录总数的SQL语句
+     * <p>
+     * 只识别最外层的distinct、group by、from和order by,子查询、字符串和注释中的关键字不受影响.
+     * distinct、group by和union查询的结果行数与from中的行数不同,包装为子查询统计
      *
      * @param strSql String
      * @return String
@@ -45,34 +58,38 @@ public class SqlUtils {
             } else {
                 throw new IllegalArgumentException("不受支持的参数类型!");
             }
-
-            if (containsDistinctKeywords(sql)) {
-
-                // 查询字段
-                String queryField = sql.substring(findStrPosition(sql, "distinct") + 8, findStrPosition(sql, "from")).trim();
-
-                countBuff.append("select count(distinct ").append(queryField).append(") ");
-            } else {
-                countBuff.append("select count(*) ");
+            SqlLexer.ParsedSql parsed = SqlLexer.parse(sql);
+            if (parsed.isDistinct() || parsed.isGroupBy() || parsed.isCompound()) {
+                return wrapCountSql(parsed.withoutOrderBy(0));
+            }
+            countBuff.append("select count(*) ");
+            if (parsed.fromIndex() >= 0) {
+                countBuff.append(parsed.withoutOrderBy(parsed.fromIndex()));
             }
-
-            countBuff.append(removeOrderBy(trimFrom(sql)));
         }
         return countBuff.toString();
     }
 
     /**
-     * 取sql语句从"from"之后的字符串
+     * 将查询包装为子查询统计总数
+     *
+     * @param sql 不含order by的查询语句
+     * @return count sql
+     */
+    public static String wrapCountSql(String sql) {
+        return "select count(*) from (" + sql + ") t_count";
+    }
+
+    /**
+     * 取sql语句从最外层"from"之后的字符串
      *
      * @param sql String
      * @return String
      */
     public static String trimFrom(String sql) {
-        String patternString = "[Ff][Rr][Oo][Mm]";
-        Pattern pattern = Pattern.compile(patternString);
-        Matcher matcher = pattern.matcher(sql);
+        int index = SqlLexer.parse(sql).fromIndex();
         // 后面的字符
-        return matcher.find() ? sql.substring(matcher.start()) : "";
+        return index < 0 ? "" : sql.substring(index);
     }
 
     /**
@@ -82,11 +99,7 @@ public class SqlUtils {
      * @return is contains distinct
      */
     public static boolean containsDistinctKeywords(String sql) {
-
-        Pattern pattern = Pattern.compile("\\s*" + buildRegexStr("select") + "\\s*" + buildRegexStr("distinct"));
-        Matcher matcher = pattern.matcher(sql);
-
-        return matcher.find() && matcher.start() == 0;
+        return SqlLexer.parse(sql).isDistinct();
     }
 
     /**
@@ -120,11 +133,8 @@ public class SqlUtils {
      * @return String
      */
     public static String replaceOrderBy(String sql) {
-        String patternString = "\\s*[Oo][Rr][Dd][Ee][Rr]\\s+[Bb][Yy]\\s*";
-        Pattern pattern = Pattern.compile(patternString);
-        Matcher matcher = pattern.matcher(sql);
         // 后面的字符
-        return matcher.replaceAll(" ORDER BY ");
+        return ORDER_BY_PATTERN.matcher(sql).replaceAll(" ORDER BY ");
     }
 
     /**
@@ -134,10 +144,7 @@ public class SqlUtils {
      * @return String
      */
     public static String replaceAs(String sql) {
-        String patternString = "\\s*[Aa][Ss]\\s*";
-        Pattern pattern = Pattern.compile(patternString);
-        Matcher matcher = pattern.matcher(sql);
-        return matcher.replaceAll(" AS ").trim();
+        return AS_PATTERN.matcher(sql).replaceAll(" AS ").trim();
     }
 
     /**
@@ -147,10 +154,7 @@ public class SqlUtils {
      * @return the single space sql srt
      */
     public static String replaceSpace(String sql) {
-        String patternString = "\\s*( {2,})\\s*";
-        Pattern pattern = Pattern.compile(patternString);
-        Matcher matcher = pattern.matcher(sql);
-        return matcher.replaceAll(" ").trim();
+        return SPACE_PATTERN.matcher(sql).replaceAll(" ").trim();
     }
 
 
@@ -190,16 +194,13 @@ public class SqlUtils {
 
 
     /**
-     * 过滤 sql语句中的order by 子句
+     * 过滤 sql语句中最外层的order by 子句
      *
      * @param sql str
      * @return String
      */
     public static String removeOrderBy(String sql) {
-        String patternString = "\\sORDER\\sBY\\s[a-zA-Z0-9._,\\s]+";
-        Pattern pattern = Pattern.compile(patternString);
-        Matcher matcher = pattern.matcher(replaceOrderBy(sql));
-        return matcher.replaceAll("");
+        return SqlLexer.parse(sql).withoutOrderBy(0);
     }
 
     /**
@@ -210,8 +211,7 @@ public class SqlUtils {
      * @return index
      */
     public static int findStrPosition(String sql, String targetStr) {
-        String patternString = buildRegexStr(targetStr);
-        Pattern pattern = Pattern.compile(patternString);
+        Pattern pattern = POSITION_PATTERNS.computeIfAbsent(targetStr, k -> Pattern.compile(buildRegexStr(k)));
         Matcher matcher = pattern.matcher(sql);
 
         return matcher.find() ? matcher.start() : -1;
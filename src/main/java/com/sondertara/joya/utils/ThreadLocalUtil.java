@@ -9,7 +9,10 @@ import java.util.Map;
  * @author sondertara
  * @date 2021/11/19 15:23
  * @since 0.0.7
+ * @deprecated the table alias is bound to {@link com.sondertara.joya.cache.AliasContext} of the query builder,
+ * it is only used by the deprecated api of {@link com.sondertara.joya.cache.AliasCacheHelper}
  */
+@Deprecated
 public class ThreadLocalUtil {
     private static final ThreadLocal<Map<String, Object>> THREAD_CONTEXT = new MapThreadLocal();
 
@@ -0,0 +1,43 @@
+package com.sondertara.joya;
+
+import com.sondertara.joya.enums.DbType;
+import com.sondertara.joya.utils.PageSqlCache;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class PageSqlCacheTest {
+
+  @Test
+  public void testJdbcStyleParams() {
+    String sql = "select id, name from t_user where dept_id = ? and status = ?";
+    PageSqlCache.PageSql pageSql = PageSqlCache.nativePageSql(sql, DbType.MYSQL, 8, 2);
+    Assertions.assertEquals(sql + " limit ? offset ?", pageSql.getSql());
+    Assertions.assertArrayEquals(new Object[]{1, "A", 10, 20L}, pageSql.params(new Object[]{1, "A"}, 20, 10));
+  }
+
+  @Test
+  public void testNumberedParams() {
+    String sql = "select t0.id, t0.name from t_user t0 where t0.dept_id = ?1 and t0.status = ?2";
+    PageSqlCache.PageSql pageSql = PageSqlCache.nativePageSql(sql, DbType.POSTGRESQL, 14, 2);
+    Assertions.assertEquals(sql + " limit ?3 offset ?4", pageSql.getSql());
+    Assertions.assertEquals("select id from t_user limit ?1 offset ?2", PageSqlCache.nativePageSql("select id from t_user", DbType.MYSQL, 8, 0).getSql());
+  }
+
+  @Test
+  public void testOracle11RownumShape() {
+    String sql = "select t0.id from t_user t0 where t0.dept_id = ?1";
+    PageSqlCache.PageSql pageSql = PageSqlCache.nativePageSql(sql, DbType.ORACLE, 11, 1);
+    Assertions.assertEquals("select * from (select t_page.*, rownum " + PageSqlCache.ROWNUM_COLUMN + " from (" + sql + ") t_page where rownum <= ?2) where "
+        + PageSqlCache.ROWNUM_COLUMN + " > ?3", pageSql.getSql());
+    // the end row first,then the offset
+    Assertions.assertArrayEquals(new Object[]{5, 30L, 20L}, pageSql.params(new Object[]{5}, 20, 10));
+  }
+
+  @Test
+  public void testOracle12OffsetFetch() {
+    String sql = "select id from t_user where dept_id = ?";
+    PageSqlCache.PageSql pageSql = PageSqlCache.nativePageSql(sql, DbType.ORACLE, 19, 1);
+    Assertions.assertEquals(sql + " offset ? rows fetch next ? rows only", pageSql.getSql());
+    Assertions.assertArrayEquals(new Object[]{5, 20L, 10}, pageSql.params(new Object[]{5}, 20, 10));
+  }
+}
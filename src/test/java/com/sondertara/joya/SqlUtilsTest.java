@@ -0,0 +1,32 @@
+package com.sondertara.joya;
+
+import com.sondertara.joya.utils.SqlUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class SqlUtilsTest {
+
+  @Test
+  public void testCountSqlIgnoresNestedFrom() {
+    String sql = "select t0.id, (select count(*) from t_dept d where d.id = t0.dept_id) c from t_user t0 where t0.name = 'from x' order by t0.id desc";
+    Assertions.assertEquals("select count(*) from t_user t0 where t0.name = 'from x'", SqlUtils.buildCountSql(sql));
+  }
+
+  @Test
+  public void testCountSqlWithDistinct() {
+    String sql = "SELECT DISTINCT t0.dept_id FROM t_user t0 ORDER BY t0.dept_id";
+    Assertions.assertEquals("select count(*) from (SELECT DISTINCT t0.dept_id FROM t_user t0) t_count", SqlUtils.buildCountSql(sql));
+  }
+
+  @Test
+  public void testCountSqlWithGroupBy() {
+    String sql = "select t0.dept_id, count(*) c from t_user t0 group by t0.dept_id order by c";
+    Assertions.assertEquals("select count(*) from (select t0.dept_id, count(*) c from t_user t0 group by t0.dept_id) t_count", SqlUtils.buildCountSql(sql));
+  }
+
+  @Test
+  public void testRemoveOrderByKeepsSubQuery() {
+    String sql = "select * from (select id from t order by id) x order by x.id limit 10";
+    Assertions.assertEquals("select * from (select id from t order by id) x limit 10", SqlUtils.removeOrderBy(sql));
+  }
+}
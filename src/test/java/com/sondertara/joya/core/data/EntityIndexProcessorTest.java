@@ -0,0 +1,155 @@
+package com.sondertara.joya.core.data;
+
+import com.sondertara.joya.core.model.TableStructDef;
+import com.sondertara.joya.ext.JoyaSpringContext;
+import com.sondertara.joya.processor.EntityIndexProcessor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.support.GenericApplicationContext;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.Metamodel;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * the loader generated by {@link EntityIndexProcessor} should load the same tables with {@link EntityManagerTableResultLoaderAdapter}
+ */
+public class EntityIndexProcessorTest {
+
+  private static final String LOADER = "com.sondertara.joya.sample.SampleTableResultLoader";
+
+  private static final String USER = "package com.sondertara.joya.sample;\n"
+      + "import javax.persistence.*;\n"
+      + "@Entity\n"
+      + "@Table(name = \"t_sample_user\")\n"
+      + "public class SampleUser {\n"
+      + "  public static final String CACHE_NAME = \"user\";\n"
+      + "  @Id\n"
+      + "  @Column(name = \"USER_ID\")\n"
+      + "  private Long id;\n"
+      + "  @Column(name = \"NICK_NAME\")\n"
+      + "  private String nickName;\n"
+      + "  @Column(length = 32)\n"
+      + "  private String deptName;\n"
+      + "  private String createTime;\n"
+      + "}\n";
+
+  private static final String DEPT = "package com.sondertara.joya.sample;\n"
+      + "import javax.persistence.*;\n"
+      + "@Entity\n"
+      + "@Table(name = \"t_sample_dept\")\n"
+      + "public class SampleDept {\n"
+      + "  @Id\n"
+      + "  private Long deptId;\n"
+      + "  private String deptName;\n"
+      + "}\n";
+
+  @TempDir
+  Path output;
+
+  @Test
+  public void testGeneratedLoaderMatchesEntityManagerAdapter() throws Exception {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    Assumptions.assumeTrue(null != compiler, "the tests are not running on a JDK");
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    List<String> options = Arrays.asList("-classpath", System.getProperty("java.class.path"), "-d", output.toString(),
+        "-processor", EntityIndexProcessor.class.getName(), "-Ajoya.loader=" + LOADER);
+    List<JavaFileObject> sources = Arrays.asList(source("SampleUser", USER), source("SampleDept", DEPT));
+    Boolean success = compiler.getTask(null, null, diagnostics, options, null, sources).call();
+    Assertions.assertTrue(success, () -> diagnostics.getDiagnostics().toString());
+
+    Path service = output.resolve("META-INF/services/" + TableResultLoader.class.getName());
+    Assertions.assertEquals(LOADER, new String(Files.readAllBytes(service), StandardCharsets.UTF_8).trim());
+
+    try (URLClassLoader classLoader = new URLClassLoader(new URL[]{output.toUri().toURL()}, getClass().getClassLoader())) {
+      TableResultLoader generated = (TableResultLoader) classLoader.loadClass(LOADER).newInstance();
+      Map<String, TableStructDef> expected = index(adapterLoad(classLoader.loadClass("com.sondertara.joya.sample.SampleUser"),
+          classLoader.loadClass("com.sondertara.joya.sample.SampleDept")));
+      Map<String, TableStructDef> actual = index(generated.load());
+      Assertions.assertEquals(expected, actual);
+
+      TableStructDef user = actual.get("com.sondertara.joya.sample.SampleUser");
+      Assertions.assertEquals("t_sample_user", user.getTableName());
+      Assertions.assertEquals("user_id", user.getPrimaryKey());
+      Assertions.assertEquals("nick_name", user.getFields().get("nickName"));
+      Assertions.assertEquals("dept_name", user.getFields().get("deptName"));
+      Assertions.assertEquals("create_time", user.getFields().get("createTime"));
+      Assertions.assertFalse(user.getFields().containsKey("CACHE_NAME"));
+      Assertions.assertEquals("dept_id", actual.get("com.sondertara.joya.sample.SampleDept").getPrimaryKey());
+    }
+  }
+
+  private static List<TableStructDef> adapterLoad(Class<?>... entities) {
+    Set<EntityType<?>> entityTypes = new LinkedHashSet<>();
+    for (Class<?> entity : entities) {
+      entityTypes.add(stub(EntityType.class, "getJavaType", entity));
+    }
+    Metamodel metamodel = stub(Metamodel.class, "getEntities", entityTypes);
+    EntityManagerFactory factory = stub(EntityManagerFactory.class, "getMetamodel", metamodel);
+    EntityManager entityManager = stub(EntityManager.class, "getEntityManagerFactory", factory);
+    GenericApplicationContext context = new GenericApplicationContext();
+    context.registerBean(EntityManager.class, () -> entityManager);
+    context.refresh();
+    try {
+      new JoyaSpringContext().setApplicationContext(context);
+      return new EntityManagerTableResultLoaderAdapter().load();
+    } finally {
+      context.close();
+    }
+  }
+
+  private static Map<String, TableStructDef> index(List<TableStructDef> tables) {
+    return tables.stream().collect(Collectors.toMap(TableStructDef::getClassName, Function.identity()));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T stub(Class<T> type, String method, Object value) {
+    return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, m, args) -> {
+      switch (m.getName()) {
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "toString":
+          return type.getSimpleName();
+        default:
+          if (m.getName().equals(method)) {
+            return value;
+          }
+          throw new UnsupportedOperationException(m.getName());
+      }
+    });
+  }
+
+  private static JavaFileObject source(String simpleName, String code) {
+    URI uri = URI.create("string:///com/sondertara/joya/sample/" + simpleName + JavaFileObject.Kind.SOURCE.extension);
+    return new SimpleJavaFileObject(uri, JavaFileObject.Kind.SOURCE) {
+      @Override
+      public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+        return code;
+      }
+    };
+  }
+}
@@ -0,0 +1,53 @@
+package com.sondertara.joya.core.jdbc;
+
+import com.sondertara.joya.enums.DbType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class BulkSqlBuilderTest {
+
+  private final List<String> columns = Arrays.asList("id", "name");
+
+  @Test
+  public void testMysqlUpsert() {
+    BulkSqlBuilder builder = new BulkSqlBuilder(DbType.MYSQL);
+    Assertions.assertEquals("insert into t_user(id,name) values (?,?),(?,?) on duplicate key update name = values(name)",
+        builder.upsert("t_user", "id", columns, 2));
+  }
+
+  @Test
+  public void testPostgresqlUpsert() {
+    BulkSqlBuilder builder = new BulkSqlBuilder(DbType.POSTGRESQL);
+    Assertions.assertEquals("insert into t_user(id,name) values (?,?),(?,?) on conflict (id) do update set name = excluded.name",
+        builder.upsert("t_user", "id", columns, 2));
+    Assertions.assertEquals("insert into t_user(id) values (?) on conflict (id) do nothing",
+        builder.upsert("t_user", "id", Arrays.asList("id"), 1));
+  }
+
+  @Test
+  public void testOracleMerge() {
+    BulkSqlBuilder builder = new BulkSqlBuilder(DbType.ORACLE);
+    Assertions.assertFalse(builder.supportsMultiRowInsert());
+    Assertions.assertEquals("merge into t_user t using (select ? id, ? name from dual union all select ?, ? from dual) s on (t.id = s.id)"
+            + " when matched then update set t.name = s.name when not matched then insert (id, name) values (s.id, s.name)",
+        builder.upsert("t_user", "id", columns, 2));
+  }
+
+  @Test
+  public void testMultiRowInsert() {
+    BulkSqlBuilder builder = new BulkSqlBuilder(DbType.MYSQL);
+    Assertions.assertEquals("insert into t_user(id,name) values (?,?),(?,?),(?,?)", builder.insert("t_user", columns, 3));
+  }
+
+  @Test
+  public void testRowsPerStatementKeepsUnderBindLimit() {
+    BulkSqlBuilder builder = new BulkSqlBuilder(DbType.POSTGRESQL);
+    Assertions.assertEquals(500, builder.rowsPerStatement(3, 500));
+    Assertions.assertEquals(BulkSqlBuilder.MAX_BIND_PARAMETERS / 3, builder.rowsPerStatement(3, 100000));
+    Assertions.assertTrue(builder.rowsPerStatement(7, 100000) * 7 <= BulkSqlBuilder.MAX_BIND_PARAMETERS);
+    Assertions.assertEquals(1, builder.rowsPerStatement(BulkSqlBuilder.MAX_BIND_PARAMETERS + 1, 100));
+  }
+}
@@ -0,0 +1,50 @@
+package com.sondertara.joya.core.jdbc;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.sql.Types;
+
+public class ColumnarResultTest {
+
+  @Test
+  public void testColumnKindByClassName() {
+    BigInteger unsignedBigint = new BigInteger("18446744073709551615");
+    byte[] bits = {1, 0};
+    // mysql reports INT UNSIGNED as INTEGER but returns Long,BIGINT UNSIGNED as BigInteger and BIT(2) as byte[]
+    ColumnarResult result = ColumnarResult.builder(new String[]{"int_unsigned", "bigint_unsigned", "bits"},
+            new int[]{Types.INTEGER, Types.BIGINT, Types.BIT}, new String[]{"java.lang.Long", "java.math.BigInteger", "[B"})
+        .add(new Object[]{3000000000L, unsignedBigint, bits})
+        .build();
+    Assertions.assertEquals(3000000000L, result.getLong(0, 0));
+    Assertions.assertEquals(unsignedBigint, result.getObject(0, 1));
+    Assertions.assertSame(bits, result.getObject(0, 2));
+  }
+
+  @Test
+  public void testWidenToObjectColumn() {
+    ColumnarResult result = ColumnarResult.builder(new String[]{"id", "flag"}, new int[]{Types.INTEGER, Types.BIT})
+        .add(new Object[]{1, true})
+        .add(new Object[]{null, null})
+        .add(new Object[]{3000000000L, new byte[]{1}})
+        .build();
+    Assertions.assertEquals(1, result.getObject(0, 0));
+    Assertions.assertTrue(result.isNull(1, 0));
+    Assertions.assertEquals(3000000000L, result.getLong(2, 0));
+    Assertions.assertEquals(Boolean.TRUE, result.getObject(0, 1));
+    Assertions.assertTrue(result.isNull(1, 1));
+    Assertions.assertArrayEquals(new byte[]{1}, (byte[]) result.getObject(2, 1));
+  }
+
+  @Test
+  public void testPrimitiveColumns() {
+    ColumnarResult result = ColumnarResult.builder(new String[]{"id", "score", "name"}, new int[]{Types.BIGINT, Types.DOUBLE, Types.VARCHAR})
+        .add(new Object[]{1L, 1.5D, "a"})
+        .add(new Object[]{2, 2.5D, "a"})
+        .build();
+    Assertions.assertEquals(2L, result.getObject(1, 0));
+    Assertions.assertEquals(2.5D, result.getDouble(1, 1));
+    Assertions.assertEquals("a", result.row(1).getString("NAME"));
+  }
+}
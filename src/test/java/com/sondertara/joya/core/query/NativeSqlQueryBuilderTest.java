@@ -0,0 +1,105 @@
+package com.sondertara.joya.core.query;
+
+import com.sondertara.joya.cache.LocalEntityCache;
+import com.sondertara.joya.core.model.TableStructDef;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class NativeSqlQueryBuilderTest {
+
+  @BeforeAll
+  public static void setUp() {
+    LocalEntityCache.setTableResultAdapter(() -> Arrays.asList(
+        table(UserEntity.class, "t_user", "id", "name", "deptId", "roleId"),
+        table(DeptEntity.class, "t_dept", "id", "name"),
+        table(RoleEntity.class, "t_role", "id", "name")));
+  }
+
+  private static TableStructDef table(Class<?> clazz, String tableName, String... fieldNames) {
+    Map<String, String> fields = new LinkedHashMap<>();
+    for (String fieldName : fieldNames) {
+      fields.put(fieldName, fieldName.replaceAll("([A-Z])", "_$1").toLowerCase());
+    }
+    TableStructDef table = new TableStructDef();
+    table.setClassName(clazz.getName());
+    table.setTableName(tableName);
+    table.setFields(fields);
+    table.setPrimaryKey("id");
+    return table;
+  }
+
+  @Test
+  public void testCountSqlRemovesUnreferencedLeftJoin() {
+    NativeSqlQuery query = NativeSqlQuery.builder()
+        .select("t0.id", "t0.name", "t2.name AS roleName")
+        .from(j -> j.leftJoin(UserEntity::getDeptId, DeptEntity::getId).leftJoin(UserEntity::getRoleId, RoleEntity::getId))
+        .where(w -> w.eq(DeptEntity::getName, "dev"))
+        .build();
+    // t_role is joined on the primary key and not referenced in where,t_dept is referenced
+    Assertions.assertEquals("SELECT count(*) FROM t_user   t0 LEFT JOIN t_dept   t1 ON t0.dept_id = t1.id WHERE t1.name = ?1", query.getCountSql());
+  }
+
+  @Test
+  public void testCountSqlOfDistinct() {
+    NativeSqlQuery query = NativeSqlQuery.builder()
+        .select("distinct t0.dept_id")
+        .from(j -> j.leftJoin(UserEntity::getDeptId, DeptEntity::getId).leftJoin(UserEntity::getRoleId, RoleEntity::getId))
+        .build();
+    // the count of distinct rows is derived from the query
+    Assertions.assertEquals("select count(*) from (" + query.toSql() + ") t_count", query.getCountSql());
+  }
+
+  public static class UserEntity {
+    private Long id;
+    private String name;
+    private Long deptId;
+    private Long roleId;
+
+    public Long getId() {
+      return id;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public Long getDeptId() {
+      return deptId;
+    }
+
+    public Long getRoleId() {
+      return roleId;
+    }
+  }
+
+  public static class DeptEntity {
+    private Long id;
+    private String name;
+
+    public Long getId() {
+      return id;
+    }
+
+    public String getName() {
+      return name;
+    }
+  }
+
+  public static class RoleEntity {
+    private Long id;
+    private String name;
+
+    public Long getId() {
+      return id;
+    }
+
+    public String getName() {
+      return name;
+    }
+  }
+}
@@ -0,0 +1,120 @@
+package com.sondertara.joya.core.query;
+
+import com.sondertara.common.exception.TaraException;
+import com.sondertara.joya.cache.LocalEntityCache;
+import com.sondertara.joya.core.model.TableStructDef;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class NativeSqlQueryTemplateTest {
+
+  private static final NativeSqlQueryTemplate TEMPLATE = NativeSqlQueryTemplate.compile(args -> query(args.get(0), args.get(1), args.getCollection(2), args.getCollection(3)));
+
+  @BeforeAll
+  public static void setUp() {
+    Map<String, String> fields = new LinkedHashMap<>();
+    fields.put("id", "id");
+    fields.put("userName", "user_name");
+    fields.put("deptId", "dept_id");
+    fields.put("status", "status");
+    TableStructDef table = new TableStructDef();
+    table.setClassName(UserEntity.class.getName());
+    table.setTableName("t_user");
+    table.setFields(fields);
+    table.setPrimaryKey("id");
+    LocalEntityCache.setTableResultAdapter(() -> Collections.singletonList(table));
+  }
+
+  private static NativeSqlQuery query(Object id, Object userName, Collection<Object> deptIds, Collection<Object> excludedStatus) {
+    return NativeSqlQuery.builder()
+        .select("t0.id", "t0.user_name")
+        .from(UserEntity.class)
+        .where(w -> w.eq(UserEntity::getId, id)
+            .contains(UserEntity::getUserName, userName)
+            .in(UserEntity::getDeptId, deptIds)
+            .notIn(UserEntity::getStatus, excludedStatus))
+        .build();
+  }
+
+  private static void assertSameQuery(NativeSqlQuery expected, NativeSqlQuery actual) {
+    Assertions.assertEquals(expected.toSql(), actual.toSql());
+    Assertions.assertEquals(expected.getCountSql(), actual.getCountSql());
+    Assertions.assertEquals(expected.getParams(), actual.getParams());
+  }
+
+  @Test
+  public void testBindAllArgs() {
+    NativeSqlQueryTemplate template = NativeSqlQueryTemplate.compile(args -> query(args.get(0), args.get(1), args.getCollection(2), args.getCollection(3)));
+    Collection<Object> deptIds = Arrays.asList(10L, 20L);
+    Collection<Object> status = Collections.singletonList(0);
+    NativeSqlQuery bound = template.bind(1L, "tom", deptIds, status);
+    assertSameQuery(query(1L, "tom", deptIds, status), bound);
+    // the like value is wrapped around the bound arg,the collections are bound as they are
+    Assertions.assertEquals(Arrays.asList(1L, "%tom%", deptIds, status), bound.getParams());
+    Assertions.assertSame(deptIds, bound.getParams().get(2));
+
+    assertSameQuery(query(2L, "jerry", Collections.singletonList(30L), status), template.bind(2L, "jerry", Collections.singletonList(30L), status));
+    Assertions.assertEquals(1, template.variantCount());
+  }
+
+  @Test
+  public void testBindNullArgs() {
+    NativeSqlQueryTemplate template = NativeSqlQueryTemplate.compile(args -> query(args.get(0), args.get(1), args.getCollection(2), args.getCollection(3)));
+    Collection<Object> deptIds = Arrays.asList(10L, 20L);
+    assertSameQuery(query(1L, "tom", deptIds, null), template.bind(1L, "tom", deptIds, null));
+    assertSameQuery(query(null, "tom", deptIds, null), template.bind(null, "tom", deptIds, null));
+    assertSameQuery(query(1L, null, null, null), template.bind(1L, null, null, null));
+    Assertions.assertEquals(3, template.variantCount());
+    // the same null pattern reuses the compiled sql
+    assertSameQuery(query(null, "jerry", deptIds, null), template.bind(null, "jerry", deptIds, null));
+    Assertions.assertEquals(3, template.variantCount());
+  }
+
+  @Test
+  public void testSharedTemplate() {
+    Collection<Object> deptIds = Collections.singletonList(10L);
+    assertSameQuery(query(5L, null, deptIds, null), TEMPLATE.bind(5L, null, deptIds, null));
+  }
+
+  @Test
+  public void testArgIndexOutOfBound() {
+    NativeSqlQueryTemplate template = NativeSqlQueryTemplate.compile(args -> query(args.get(0), args.get(1), null, null));
+    Assertions.assertThrows(TaraException.class, () -> template.bind(1L));
+  }
+
+  @Test
+  public void testSlotInCollectionRejected() {
+    NativeSqlQueryTemplate template = NativeSqlQueryTemplate.compile(args -> query(null, null, Arrays.asList(args.get(0), args.get(1)), null));
+    Assertions.assertThrows(TaraException.class, () -> template.bind(1L, 2L));
+  }
+
+  public static class UserEntity {
+    private Long id;
+    private String userName;
+    private Long deptId;
+    private Integer status;
+
+    public Long getId() {
+      return id;
+    }
+
+    public String getUserName() {
+      return userName;
+    }
+
+    public Long getDeptId() {
+      return deptId;
+    }
+
+    public Integer getStatus() {
+      return status;
+    }
+  }
+}
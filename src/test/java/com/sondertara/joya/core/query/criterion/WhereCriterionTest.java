@@ -0,0 +1,62 @@
+package com.sondertara.joya.core.query.criterion;
+
+import com.sondertara.common.exception.TaraException;
+import com.sondertara.joya.cache.AliasCacheHelper;
+import com.sondertara.joya.cache.AliasContext;
+import com.sondertara.joya.cache.LocalEntityCache;
+import com.sondertara.joya.core.model.TableStructDef;
+import com.sondertara.joya.core.query.pagination.OrderParam;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class WhereCriterionTest {
+
+  @BeforeAll
+  public static void setUp() {
+    Map<String, String> fields = new LinkedHashMap<>();
+    fields.put("id", "id");
+    fields.put("createTime", "create_time");
+    TableStructDef table = new TableStructDef();
+    table.setClassName(UserEntity.class.getName());
+    table.setTableName("t_user");
+    table.setFields(fields);
+    table.setPrimaryKey("id");
+    LocalEntityCache.setTableResultAdapter(() -> Collections.singletonList(table));
+  }
+
+  @Test
+  public void testSeekAfterWithMixedOrders() {
+    AliasContext context = new AliasContext();
+    AliasCacheHelper.generateTableAlias(context, UserEntity.class);
+    Timestamp createTime = new Timestamp(1650000000000L);
+    WhereCriterion where = new WhereCriterion(context, WhereCriterion.Operator.AND)
+        .seekAfter(Arrays.asList("t0.createTime", "t0.id"), Arrays.asList(OrderParam.OrderBy.DESC, OrderParam.OrderBy.ASC), Arrays.asList(createTime, 42L));
+    Assertions.assertEquals("( (t0.create_time < ?1) OR (t0.create_time = ?2 AND t0.id > ?3) )", where.getSegments().toString());
+    Assertions.assertEquals(Arrays.asList(createTime, createTime, 42L), where.getParams());
+    Assertions.assertEquals(3, where.getCounts());
+  }
+
+  @Test
+  public void testSeekAfterRejectsNull() {
+    AliasContext context = new AliasContext();
+    AliasCacheHelper.generateTableAlias(context, UserEntity.class);
+    WhereCriterion where = new WhereCriterion(context, WhereCriterion.Operator.AND);
+    Assertions.assertThrows(TaraException.class,
+        () -> where.seekAfter(Collections.singletonList("t0.id"), Collections.singletonList(OrderParam.OrderBy.ASC), Collections.singletonList(null)));
+  }
+
+  @Test
+  public void testUnknownTableAlias() {
+    Assertions.assertThrows(TaraException.class, () -> WhereCriterion.get().eq("t0.id", 1));
+  }
+
+  public static class UserEntity {
+  }
+}
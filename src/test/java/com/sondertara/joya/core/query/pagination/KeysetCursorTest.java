@@ -0,0 +1,53 @@
+package com.sondertara.joya.core.query.pagination;
+
+import com.sondertara.common.exception.TaraException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class KeysetCursorTest {
+
+  @Test
+  public void testRoundTrip() {
+    Timestamp timestamp = new Timestamp(1650000000123L);
+    timestamp.setNanos(123456789);
+    List<Object> values = Arrays.asList("a.b:c 中文", 1, 2L, 3.5D, new BigDecimal("10.50"), new BigInteger("12345678901234567890"),
+        true, timestamp, LocalDateTime.of(2022, 4, 1, 12, 30, 15), LocalDate.of(2022, 4, 1));
+    String cursor = KeysetCursor.encode(values);
+    Assertions.assertFalse(cursor.contains("="));
+    Assertions.assertEquals(values, KeysetCursor.decode(cursor));
+  }
+
+  @Test
+  public void testNextWithMixedOrders() {
+    Map<String, Object> lastRow = new LinkedHashMap<>();
+    lastRow.put("createTime", new Timestamp(1650000000000L));
+    lastRow.put("id", 42L);
+    List<OrderParam> orders = Arrays.asList(new OrderParam("t0.create_time", OrderParam.OrderBy.DESC), new OrderParam("t0.id", OrderParam.OrderBy.ASC));
+    String cursor = KeysetCursor.next(lastRow, orders);
+    Assertions.assertEquals(Arrays.asList(new Timestamp(1650000000000L), 42L), KeysetCursor.decode(cursor));
+  }
+
+  @Test
+  public void testNullValues() {
+    Assertions.assertTrue(KeysetCursor.decode(null).isEmpty());
+    Assertions.assertTrue(KeysetCursor.decode(" ").isEmpty());
+    Assertions.assertThrows(TaraException.class, () -> KeysetCursor.encode(Collections.singletonList(null)));
+    Assertions.assertThrows(TaraException.class, () -> KeysetCursor.encode(Arrays.asList(1L, null)));
+  }
+
+  @Test
+  public void testInvalidCursor() {
+    Assertions.assertThrows(TaraException.class, () -> KeysetCursor.decode("not-a-cursor"));
+  }
+}
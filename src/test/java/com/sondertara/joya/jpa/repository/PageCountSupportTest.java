@@ -0,0 +1,37 @@
+package com.sondertara.joya.jpa.repository;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class PageCountSupportTest {
+
+  @Test
+  public void testNumberedParamsReordered() {
+    List<Object> args = new ArrayList<>();
+    String sql = PageCountSupport.toJdbcSql("select id from t_user where status = ?2 and dept_id = ?1", new Object[]{10, "A"}, args);
+    Assertions.assertEquals("select id from t_user where status = ? and dept_id = ?", sql);
+    Assertions.assertEquals(Arrays.asList("A", 10), args);
+  }
+
+  @Test
+  public void testInCollectionExpanded() {
+    List<Object> args = new ArrayList<>();
+    String sql = PageCountSupport.toJdbcSql("select t0.id from t_user t0 where t0.status = ?1 AND t0.id IN ?2 AND t0.dept_id NOT IN (?3)",
+        new Object[]{"A", Arrays.asList(1L, 2L, 3L), Collections.singletonList(7)}, args);
+    Assertions.assertEquals("select t0.id from t_user t0 where t0.status = ? AND t0.id IN (?,?,?) AND t0.dept_id NOT IN (?)", sql);
+    Assertions.assertEquals(Arrays.asList("A", 1L, 2L, 3L, 7), args);
+  }
+
+  @Test
+  public void testJdbcStyleParamsUnchanged() {
+    List<Object> args = new ArrayList<>();
+    String sql = "select id from t_user where status = ? and dept_id = ?";
+    Assertions.assertEquals(sql, PageCountSupport.toJdbcSql(sql, new Object[]{"A", 10}, args));
+    Assertions.assertEquals(Arrays.asList("A", 10), args);
+  }
+}